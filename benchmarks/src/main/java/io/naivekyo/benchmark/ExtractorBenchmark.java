@@ -0,0 +1,87 @@
+package io.naivekyo.benchmark;
+
+import io.naivekyo.content.DocContent;
+import io.naivekyo.extractor.ContentExtractor;
+import io.naivekyo.extractor.ExtractorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每种格式对应的 {@code ExtractorFactory.create*Extractor} 抽取器的吞吐量和延迟 <br/>
+ * 分配速率使用 gc profiler 统计: java -jar target/benchmarks.jar ExtractorBenchmark -prof gc <br/>
+ * .doc 格式需要额外指定样本文件: -p format=doc -jvmArgs -Dbench.fixture.doc=/path/file.doc
+ * @author NaiveKyo
+ * @since 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractorBenchmark {
+
+    @Param({"txt", "docx", "docx-stax", "pdf", "ppt", "pptx", "xls", "xlsx"})
+    public String format;
+
+    /**
+     * 样本规模, 含义见 {@link Fixtures#create(String, int)}
+     */
+    @Param({"10"})
+    public int scale;
+
+    private byte[] fixture;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // docx-stax 与 docx 使用相同的样本, 只是抽取器不同
+        fixture = Fixtures.create(format.split("-")[0], scale);
+    }
+
+    @Benchmark
+    public List<DocContent> extract() {
+        return create(format, new ByteArrayInputStream(fixture)).extract();
+    }
+
+    static ContentExtractor create(String format, InputStream is) {
+        switch (format) {
+            case "txt":
+                return ExtractorFactory.createTxtFileExtractor(is);
+            case "doc":
+                return ExtractorFactory.createHWPFWordExtractor(is);
+            case "docx":
+                return ExtractorFactory.createXWPFWordExtractor(is);
+            case "docx-stax":
+                return ExtractorFactory.createXWPFStreamingWordExtractor(is);
+            case "pdf":
+                return ExtractorFactory.createPDFFileExtractor(is);
+            case "ppt":
+                return ExtractorFactory.createHSLFPPTExtractor(is);
+            case "pptx":
+                return ExtractorFactory.createXSLFPPTExtractor(is);
+            case "xls":
+                return ExtractorFactory.createHSSFExcelExtractor(is);
+            case "xlsx":
+                return ExtractorFactory.createXSSFExcelExtractor(is);
+            default:
+                throw new IllegalArgumentException("unknown format: " + format);
+        }
+    }
+
+}
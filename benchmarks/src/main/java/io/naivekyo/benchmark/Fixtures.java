@@ -0,0 +1,265 @@
+package io.naivekyo.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextBox;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.sl.usermodel.PictureData;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFPictureData;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTable;
+import org.apache.poi.xslf.usermodel.XSLFTableRow;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * 基准测试使用的文档样本, 全部在本地内存中生成, 相同的参数总是生成相同的内容 <br/>
+ * POI 无法从零创建 .doc 文件, 因此 .doc 样本需要通过系统属性 {@link #DOC_FIXTURE_PROPERTY} 指定
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public final class Fixtures {
+
+    /**
+     * .doc 样本文件路径的系统属性
+     */
+    public static final String DOC_FIXTURE_PROPERTY = "bench.fixture.doc";
+
+    private static final String[] WORDS = {
+            "document", "content", "extract", "paragraph", "report", "value", "table", "image",
+            "summary", "analysis", "quarter", "revenue", "system", "design", "performance", "result"
+    };
+
+    private static final String[] CHINESE_SENTENCES = {
+            "文档内容抽取是数据处理的第一步。", "段落合并需要考虑标点符号。", "这是一段用于测试的中文文本！", "结果是否符合预期？"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * 根据格式生成样本
+     * @param format 文件格式(后缀), 例如 pdf、docx
+     * @param scale 规模: 页数/段落组数/行数的倍数
+     * @return 样本文件字节
+     * @throws IOException 生成失败
+     */
+    public static byte[] create(String format, int scale) throws IOException {
+        switch (format) {
+            case "txt":
+                return text(scale * 200, 7).getBytes(StandardCharsets.UTF_8);
+            case "doc":
+                String doc = System.getProperty(DOC_FIXTURE_PROPERTY);
+                if (doc == null)
+                    throw new IllegalStateException("POI can't create .doc file, please specify a sample with -D" + DOC_FIXTURE_PROPERTY + "=/path/file.doc");
+                return Files.readAllBytes(Paths.get(doc));
+            case "docx":
+                return docx(scale);
+            case "pdf":
+                return pdf(scale);
+            case "ppt":
+                return ppt(scale);
+            case "pptx":
+                return pptx(scale);
+            case "xls":
+                return workbook(new HSSFWorkbook(), scale * 500);
+            case "xlsx":
+                return workbook(new SXSSFWorkbook(100), scale * 500);
+            default:
+                throw new IllegalArgumentException("unknown format: " + format);
+        }
+    }
+
+    /**
+     * 生成中英文混合的文本, 句子之间使用不同的标点符号分隔
+     * @param sentences 句子数量
+     * @param seed 随机种子
+     * @return 文本
+     */
+    public static String text(int sentences, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            if (random.nextInt(4) == 0) {
+                sb.append(CHINESE_SENTENCES[random.nextInt(CHINESE_SENTENCES.length)]);
+            } else {
+                sb.append(sentence(random));
+                sb.append(i % 5 == 4 ? "\n" : " ");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String sentence(Random random) {
+        int words = 6 + random.nextInt(12);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0)
+                sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sb.append(random.nextInt(5) == 0 ? '?' : '.');
+        return sb.toString();
+    }
+
+    private static byte[] png(Random random, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < 8; i++) {
+            g.setColor(new Color(random.nextInt(0xFFFFFF)));
+            g.fillRect(random.nextInt(width), random.nextInt(height), width / 3, height / 3);
+        }
+        g.dispose();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bos);
+        return bos.toByteArray();
+    }
+
+    private static byte[] pdf(int pages) throws IOException {
+        Random random = new Random(11);
+        try (PDDocument doc = new PDDocument(); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            PDImageXObject image = LosslessFactory.createFromImage(doc, ImageIO.read(new ByteArrayInputStream(png(random, 200, 120))));
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 10);
+                    cs.setLeading(13f);
+                    cs.newLineAtOffset(50, 740);
+                    for (int line = 0; line < 45; line++) {
+                        cs.showText(sentence(random));
+                        cs.newLine();
+                    }
+                    cs.endText();
+                    if (p % 2 == 0)
+                        cs.drawImage(image, 380, 40, 150, 90);
+                }
+            }
+            doc.save(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] docx(int scale) throws IOException {
+        Random random = new Random(13);
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int i = 0; i < scale; i++) {
+                for (int j = 0; j < 20; j++) {
+                    doc.createParagraph().createRun().setText(sentence(random) + " " + sentence(random));
+                }
+                XWPFTable table = doc.createTable(5, 4);
+                for (int r = 0; r < 5; r++) {
+                    for (int c = 0; c < 4; c++) {
+                        table.getRow(r).getCell(c).setText(WORDS[random.nextInt(WORDS.length)] + r + c);
+                    }
+                }
+                if (i % 2 == 0) {
+                    byte[] png = png(random, 160, 100);
+                    doc.createParagraph().createRun().addPicture(new ByteArrayInputStream(png), Document.PICTURE_TYPE_PNG, "image" + i + ".png", 160 * 9525, 100 * 9525);
+                }
+            }
+            doc.write(bos);
+            return bos.toByteArray();
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] pptx(int slides) throws IOException {
+        Random random = new Random(17);
+        try (XMLSlideShow ppt = new XMLSlideShow(); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            XSLFPictureData picture = ppt.addPicture(png(random, 160, 100), PictureData.PictureType.PNG);
+            for (int i = 0; i < slides; i++) {
+                XSLFSlide slide = ppt.createSlide();
+                XSLFTextBox box = slide.createTextBox();
+                box.setAnchor(new Rectangle(40, 40, 600, 200));
+                for (int j = 0; j < 6; j++) {
+                    box.addNewTextParagraph().addNewTextRun().setText(sentence(random));
+                }
+                XSLFTable table = slide.createTable();
+                table.setAnchor(new Rectangle(40, 260, 600, 120));
+                for (int r = 0; r < 4; r++) {
+                    XSLFTableRow row = table.addRow();
+                    for (int c = 0; c < 3; c++) {
+                        row.addCell().setText(WORDS[random.nextInt(WORDS.length)]);
+                    }
+                }
+                if (i % 2 == 0)
+                    slide.createPicture(picture).setAnchor(new Rectangle(420, 400, 160, 100));
+            }
+            ppt.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] ppt(int slides) throws IOException {
+        Random random = new Random(19);
+        try (HSLFSlideShow ppt = new HSLFSlideShow(); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int i = 0; i < slides; i++) {
+                HSLFSlide slide = ppt.createSlide();
+                HSLFTextBox box = slide.createTextBox();
+                box.setAnchor(new Rectangle(40, 40, 600, 300));
+                StringBuilder sb = new StringBuilder();
+                for (int j = 0; j < 6; j++) {
+                    if (j > 0)
+                        sb.append('\r');
+                    sb.append(sentence(random));
+                }
+                box.setText(sb.toString());
+            }
+            ppt.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] workbook(Workbook wb, int rows) throws IOException {
+        Random random = new Random(23);
+        try (Workbook workbook = wb; ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int s = 0; s < 2; s++) {
+                Sheet sheet = workbook.createSheet("sheet" + s);
+                for (int r = 0; r < rows; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(WORDS[random.nextInt(WORDS.length)] + r);
+                    row.createCell(1).setCellValue(random.nextInt(100000) / 100.0);
+                    row.createCell(2).setCellValue(random.nextBoolean());
+                    row.createCell(3).setCellValue(sentence(random));
+                }
+            }
+            workbook.write(bos);
+            if (workbook instanceof SXSSFWorkbook)
+                ((SXSSFWorkbook) workbook).dispose();
+            return bos.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package io.naivekyo.benchmark;
+
+import io.naivekyo.content.DocumentParagraph;
+import io.naivekyo.extractor.ExtractHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExtractHelper#pdfTextExtract2Paragraphs(java.io.InputStream, boolean, int, float, int)} 的吞吐量和延迟,
+ * 包括文本抽取和段落合并两部分
+ * @author NaiveKyo
+ * @since 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfParagraphBenchmark {
+
+    @Param({"10", "100"})
+    public int pages;
+
+    @Param({"false", "true"})
+    public boolean sortByPosition;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private byte[] fixture;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixture = Fixtures.create("pdf", pages);
+    }
+
+    @Benchmark
+    public List<DocumentParagraph> pdfTextExtract2Paragraphs() throws Exception {
+        return ExtractHelper.pdfTextExtract2Paragraphs(new ByteArrayInputStream(fixture), sortByPosition,
+                ExtractHelper.DEFAULT_THRESHOLD, ExtractHelper.DEFAULT_FACTOR, parallelism);
+    }
+
+}
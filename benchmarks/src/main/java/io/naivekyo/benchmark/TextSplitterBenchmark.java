@@ -0,0 +1,58 @@
+package io.naivekyo.benchmark;
+
+import io.naivekyo.constant.LanguageEnum;
+import io.naivekyo.support.text.DocumentTextSplitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DocumentTextSplitter#split(String)} 的吞吐量和延迟
+ * @author NaiveKyo
+ * @since 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextSplitterBenchmark {
+
+    /**
+     * 文本包含的句子数量
+     */
+    @Param({"100", "10000"})
+    public int sentences;
+
+    @Param({"UNKNOWN", "ZH_CN", "EN"})
+    public String language;
+
+    private DocumentTextSplitter splitter;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        splitter = new DocumentTextSplitter(LanguageEnum.valueOf(language));
+        text = Fixtures.text(sentences, 29);
+    }
+
+    @Benchmark
+    public List<String> split() {
+        return splitter.split(text);
+    }
+
+}
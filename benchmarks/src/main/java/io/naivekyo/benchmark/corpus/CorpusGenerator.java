@@ -0,0 +1,511 @@
+package io.naivekyo.benchmark.corpus;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.poi.ooxml.POIXMLDocument;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.sl.usermodel.PictureData;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFAutoShape;
+import org.apache.poi.xslf.usermodel.XSLFGroupShape;
+import org.apache.poi.xslf.usermodel.XSLFPictureData;
+import org.apache.poi.xslf.usermodel.XSLFPictureShape;
+import org.apache.poi.xslf.usermodel.XSLFShape;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.xmlbeans.XmlCursor;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * <p>确定性的合成语料生成器, 用于性能测试和批量模式的压测</p>
+ * <p>相同的种子和规模总是生成字节完全一致的文件, 不同机器上的测试结果因此可以互相比较: </p>
+ * <ul>
+ *     <li>pdf: 多页文本, 每页引用共享的 PNG/JPEG 图片, 部分页面带有独立图片</li>
+ *     <li>docx: 段落、表格以及 WMF/EMF/PNG 图片</li>
+ *     <li>pptx: 文本框以及包含嵌套组合的组合形状</li>
+ *     <li>xlsx: 基于 SXSSF 流式写出, 数百万个字符串/数字/日期/布尔单元格</li>
+ * </ul>
+ * <p>只用于测试, 不属于抽取库本身, 因此放在 benchmarks 模块中</p>
+ * <p>命令行用法: {@code java -cp target/benchmarks.jar io.naivekyo.benchmark.corpus.CorpusGenerator <output dir> [small|medium|large] [seed]}</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class CorpusGenerator {
+
+    private static final Log LOG = LogFactory.getLog(CorpusGenerator.class);
+
+    public static final long DEFAULT_SEED = 20240101L;
+
+    /**
+     * OOXML 文档的创建时间固定为该值, 避免文档属性随生成时间变化
+     */
+    private static final Date FIXED_CREATED = new Date(1704067200000L);
+
+    /**
+     * xlsx 单个工作表的最大数据行数
+     */
+    public static final int XLSX_ROWS_PER_SHEET = 500_000;
+
+    private static final int EMU_PER_PIXEL = 9525;
+
+    private static final String[] WORDS = {
+            "document", "content", "extract", "paragraph", "report", "value", "table", "image",
+            "summary", "analysis", "quarter", "revenue", "system", "design", "performance", "result",
+            "budget", "customer", "region", "service", "network", "storage", "contract", "schedule"
+    };
+
+    private static final String[] CHINESE_SENTENCES = {
+            "文档内容抽取是数据处理的第一步。", "段落合并需要考虑标点符号。", "本季度的收入较上一季度有所增长！",
+            "表格中的数据来自各个区域的汇总。", "结果是否符合预期？", "图片和文本需要按照出现顺序输出。"
+    };
+
+    private final long seed;
+
+    private final CorpusProfile profile;
+
+    public CorpusGenerator(long seed, CorpusProfile profile) {
+        if (profile == null)
+            throw new IllegalArgumentException("profile cant be null.");
+        this.seed = seed;
+        this.profile = profile;
+    }
+
+    /**
+     * 在输出目录下生成全部语料, 已存在的同名文件会被覆盖
+     * @param outputDir 输出目录, 不存在时自动创建
+     * @return 生成的文件
+     * @throws IOException 写入文件时出现的异常
+     */
+    public List<Path> generate(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < profile.getFilesPerFormat(); i++) {
+            // 页数等规模在基准值的 50% ~ 150% 之间浮动, 让批量模式面对大小不一的文件
+            Random sizes = new Random(fileSeed("size", i));
+            int pages = vary(sizes, profile.getPdfPages());
+            int sections = vary(sizes, profile.getDocxSections());
+            int slides = vary(sizes, profile.getPptxSlides());
+            int rows = vary(sizes, profile.getXlsxRows());
+            long pdfSeed = fileSeed("pdf", i), docxSeed = fileSeed("docx", i), pptxSeed = fileSeed("pptx", i), xlsxSeed = fileSeed("xlsx", i);
+            files.add(write(outputDir, "pdf", i, os -> writePdf(os, pdfSeed, pages)));
+            files.add(write(outputDir, "docx", i, os -> writeDocx(os, docxSeed, sections)));
+            files.add(write(outputDir, "pptx", i, os -> writePptx(os, pptxSeed, slides)));
+            files.add(write(outputDir, "xlsx", i, os -> writeXlsx(os, xlsxSeed, rows, profile.getXlsxColumns())));
+        }
+        return files;
+    }
+
+    private Path write(Path outputDir, String format, int index, CorpusWriter writer) throws IOException {
+        Path file = outputDir.resolve(String.format("%s-%03d.%s", profile.name().toLowerCase(Locale.ROOT), index, format));
+        long start = System.currentTimeMillis();
+        try (OutputStream os = Files.newOutputStream(file)) {
+            writer.write(os);
+        }
+        LOG.info(String.format("generated %s, size: %d bytes, cost: %d ms", file, Files.size(file), System.currentTimeMillis() - start));
+        return file;
+    }
+
+    private long fileSeed(String format, int index) {
+        return seed * 1_000_003L + format.hashCode() * 1_009L + index;
+    }
+
+    private static int vary(Random random, int base) {
+        return Math.max(1, base / 2 + random.nextInt(base + 1));
+    }
+
+    /**
+     * 生成多页 pdf, 文本使用标准 14 字体, 因此只包含英文
+     * @param os 输出流, 方法不负责关闭
+     * @param seed 随机种子
+     * @param pages 页数
+     * @throws IOException 写入时出现的异常
+     */
+    public static void writePdf(OutputStream os, long seed, int pages) throws IOException {
+        Random random = new Random(seed);
+        try (PDDocument doc = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            PDType1Font bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+            // 同一个 XObject 被多个页面引用, 模拟页眉 logo 等重复图片
+            PDImageXObject logo = LosslessFactory.createFromImage(doc, image(random, 120, 60));
+            PDImageXObject photo = JPEGFactory.createFromImage(doc, image(random, 320, 200), 0.8f);
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.drawImage(logo, 50, 730, 60, 30);
+                    cs.beginText();
+                    cs.setFont(bold, 14);
+                    cs.newLineAtOffset(120, 740);
+                    cs.showText("Section " + (p + 1) + ": " + words(random, 4));
+                    cs.endText();
+
+                    cs.beginText();
+                    cs.setFont(font, 10);
+                    cs.setLeading(13f);
+                    cs.newLineAtOffset(50, 705);
+                    int lines = 28 + random.nextInt(12);
+                    for (int line = 0; line < lines; line++) {
+                        cs.showText(sentence(random));
+                        cs.newLine();
+                        // 随机插入空行, 形成段落
+                        if (random.nextInt(6) == 0)
+                            cs.newLine();
+                    }
+                    cs.endText();
+
+                    if (p % 3 == 0) {
+                        cs.drawImage(photo, 330, 50, 220, 138);
+                    } else if (p % 5 == 1) {
+                        PDImageXObject chart = LosslessFactory.createFromImage(doc, image(random, 200, 120));
+                        cs.drawImage(chart, 350, 50, 200, 120);
+                    }
+                }
+            }
+            // 固定文档 ID, 否则 PDFBox 会根据当前时间生成
+            COSString id = new COSString(toBytes(seed));
+            COSArray ids = new COSArray();
+            ids.add(id);
+            ids.add(id);
+            doc.getDocument().getTrailer().setItem(COSName.ID, ids);
+            doc.save(os);
+        }
+    }
+
+    /**
+     * 生成 docx, 每个章节包含标题、若干中英文段落、一个表格和一张 WMF/EMF/PNG 图片
+     * @param os 输出流, 方法不负责关闭
+     * @param seed 随机种子
+     * @param sections 章节数量
+     * @throws IOException 写入时出现的异常
+     */
+    public static void writeDocx(OutputStream os, long seed, int sections) throws IOException {
+        Random random = new Random(seed);
+        try (XWPFDocument doc = new XWPFDocument()) {
+            for (int s = 0; s < sections; s++) {
+                XWPFParagraph title = doc.createParagraph();
+                title.setAlignment(ParagraphAlignment.CENTER);
+                XWPFRun titleRun = title.createRun();
+                titleRun.setBold(true);
+                titleRun.setText((s + 1) + ". " + words(random, 3));
+
+                int paragraphs = 4 + random.nextInt(8);
+                for (int i = 0; i < paragraphs; i++) {
+                    String text = random.nextInt(3) == 0
+                            ? CHINESE_SENTENCES[random.nextInt(CHINESE_SENTENCES.length)] + CHINESE_SENTENCES[random.nextInt(CHINESE_SENTENCES.length)]
+                            : sentence(random) + " " + sentence(random) + " " + sentence(random);
+                    doc.createParagraph().createRun().setText(text);
+                }
+
+                int rows = 3 + random.nextInt(6);
+                int columns = 3 + random.nextInt(3);
+                XWPFTable table = doc.createTable(rows, columns);
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < columns; c++) {
+                        table.getRow(r).getCell(c).setText(r == 0 ? WORDS[random.nextInt(WORDS.length)] : String.valueOf(random.nextInt(100000) / 100.0));
+                    }
+                }
+
+                int width = 160 + random.nextInt(160);
+                int height = 100 + random.nextInt(100);
+                byte[] data;
+                int type;
+                String name;
+                switch (s % 3) {
+                    case 0:
+                        data = MetafileWriter.wmf(random, width, height);
+                        type = Document.PICTURE_TYPE_WMF;
+                        name = "picture" + s + ".wmf";
+                        break;
+                    case 1:
+                        data = MetafileWriter.emf(random, width, height);
+                        type = Document.PICTURE_TYPE_EMF;
+                        name = "picture" + s + ".emf";
+                        break;
+                    default:
+                        data = png(image(random, width, height));
+                        type = Document.PICTURE_TYPE_PNG;
+                        name = "picture" + s + ".png";
+                }
+                doc.createParagraph().createRun().addPicture(new ByteArrayInputStream(data), type, name, width * EMU_PER_PIXEL, height * EMU_PER_PIXEL);
+            }
+            fixCreated(doc);
+            writePackage(doc, os);
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 生成 pptx, 每页包含标题文本框和一个组合形状, 组合中包含文本框、自选图形和嵌套的组合
+     * @param os 输出流, 方法不负责关闭
+     * @param seed 随机种子
+     * @param slides 幻灯片数量
+     * @throws IOException 写入时出现的异常
+     */
+    public static void writePptx(OutputStream os, long seed, int slides) throws IOException {
+        Random random = new Random(seed);
+        try (XMLSlideShow ppt = new XMLSlideShow()) {
+            XSLFPictureData picture = ppt.addPicture(png(image(random, 160, 100)), PictureData.PictureType.PNG);
+            for (int i = 0; i < slides; i++) {
+                XSLFSlide slide = ppt.createSlide();
+                XSLFTextBox title = slide.createTextBox();
+                title.setAnchor(new Rectangle2D.Double(40, 20, 640, 50));
+                title.addNewTextParagraph().addNewTextRun().setText((i + 1) + ". " + words(random, 4));
+
+                // 在组合形状中创建子形状时, POI 会重新登记整张幻灯片已有的 shape id 并输出 "has been already used" 警告,
+                // 因此所有形状都先在幻灯片上创建, 由同一个分配器分配唯一的 id, 最后再移动到组合中(嵌套的组合最后移动)
+                XSLFTextBox body = slide.createTextBox();
+                body.setAnchor(new Rectangle2D.Double(40, 90, 400, 240));
+                int paragraphs = 3 + random.nextInt(4);
+                for (int j = 0; j < paragraphs; j++) {
+                    body.addNewTextParagraph().addNewTextRun().setText(random.nextInt(4) == 0
+                            ? CHINESE_SENTENCES[random.nextInt(CHINESE_SENTENCES.length)]
+                            : sentence(random));
+                }
+
+                XSLFAutoShape box = slide.createAutoShape();
+                box.setAnchor(new Rectangle2D.Double(460, 90, 220, 100));
+                box.setFillColor(new Color(random.nextInt(0xFFFFFF)));
+                box.setText(words(random, 5));
+
+                XSLFTextBox caption = slide.createTextBox();
+                caption.setAnchor(new Rectangle2D.Double(460, 210, 220, 60));
+                caption.addNewTextParagraph().addNewTextRun().setText(sentence(random));
+                XSLFPictureShape image = null;
+                if (i % 2 == 0) {
+                    image = slide.createPicture(picture);
+                    image.setAnchor(new Rectangle2D.Double(490, 290, 160, 100));
+                }
+
+                // 组合的内部坐标与幻灯片坐标一致, 子形状的位置不需要换算
+                Rectangle2D bounds = new Rectangle2D.Double(40, 90, 640, 400);
+                XSLFGroupShape group = slide.createGroup();
+                group.setAnchor(bounds);
+                group.setInteriorAnchor(bounds);
+                Rectangle2D nestedBounds = new Rectangle2D.Double(460, 210, 220, 280);
+                XSLFGroupShape nested = slide.createGroup();
+                nested.setAnchor(nestedBounds);
+                nested.setInteriorAnchor(nestedBounds);
+                moveInto(nested, caption);
+                if (image != null)
+                    moveInto(nested, image);
+                moveInto(group, body);
+                moveInto(group, box);
+                moveInto(group, nested);
+            }
+            fixCreated(ppt);
+            writePackage(ppt, os);
+        }
+    }
+
+    /**
+     * 将幻灯片上的形状移动到组合的末尾, shape id 和图片等关系保持不变 <br/>
+     * 只移动 xml, 幻灯片中缓存的形状列表不会更新, 因此只能在写出文件之前调用, 移动之后不能再通过 POI 访问这些形状
+     */
+    private static void moveInto(XSLFGroupShape group, XSLFShape shape) {
+        try (XmlCursor source = shape.getXmlObject().newCursor();
+             XmlCursor target = group.getXmlObject().newCursor()) {
+            target.toEndToken();
+            source.moveXml(target);
+        }
+    }
+
+    /**
+     * 基于 SXSSF 流式生成 xlsx, 内存占用与行数无关. 超过 {@link #XLSX_ROWS_PER_SHEET} 行时拆分为多个工作表
+     * @param os 输出流, 方法不负责关闭
+     * @param seed 随机种子
+     * @param rows 总行数(不含表头)
+     * @param columns 列数, 按照 字符串/数字/日期/布尔 循环
+     * @throws IOException 写入时出现的异常
+     */
+    public static void writeXlsx(OutputStream os, long seed, int rows, int columns) throws IOException {
+        Random random = new Random(seed);
+        XSSFWorkbook template = new XSSFWorkbook();
+        fixCreated(template);
+        // 使用共享字符串表, 与 Excel 保存的文件结构一致; 字符串取自有限的词表, 共享字符串表不会随行数增长
+        SXSSFWorkbook workbook = new SXSSFWorkbook(template, 200, true, true);
+        try {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            int sheets = (rows + XLSX_ROWS_PER_SHEET - 1) / XLSX_ROWS_PER_SHEET;
+            for (int s = 0; s < Math.max(1, sheets); s++) {
+                Sheet sheet = workbook.createSheet("data" + (s + 1));
+                Row header = sheet.createRow(0);
+                for (int c = 0; c < columns; c++) {
+                    header.createCell(c).setCellValue("column" + (c + 1));
+                }
+                int sheetRows = Math.min(XLSX_ROWS_PER_SHEET, rows - s * XLSX_ROWS_PER_SHEET);
+                for (int r = 1; r <= sheetRows; r++) {
+                    Row row = sheet.createRow(r);
+                    for (int c = 0; c < columns; c++) {
+                        Cell cell = row.createCell(c);
+                        switch (c % 4) {
+                            case 0:
+                                cell.setCellValue(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+                                break;
+                            case 1:
+                                cell.setCellValue(random.nextInt(10000000) / 100.0);
+                                break;
+                            case 2:
+                                cell.setCellValue(new Date(FIXED_CREATED.getTime() + random.nextInt(3650) * 86400000L));
+                                cell.setCellStyle(dateStyle);
+                                break;
+                            default:
+                                cell.setCellValue(random.nextBoolean());
+                        }
+                    }
+                }
+            }
+            workbook.write(os);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void fixCreated(POIXMLDocument doc) {
+        doc.getProperties().getCoreProperties().setCreated(Optional.of(FIXED_CREATED));
+    }
+
+    /**
+     * POI 使用当前时间作为 zip 条目的修改时间, 这里重新打包并固定条目时间, 保证多次生成的文件字节一致
+     */
+    private static void writePackage(POIXMLDocument doc, OutputStream os) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        doc.write(bos);
+        ZipOutputStream zos = new ZipOutputStream(os);
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            byte[] buf = new byte[8192];
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                ZipEntry copy = new ZipEntry(entry.getName());
+                copy.setTime(FIXED_CREATED.getTime());
+                zos.putNextEntry(copy);
+                int len;
+                while ((len = zis.read(buf)) != -1) {
+                    zos.write(buf, 0, len);
+                }
+                zos.closeEntry();
+            }
+        }
+        // 不能关闭调用方的输出流
+        zos.finish();
+    }
+
+    private static String sentence(Random random) {
+        int words = 6 + random.nextInt(12);
+        String s = words(random, words);
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1) + (random.nextInt(5) == 0 ? "?" : ".");
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static BufferedImage image(Random random, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        for (int i = 0; i < 8; i++) {
+            g.setColor(new Color(random.nextInt(0xFFFFFF)));
+            g.fillRect(random.nextInt(width), random.nextInt(height), width / 3, height / 3);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bos);
+        return bos.toByteArray();
+    }
+
+    private static byte[] toBytes(long value) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (value >>> (i * 8));
+            bytes[15 - i] = bytes[i];
+        }
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface CorpusWriter {
+        void write(OutputStream os) throws IOException;
+    }
+
+    /**
+     * args0: 输出目录 <br/>
+     * args1: (可选) 规模: small、medium、large, 默认为 small <br/>
+     * args2: (可选) 随机种子, 默认为 {@link #DEFAULT_SEED}
+     * @param args 参数
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length > 3) {
+            System.out.println("usage: CorpusGenerator <output dir> [small|medium|large] [seed]");
+            return;
+        }
+        CorpusProfile profile = args.length > 1 ? CorpusProfile.valueOf(args[1].toUpperCase(Locale.ROOT)) : CorpusProfile.SMALL;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        long start = System.currentTimeMillis();
+        List<Path> files = new CorpusGenerator(seed, profile).generate(Paths.get(args[0]));
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        System.out.printf("generated %d files (%d bytes) with profile %s and seed %d, cost: %d ms%n",
+                files.size(), total, profile, seed, System.currentTimeMillis() - start);
+    }
+
+}
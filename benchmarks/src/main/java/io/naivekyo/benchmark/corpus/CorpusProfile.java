@@ -0,0 +1,77 @@
+package io.naivekyo.benchmark.corpus;
+
+/**
+ * 合成语料的规模
+ * @author NaiveKyo
+ * @since 1.0
+ * @see CorpusGenerator
+ */
+public enum CorpusProfile {
+
+    /**
+     * 用于快速验证, 每种格式 2 个文件, 全部文件不超过几 MB
+     */
+    SMALL(2, 5, 5, 5, 2_000, 10),
+
+    /**
+     * 用于日常性能测试, xlsx 包含一百万个单元格
+     */
+    MEDIUM(5, 50, 40, 30, 100_000, 10),
+
+    /**
+     * 用于压力测试, 大文件的数量和体积接近真实的批量抽取场景, xlsx 包含八百万个单元格
+     */
+    LARGE(10, 400, 200, 150, 400_000, 20);
+
+    /**
+     * 每种格式生成的文件数量
+     */
+    private final int filesPerFormat;
+
+    private final int pdfPages;
+
+    /**
+     * docx 的章节数量, 每个章节包含若干段落、一个表格和一张图片
+     */
+    private final int docxSections;
+
+    private final int pptxSlides;
+
+    private final int xlsxRows;
+
+    private final int xlsxColumns;
+
+    CorpusProfile(int filesPerFormat, int pdfPages, int docxSections, int pptxSlides, int xlsxRows, int xlsxColumns) {
+        this.filesPerFormat = filesPerFormat;
+        this.pdfPages = pdfPages;
+        this.docxSections = docxSections;
+        this.pptxSlides = pptxSlides;
+        this.xlsxRows = xlsxRows;
+        this.xlsxColumns = xlsxColumns;
+    }
+
+    public int getFilesPerFormat() {
+        return filesPerFormat;
+    }
+
+    public int getPdfPages() {
+        return pdfPages;
+    }
+
+    public int getDocxSections() {
+        return docxSections;
+    }
+
+    public int getPptxSlides() {
+        return pptxSlides;
+    }
+
+    public int getXlsxRows() {
+        return xlsxRows;
+    }
+
+    public int getXlsxColumns() {
+        return xlsxColumns;
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.naivekyo.benchmark.corpus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * <p>生成简单的 WMF/EMF 矢量图, POI 和 PDFBox 都无法创建 Windows 图元文件, 因此这里直接按照记录格式写出字节</p>
+ * <p>图片只包含若干个使用实心画刷填充的矩形和椭圆, 足以覆盖抽取过程中的图元文件解析和光栅化</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+final class MetafileWriter {
+
+    /**
+     * 每张图片绘制的图形数量
+     */
+    private static final int SHAPES = 6;
+
+    private MetafileWriter() {
+    }
+
+    /**
+     * 生成带 placeable 头的 WMF 图片, 逻辑坐标单位为 1/1440 英寸
+     * @param random 随机数
+     * @param width 宽度(像素)
+     * @param height 高度(像素)
+     * @return WMF 字节
+     */
+    static byte[] wmf(Random random, int width, int height) {
+        int inch = 1440;
+        short right = (short) (width * inch / 96);
+        short bottom = (short) (height * inch / 96);
+
+        // placeable header 22 字节 + header 18 字节 + 2 条窗口记录 + 每个图形 5 条记录 + EOF
+        int recordWords = 5 + 5 + SHAPES * (7 + 4 + 7 + 4) + 3;
+        int fileWords = 9 + recordWords;
+        ByteBuffer buf = ByteBuffer.allocate(22 + fileWords * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+        // META_PLACEABLE
+        buf.putInt(0x9AC6CDD7);
+        buf.putShort((short) 0);
+        buf.putShort((short) 0).putShort((short) 0).putShort(right).putShort(bottom);
+        buf.putShort((short) inch);
+        buf.putInt(0);
+        short checksum = 0;
+        for (int i = 0; i < 20; i += 2) {
+            checksum ^= buf.getShort(i);
+        }
+        buf.putShort(checksum);
+
+        // META_HEADER
+        buf.putShort((short) 1).putShort((short) 9).putShort((short) 0x0300);
+        buf.putInt(fileWords);
+        buf.putShort((short) 1);
+        buf.putInt(7);
+        buf.putShort((short) 0);
+
+        wmfRecord(buf, 0x020B, 0, 0);
+        wmfRecord(buf, 0x020C, bottom, right);
+        for (int i = 0; i < SHAPES; i++) {
+            // META_CREATEBRUSHINDIRECT: BS_SOLID + COLORREF + hatch
+            buf.putInt(7).putShort((short) 0x02FC);
+            buf.putShort((short) 0).putInt(random.nextInt(0xFFFFFF)).putShort((short) 0);
+            wmfRecord(buf, 0x012D, 0);
+            int left = random.nextInt(right / 2);
+            int top = random.nextInt(bottom / 2);
+            int r = left + right / 4 + random.nextInt(right / 4);
+            int b = top + bottom / 4 + random.nextInt(bottom / 4);
+            // META_RECTANGLE / META_ELLIPSE 参数顺序: bottom, right, top, left
+            wmfRecord(buf, i % 2 == 0 ? 0x041B : 0x0418, b, r, top, left);
+            wmfRecord(buf, 0x01F0, 0);
+        }
+        wmfRecord(buf, 0x0000);
+        return buf.array();
+    }
+
+    private static void wmfRecord(ByteBuffer buf, int function, int... params) {
+        buf.putInt(3 + params.length);
+        buf.putShort((short) function);
+        for (int param : params) {
+            buf.putShort((short) param);
+        }
+    }
+
+    /**
+     * 生成 EMF 图片, 逻辑坐标单位为像素
+     * @param random 随机数
+     * @param width 宽度(像素)
+     * @param height 高度(像素)
+     * @return EMF 字节
+     */
+    static byte[] emf(Random random, int width, int height) {
+        // header 88 字节 + 每个图形 4 条记录 + EOF 20 字节
+        int records = 1 + SHAPES * 4 + 1;
+        int size = 88 + SHAPES * (24 + 12 + 24 + 12) + 20;
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        // EMR_HEADER, 参考设备为 96 dpi: 1 像素 = 26.4583 个 0.01 毫米
+        buf.putInt(1).putInt(88);
+        buf.putInt(0).putInt(0).putInt(width - 1).putInt(height - 1);
+        buf.putInt(0).putInt(0).putInt(width * 2646 / 100).putInt(height * 2646 / 100);
+        buf.putInt(0x464D4520);
+        buf.putInt(0x10000);
+        buf.putInt(size);
+        buf.putInt(records);
+        buf.putShort((short) 2).putShort((short) 0);
+        buf.putInt(0).putInt(0).putInt(0);
+        buf.putInt(1920).putInt(1080);
+        buf.putInt(508).putInt(286);
+
+        for (int i = 0; i < SHAPES; i++) {
+            // EMR_CREATEBRUSHINDIRECT: ihBrush + LOGBRUSH(BS_SOLID, COLORREF, hatch)
+            buf.putInt(39).putInt(24).putInt(1).putInt(0).putInt(random.nextInt(0xFFFFFF)).putInt(0);
+            // EMR_SELECTOBJECT
+            buf.putInt(37).putInt(12).putInt(1);
+            int left = random.nextInt(width / 2);
+            int top = random.nextInt(height / 2);
+            int right = left + width / 4 + random.nextInt(width / 4);
+            int bottom = top + height / 4 + random.nextInt(height / 4);
+            // EMR_RECTANGLE / EMR_ELLIPSE
+            buf.putInt(i % 2 == 0 ? 43 : 42).putInt(24).putInt(left).putInt(top).putInt(right).putInt(bottom);
+            // EMR_DELETEOBJECT
+            buf.putInt(40).putInt(12).putInt(1);
+        }
+        // EMR_EOF
+        buf.putInt(14).putInt(20).putInt(0).putInt(16).putInt(20);
+        return buf.array();
+    }
+
+}
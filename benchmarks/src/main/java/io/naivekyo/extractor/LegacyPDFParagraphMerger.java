@@ -0,0 +1,324 @@
+package io.naivekyo.extractor;
+
+import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.DocumentParagraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.naivekyo.extractor.ExtractHelper.EMPTY_STRING;
+
+/**
+ * 改写之前的 {@link PDFParagraphMerger} 实现, 只用于 {@link ParagraphMergeBenchmark} 对比改写前后的吞吐量和分配量, 不要在其他地方使用 <br/>
+ * 每页使用正则拆分文本片段, 每次查找语句结束符都遍历整个字符串, 页面最后一个片段需要重新拼接当前页已有的段落 <br/>
+ * <b>not thread-safe</b>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+class LegacyPDFParagraphMerger {
+
+    /**
+     * 文档总页数
+     */
+    private final int pageNum;
+
+    /**
+     * 文本段落字数阈值
+     */
+    private final int threshold;
+
+    /**
+     * 合并得到的所有段落, 文档没有页面时为 null
+     */
+    private final List<DocumentParagraph> paragraphs;
+
+    /**
+     * 每页的最后一个文本片段
+     */
+    private String lastSegment = EMPTY_STRING;
+
+    /**
+     * 0 表示无需处理; <br/>
+     * 1 表示当前页的最后一个文本片段拼接到下一页第一个文本片段前; <br/>
+     * 2 表示当前页的最后一个文本片段需要拼接到前一个片段后, 同时追加下一页的第一个文本片段; <br/>
+     * 3 表示上一个片段被截断了, 需要将剩下的部分填充到下一个片段的开头
+     */
+    private int joinFlag = 0;
+
+    LegacyPDFParagraphMerger(int pageNum, int threshold) {
+        this.pageNum = pageNum;
+        this.threshold = threshold;
+        this.paragraphs = pageNum > 0 ? new ArrayList<>(pageNum * 3 >> 1 + pageNum * 3) : null;
+    }
+
+    /**
+     * 合并下一页的文本, 必须按照页码顺序调用
+     * @param i 页码下标, 0-base
+     * @param pageFullText 当前页面的全文
+     */
+    void mergePage(int i, String pageFullText) {
+        if (ContentHelper.hasText(pageFullText)) {
+            // 全文根据换行符拆分为多个文本片段
+            String[] split = pageFullText.trim().split(ContentHelper.SYSTEM_NEW_LINE_SYMBOL);
+            List<String> cleanTexts = Arrays.stream(split).filter(t -> {
+                boolean equals = EMPTY_STRING.equals(t.trim());
+                return !equals;
+            }).collect(Collectors.toList());
+
+            // 开始处理当前页面中的所有文本片段
+            if (!cleanTexts.isEmpty()) {
+                StringBuilder tmp = new StringBuilder();
+                int p = 1;
+                // 当前页面第一段文本需要追加上一页的最后一段文本
+                if (joinFlag == 1) {
+                    tmp.append(lastSegment);
+                    lastSegment = EMPTY_STRING;
+                }
+                for (int j = 0; j < cleanTexts.size(); j++) {
+                    String segment = cleanTexts.get(j);
+                    if (segment != null && !EMPTY_STRING.equals(segment)) {
+                        if (j == cleanTexts.size() - 1) {   // 每个页面的最后一段文本
+                            if (cleanTexts.size() == 1) {   // 当前页面只有一个文本片段时
+                                tmp.append(segment);
+                                paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                tmp = new StringBuilder();
+                                joinFlag = 0;
+                                lastSegment = EMPTY_STRING;
+                            } else {
+                                if (i != pageNum - 1) {
+                                    // 非最后一页的其他页面的最后一个文本片段
+                                    // 如果当前页面全文都没有文本终止符, 则不做任何处理, 保存当前文本即可
+                                    if (joinFlag == 3)
+                                        tmp.append(lastSegment);
+                                    String tt = tmp.toString();
+                                    StringBuilder full = null;
+                                    if (!paragraphs.isEmpty()) {
+                                        full = new StringBuilder();
+                                        for (int i1 = paragraphs.size() - 1; i1 >= 0; i1--) {
+                                            DocumentParagraph p1 = paragraphs.get(i1);
+                                            Integer pn = p1.getPagination();
+                                            if (pn == i + 1) {
+                                                full.append(p1.getContent());
+                                            } else
+                                                break;
+                                        }
+                                        full.append(tt);
+                                    }
+                                    int tmpI = -1;
+                                    if (full != null)
+                                        tmpI = lastEndpoint(full.toString());
+                                    else
+                                        tmpI = lastEndpoint(tt);
+                                    if (tmpI == -1) {
+                                        // 当前页面全文没有一个完整的句子, 则无需考虑最后一段的情况
+                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tt + segment));
+                                        tmp = new StringBuilder();
+                                        joinFlag = 0;
+                                        lastSegment = EMPTY_STRING;
+                                        continue;
+                                    }
+                                    // 考虑 tmp 为空的情况
+                                    char curLast = segment.charAt(segment.length() - 1);
+                                    boolean curFlag = runEndpointMatch(curLast);
+                                    if (tmp.length() == 0) {
+                                        // 当前页面最后一段, 但是 tmp 是空的, 可能是字数原因新开了一个段落
+                                        DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                                        String lastParagraph = lastParagraphObj.getContent();
+                                        char preLast = lastParagraph.charAt(lastParagraph.length() - 1);
+                                        boolean preFlag = runEndpointMatch(preLast);
+                                        if (!preFlag && !curFlag) {
+                                            // 上一段和当前段的结束都不是语句结束符, 合并当前段和上一段以及下一页的第一段
+                                            lastParagraphObj.setContent(lastParagraphObj.getContent() + segment);
+                                            joinFlag = 2;
+                                        }
+                                        if (preFlag && !curFlag) {
+                                            // 上一段结束了, 但是当前段还未结束, 当前段拼接下一页的第一段
+                                            lastSegment = segment;
+                                            joinFlag = 1;
+                                        }
+                                        if (!preFlag && curFlag || preFlag && curFlag) {
+                                            // 场景 1：上一段未结束, 当前段结束, 则合并到上一段
+                                            // 场景 2：两段都结束了, 也合并到上一段中
+                                            lastParagraphObj.setContent(lastParagraphObj.getContent() + segment);
+                                            joinFlag = 0;
+                                        }
+                                    } else {
+                                        char preLast = tmp.charAt(tmp.length() - 1);
+                                        boolean preFlag = runEndpointMatch(preLast);
+                                        if (!preFlag && !curFlag) {
+                                            // 上一段和当前段的结束都不是语句结束符, 合并当前段和上一段以及下一页的第一段
+                                            tmp.append(segment);
+                                            paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                            joinFlag = 2;
+                                        }
+                                        if (preFlag && !curFlag) {
+                                            // 上一段结束了, 但是当前段还未结束, 当前段拼接下一页的第一段
+                                            paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                            lastSegment = segment;
+                                            joinFlag = 1;
+                                        }
+                                        if (!preFlag && curFlag || preFlag && curFlag) {
+                                            // 场景 1：上一段未结束, 当前段结束, 则合并到上一段
+                                            // 场景 2：两段都结束了, 也合并到上一段中
+                                            tmp.append(segment);
+                                            paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                            joinFlag = 0;
+                                        }
+                                        tmp = new StringBuilder();
+                                    }
+                                } else {
+                                    // 最后一页的最后一个段落
+                                    tmp.append(segment);
+                                    paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                }
+                            }
+                        } else {
+                            // 正在处理当前页面第一个文本片段, 同时需要将第一个文本片段追加到上一个文本段落中
+                            if (j == 0 && joinFlag == 2) {  // joinFlag = 2 时 tmp 一定是空的
+                                DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                                if (lastParagraphObj != null) {
+                                    String preParagraph = lastParagraphObj.getContent();
+                                    int idx = lastEndpoint(segment);
+                                    if (idx == -1) {
+                                        // 继续向下寻找可以截断的文本
+                                        StringBuilder sb = new StringBuilder(preParagraph);
+                                        sb.append(segment);
+                                        int k = j + 1;
+                                        for (; k < cleanTexts.size() - 1; k++) {
+                                            String s = cleanTexts.get(k);
+                                            int x = lastEndpoint(s);
+                                            if (x != -1) {
+                                                String pre = s.substring(0, x + 1);
+                                                String last = s.substring(x + 1);
+                                                sb.append(pre);
+                                                joinFlag = 3;
+                                                lastSegment = last;
+                                                j = k;
+                                                preParagraph = sb.toString();
+                                                break;
+                                            } else {
+                                                sb.append(s);
+                                            }
+                                        }
+                                        if (k == cleanTexts.size() - 1) {
+                                            j = k - 1;
+                                            preParagraph = sb.toString();
+                                            joinFlag = 0;
+                                        }
+                                    } else {
+                                        String pre = segment.substring(0, idx + 1);
+                                        String last = segment.substring(idx + 1);
+                                        preParagraph += pre;
+                                        joinFlag = 3;
+                                        lastSegment = last;
+                                    }
+                                    lastParagraphObj.setContent(preParagraph);
+                                }
+                            } else {
+                                // 处理常规文本片段, 持续拼接片段直到超过阈值
+                                if (joinFlag == 3) {
+                                    tmp.append(lastSegment);
+                                    // len += lastSegment.length();
+                                    lastSegment = EMPTY_STRING;
+                                    joinFlag = 0;
+                                }
+                                tmp.append(segment);
+                                if (tmp.length() >= threshold) {
+                                    String paragraph = tmp.toString();
+                                    tmp = new StringBuilder();
+                                    int idx = lastEndpoint(paragraph);
+                                    if (idx != -1) {
+                                        String pre = paragraph.substring(0, idx + 1);
+                                        String last = paragraph.substring(idx + 1);
+                                        paragraphs.add(new DocumentParagraph(i + 1, p++, pre));
+                                        lastSegment = last;
+                                        joinFlag = 3;
+                                    } else {
+                                        // 继续寻找下一个句子休止的地方
+                                        int k = j + 1;
+                                        StringBuilder sb = new StringBuilder(paragraph);
+                                        for (; k < cleanTexts.size() - 1; k++) {
+                                            String s = cleanTexts.get(k);
+                                            int x = lastEndpoint(s);
+                                            if (x != -1) {
+                                                // 找到后就保存
+                                                String pre = s.substring(0, x + 1);
+                                                String last = s.substring(x + 1);
+                                                sb.append(pre);
+                                                joinFlag = 3;
+                                                lastSegment = last;
+                                                j = k;
+                                                paragraph = sb.toString();
+                                                break;
+                                            } else
+                                                sb.append(s);
+                                        }
+                                        if (k == cleanTexts.size() - 1) {
+                                            j = k - 1;
+                                            paragraph = sb.toString();
+                                            joinFlag = 0;
+                                            lastSegment = EMPTY_STRING;
+                                        }
+                                        paragraphs.add(new DocumentParagraph(i + 1, p++, paragraph));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            } else {
+                // 没有实际的内容, 也需要还原备份
+                if (joinFlag == 1 && !EMPTY_STRING.equals(lastSegment)) {
+                    DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                    if (lastParagraphObj != null) {
+                        lastParagraphObj.setContent(lastParagraphObj.getContent() + lastSegment);
+                        lastSegment = EMPTY_STRING;
+                    }
+                }
+            }
+        } else {
+            // 当前页面没有抽取到文本, 则把前一页备份的最后一个文本片段还原
+            if (!paragraphs.isEmpty() && joinFlag == 1 && !EMPTY_STRING.equals(lastSegment)) {
+                DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                if (lastParagraphObj != null) {
+                    lastParagraphObj.setContent(lastParagraphObj.getContent() + lastSegment);
+                    lastSegment = EMPTY_STRING;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取合并后的段落集合
+     * @return 所有段落, 文档没有页面时返回 null
+     */
+    List<DocumentParagraph> getParagraphs() {
+        return paragraphs;
+    }
+
+    /**
+     * 找到指定文本中最后一个语句休止符的下标, 未找到则返回 -1
+     * @param text 目标字符串
+     * @return 下标 0-base, 未找到则返回 -1
+     */
+    private static int lastEndpoint(String text) {
+        int idx = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (runEndpointMatch(text.charAt(i))) {
+                idx = i;
+            }
+        }
+        return idx;
+    }
+
+    private static boolean runEndpointMatch(char c) {
+        for (char s : ExtractHelper.SENTENCE_ENDPOINTS) {
+            if (s == c)
+                return true;
+        }
+        return false;
+    }
+
+}
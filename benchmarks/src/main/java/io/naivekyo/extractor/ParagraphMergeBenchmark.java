@@ -0,0 +1,81 @@
+package io.naivekyo.extractor;
+
+import io.naivekyo.benchmark.Fixtures;
+import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.DocumentParagraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PDFParagraphMerger} 段落合并的吞吐量和延迟, 不包括 pdf 文本抽取. <br/>
+ * 合并器是包内可见的, 因此基准测试放在同名的包中. 使用 -prof gc 查看每次合并的分配量 <br/>
+ * {@link #implementation} 为 legacy 时使用改写之前的实现 {@link LegacyPDFParagraphMerger}, 用于对比改写前后的差异
+ * @author NaiveKyo
+ * @since 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParagraphMergeBenchmark {
+
+    @Param({"10", "100"})
+    public int pages;
+
+    /**
+     * 每页包含的句子数量, 句子越多页面越大
+     */
+    @Param({"50", "2000"})
+    public int sentencesPerPage;
+
+    @Param({"500", "5000"})
+    public int threshold;
+
+    /**
+     * current: {@link PDFParagraphMerger}, legacy: {@link LegacyPDFParagraphMerger}
+     */
+    @Param({"current", "legacy"})
+    public String implementation;
+
+    private String[] pageTexts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pageTexts = new String[pages];
+        for (int i = 0; i < pages; i++) {
+            pageTexts[i] = Fixtures.text(sentencesPerPage, i).replace("\n", ContentHelper.SYSTEM_NEW_LINE_SYMBOL);
+        }
+    }
+
+    @Benchmark
+    public List<DocumentParagraph> merge() {
+        if ("legacy".equals(implementation)) {
+            LegacyPDFParagraphMerger merger = new LegacyPDFParagraphMerger(pages, threshold);
+            for (int i = 0; i < pages; i++) {
+                merger.mergePage(i, pageTexts[i]);
+            }
+            return merger.getParagraphs();
+        }
+        PDFParagraphMerger merger = new PDFParagraphMerger(pages, threshold);
+        for (int i = 0; i < pages; i++) {
+            merger.mergePage(i, pageTexts[i]);
+        }
+        return merger.getParagraphs();
+    }
+
+}
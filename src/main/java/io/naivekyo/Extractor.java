@@ -1,7 +1,11 @@
 package io.naivekyo;
 
+import io.naivekyo.batch.BatchExtractor;
+import io.naivekyo.batch.BatchManifest;
 import io.naivekyo.content.DocumentParagraph;
 import io.naivekyo.extractor.ExtractHelper;
+import io.naivekyo.server.ExtractionServer;
+import io.naivekyo.support.cache.ExtractionCache;
 import io.naivekyo.util.IOUtils;
 import io.naivekyo.util.TikaFacadeUtil;
 
@@ -12,7 +16,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -22,15 +28,34 @@ import java.util.stream.Collectors;
  */
 public class Extractor {
     
-    private static final String[] OPTIONS = { "-h", "-s", "-b" };
+    private static final String[] OPTIONS = { "-h", "-s", "-b", "-d" };
+
+    /**
+     * 抽取结果缓存的默认大小上限: 1 GB
+     */
+    private static final long DEFAULT_CACHE_SIZE_MB = 1024;
+
+    /**
+     * 监听模式默认的去抖时间, 毫秒
+     */
+    private static final long DEFAULT_WATCH_QUIET_MILLIS = 2000;
     
     /**
      * args0: options <br/> 
      * -s 标准模式用于单个文件抽取 <br/>
      * -b 批量模式用于抽取特定目录下的所有文件内容 <br/>
+     * -d 服务模式, 常驻进程并通过本机 http 接口接收抽取请求 <br/>
      * 
      * args1: 输入文件路径
      * args2: 输出文件路径
+     * args3: (可选) 批量模式的工作线程数量, 默认为 1 <br/>
+     * 
+     * -b/-d 支持的可选参数: --cache [dir] 抽取结果缓存目录, --cache-size [MB] 缓存大小上限 <br/>
+     * -b 支持的可选参数: --resume 续跑上一次被中断的批量抽取, --incremental 只抽取新增和变化的文件, --delete-removed 删除已不存在的输入文件的输出,
+     * --watch [ms] 常驻监听输入目录, 文件写入完成(指定时间内没有变化)后立即抽取,
+     * --include [globs] --exclude [globs] 逗号分隔的 glob 规则, --discovery-threads [n] 遍历目录的线程数量,
+     * --memory-budget [MB] 同时抽取的文件的估算内存占用上限 <br/>
+     * -d 支持的可选参数: --root [dir] 允许通过 path 参数抽取的目录, --max-request [MB] 上传的文档大小上限
      * @param args 参数
      */
     public static void main(String[] args) {
@@ -56,126 +81,189 @@ public class Extractor {
                     }
                     break;
                 case "-b":
-                    if (args.length == 3)
-                        extractAllFilesInDirectory(args[1], args[2]);
-                    else {
-                        if (args.length <= 2)
-                            System.out.println("-b option must work with two arguments: input and output directory. note directory name can't contains white space.");
-                        if (args.length > 3)
-                            System.out.println("-b option only need two arguments but get three. note directory name can't contains white space.");
-                    }
+                case "-d":
+                    List<String> positional = new ArrayList<>();
+                    Map<String, String> flags = new HashMap<>();
+                    if (!splitArguments(args, positional, flags))
+                        break;
+                    if ("-b".equals(op))
+                        runBatchMode(positional, flags);
+                    else
+                        runServerMode(positional, flags);
                     break;
                 default:
-                    System.out.println("invalid option, please type one of [-h|-s|-b].");
+                    System.out.println("invalid option, please type one of [-h|-s|-b|-d].");
             }
         } else {
-            System.out.println("invalid option, please type one of [-h|-s|-b].");
+            System.out.println("invalid option, please type one of [-h|-s|-b|-d].");
         }
     }
 
-    private static void extractAllFilesInDirectory(String inputDir, String outputDir) {
-        List<Path> regularFiles = null;
-        Path in = null;
-        Path out = null;
-        try {
-            in = Paths.get(inputDir);
-            out = Paths.get(outputDir);
-            if (!Files.isDirectory(in)) {
-                System.out.println("argument: " + inputDir + " is not a directory");
-                return;
+    private static void runBatchMode(List<String> positional, Map<String, String> flags) {
+        if (positional.size() == 2 || positional.size() == 3)
+            extractAllFilesInDirectory(positional.get(0), positional.get(1), positional.size() == 3 ? positional.get(2) : null, flags);
+        else {
+            if (positional.size() < 2)
+                System.out.println("-b option must work with two arguments: input and output directory. note directory name can't contains white space.");
+            if (positional.size() > 3)
+                System.out.println("-b option only need at most three arguments: input directory, output directory and thread number. note directory name can't contains white space.");
+        }
+    }
+
+    private static void runServerMode(List<String> positional, Map<String, String> flags) {
+        if (positional.size() <= 2)
+            startServer(positional.size() >= 1 ? positional.get(0) : null, positional.size() == 2 ? positional.get(1) : null, flags);
+        else
+            System.out.println("-d option only need at most two arguments: port and concurrency.");
+    }
+
+    /**
+     * 将 args[1..] 拆分为位置参数和 --name value 形式的可选参数
+     * @return 参数格式是否正确
+     */
+    private static boolean splitArguments(String[] args, List<String> positional, Map<String, String> flags) {
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--")) {
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    flags.put(arg.substring(2), args[++i]);
+                } else {
+                    // 没有值的参数视为开关
+                    flags.put(arg.substring(2), "true");
+                }
+            } else if (!flags.isEmpty()) {
+                System.out.println("positional argument: " + arg + " must be placed before optional arguments.");
+                return false;
+            } else {
+                positional.add(arg);
             }
-            if (!Files.isDirectory(out)) {
-                System.out.println("argument: " + outputDir + " is not a directory");
-                return;
+        }
+        return true;
+    }
+
+    /**
+     * 根据 --cache [dir] --cache-size [MB] 创建抽取结果缓存
+     * @return 缓存实例, 没有指定缓存目录时返回 null
+     */
+    private static ExtractionCache createCache(Map<String, String> flags) throws IOException {
+        String dir = flags.get("cache");
+        if (dir == null)
+            return null;
+        long sizeMB = DEFAULT_CACHE_SIZE_MB;
+        if (flags.containsKey("cache-size"))
+            sizeMB = Long.parseLong(flags.get("cache-size"));
+        return new ExtractionCache(Paths.get(dir), sizeMB * 1024 * 1024);
+    }
+
+    /**
+     * 按照逗号拆分 glob 规则, 花括号内的逗号属于规则本身, 例如 *.{doc,docx}
+     */
+    private static List<String> splitGlobs(String value) {
+        List<String> globs = new ArrayList<>();
+        if (value == null)
+            return globs;
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '{')
+                depth++;
+            else if (c == '}' && depth > 0)
+                depth--;
+            else if (c == ',' && depth == 0) {
+                if (i > start)
+                    globs.add(value.substring(start, i).trim());
+                start = i + 1;
             }
-            // recursive walk
-            regularFiles = new ArrayList<>();
-            walkDirectory(regularFiles, in);
+        }
+        if (start < value.length())
+            globs.add(value.substring(start).trim());
+        return globs;
+    }
+
+    private static void startServer(String portArg, String concurrencyArg, Map<String, String> flags) {
+        int port = ExtractionServer.DEFAULT_PORT;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        try {
+            if (portArg != null)
+                port = Integer.parseInt(portArg);
+            if (concurrencyArg != null)
+                concurrency = Integer.parseInt(concurrencyArg);
+        } catch (NumberFormatException e) {
+            System.out.println("argument: " + e.getMessage() + " is not a valid number");
+            return;
+        }
+        if (port < 0 || port > 65535 || concurrency <= 0) {
+            System.out.println("invalid port or concurrency: " + port + ", " + concurrency);
+            return;
+        }
+        try {
+            ExtractionServer server = new ExtractionServer(port, concurrency, createCache(flags));
+            if (flags.containsKey("root"))
+                server.setRootDirectory(Paths.get(flags.get("root")));
+            if (flags.containsKey("max-request"))
+                server.setMaxRequestBytes(Long.parseLong(flags.get("max-request")) * 1024 * 1024);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            server.start();
+            System.out.println("extraction server started at http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/extract");
         } catch (Exception e) {
             e.printStackTrace();
         }
-        if (regularFiles != null) {
-            if (regularFiles.isEmpty()) {
-                System.out.println("can't find any document file in this folder: " + inputDir);
+    }
+
+    private static void extractAllFilesInDirectory(String inputDir, String outputDir, String threadNum, Map<String, String> flags) {
+        Path in = Paths.get(inputDir);
+        Path out = Paths.get(outputDir);
+        if (!Files.isDirectory(in)) {
+            System.out.println("argument: " + inputDir + " is not a directory");
+            return;
+        }
+        if (!Files.isDirectory(out)) {
+            System.out.println("argument: " + outputDir + " is not a directory");
+            return;
+        }
+        int threads = 1;
+        if (threadNum != null) {
+            try {
+                threads = Integer.parseInt(threadNum);
+            } catch (NumberFormatException e) {
+                threads = -1;
+            }
+            if (threads <= 0) {
+                System.out.println("argument: " + threadNum + " is not a valid thread number");
                 return;
-            } else {
-                System.out.println("detect regular file number: " + regularFiles.size());
             }
-            int s = 0;
-            int f = 0;
-            for (int i = 0; i < regularFiles.size(); i++) {
-                Path path = regularFiles.get(i);
-                boolean process = true;
-                String tip = null;
-                BufferedInputStream bis = null;
-                try {
-                    bis = new BufferedInputStream(Files.newInputStream(path));
-                    String media = TikaFacadeUtil.detectFileMediaType(bis);
-                    List<DocumentParagraph> paragraphs = null;
-                    if (TikaFacadeUtil.isPdf(media)) {
-                        paragraphs = ExtractHelper.pdfTextExtract2Paragraphs(bis);
-                    } else if (TikaFacadeUtil.isOLE2Word(media)) {
-                        paragraphs = ExtractHelper.wordDocTextExtract2Paragraphs(bis);
-                    } else if (TikaFacadeUtil.isOOXMLWord(media)) {
-                        paragraphs = ExtractHelper.wordDocxTextExtract2Paragraphs(bis);
-                    } else {
-                        process = false;
-                        tip = "no support file, name: " + path.getFileName().toString() + ", media type: " + media;
-                    }
-                    if (paragraphs == null || paragraphs.isEmpty()) {
-                        process = false;
-                        tip = "cant extract any text content from " + path.getFileName().toString();
-                    } else {
-                        List<String> textContents = paragraphs.stream().map(DocumentParagraph::getContent).collect(Collectors.toList());
-                        String originName = path.getFileName().toString();
-                        String prefix = null;
-                        if (originName.contains(".")) {
-                            Pattern pat = Pattern.compile("^(.*)?\\..*$");
-                            Matcher mat = pat.matcher(originName);
-                            if (mat.matches()) {
-                                prefix = mat.group(1);
-                            } else {
-                                process = false;
-                                tip = "can't extract file name. origin name: " + originName;
-                            }
-                        } else
-                            prefix = originName;
-                        if (process) {
-                            String output = out.normalize() + System.getProperty("file.separator") + prefix + ".txt";
-                            IOUtils.writeToTxtFile(new File(output),
-                                    textContents);
-                        }
-                    }
-                } catch (Exception e) {
-                    process = false;
-                    e.printStackTrace();
-                    tip = e.getMessage();
-                } finally {
+        }
+        try {
+            BatchExtractor batch = new BatchExtractor(in, out, threads);
+            batch.setCache(createCache(flags));
+            batch.setResume(flags.containsKey("resume"));
+            batch.setIncremental(flags.containsKey("incremental"));
+            batch.setDeleteRemoved(flags.containsKey("delete-removed"));
+            batch.setIncludes(splitGlobs(flags.get("include")));
+            batch.setExcludes(splitGlobs(flags.get("exclude")));
+            if (flags.containsKey("discovery-threads"))
+                batch.setDiscoveryThreads(Integer.parseInt(flags.get("discovery-threads")));
+            if (flags.containsKey("memory-budget"))
+                batch.setMemoryBudget(Long.parseLong(flags.get("memory-budget")) * 1024 * 1024);
+            if (flags.containsKey("watch")) {
+                String quiet = flags.get("watch");
+                long quietMillis = "true".equals(quiet) ? DEFAULT_WATCH_QUIET_MILLIS : Long.parseLong(quiet);
+                Thread main = Thread.currentThread();
+                // Ctrl+C 时停止监听, 并等待正在抽取的文件处理完毕
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    batch.stop();
                     try {
-                        if (bis != null)
-                            bis.close();
-                    } catch (IOException e) {
-                        process = false;
-                        tip = e.getMessage();
+                        main.join();
+                    } catch (InterruptedException ignored) {
                     }
-                }
-                System.out.printf("progress: [%d/%d], file name: %s, %s%n", (i + 1), regularFiles.size(), 
-                        path.getFileName().toString(), process ? "success" : "failure, tip: " + tip);
-                if (process) s++;
-                else f++;
-            }
-            System.out.printf("work is completed. total: %d, success: %d, failure: %d%n", regularFiles.size(), s, f);
-        }
-    }
-
-    private static void walkDirectory(List<Path> bucket, Path dir) throws IOException {
-        for (Path path : Files.newDirectoryStream(dir)) {
-            if (Files.isRegularFile(path))
-                bucket.add(path);
-            else {
-                if (Files.isDirectory(path))
-                    walkDirectory(bucket, path);
+                }, "extract-watch-shutdown"));
+                batch.watch(quietMillis);
+            } else {
+                batch.run();
             }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
     }
 
@@ -243,8 +331,20 @@ public class Extractor {
         System.out.printf("%5s\tGain some help information for extractor tool.%n", "-h");
         System.out.printf("%5s\t%-60s\tExtract the text content of the input file and write it to a TXT file in the output directory.%n", "-s", "[input file] [output dir]");
         System.out.printf("%5s\t%-60s\te.g. extractor.exe -s C:\\file.pdf D:\\dir%n", "", "");
-        System.out.printf("%5s\t%-60s\tExtracts the text content of all files in the source directory and writes it to the target directory.%n", "-b", "[source directory] [target directory]");
-        System.out.printf("%5s\t%-60s\te.g. extractor.exe -b C:\\dir1 D:\\dir2%n", "", "");
+        System.out.printf("%5s\t%-60s\tExtracts the text content of all files in the source directory and writes it to the target directory.%n", "-b", "[source directory] [target directory] [thread number]");
+        System.out.printf("%5s\t%-60s\tthread number is optional (default 1), files are extracted concurrently by a bounded worker pool.%n", "", "");
+        System.out.printf("%5s\t%-60s\te.g. extractor.exe -b C:\\dir1 D:\\dir2 8%n", "", "");
+        System.out.printf("%5s\t%-60s\tStart a resident extraction server on localhost, port default %d, concurrency default cpu cores.%n", "-d", "[port] [concurrency]", ExtractionServer.DEFAULT_PORT);
+        System.out.printf("%5s\t%-60s\tPOST /extract with the document as body, or /extract?path=C:\\file.pdf, responds one paragraph per line.%n", "", "");
+        System.out.printf("%5s\t%-60s\tOptional for -d: directory readable through the path parameter (disabled by default), upload size limit default %d MB.%n", "", "--root [dir] --max-request [MB]", ExtractionServer.DEFAULT_MAX_REQUEST_BYTES / 1024 / 1024);
+        System.out.printf("%5s\t%-60s\te.g. extractor.exe -d 8686 4%n", "", "");
+        System.out.printf("%5s\t%-60s\tOptional for -b and -d: cache extraction results by content hash, size default %d MB, least recently used entries are evicted.%n", "", "--cache [dir] --cache-size [MB]", DEFAULT_CACHE_SIZE_MB);
+        System.out.printf("%5s\t%-60s\tOptional for -b: skip files completed by the previous run recorded in %s of the target directory.%n", "", "--resume", BatchManifest.FILE_NAME);
+        System.out.printf("%5s\t%-60s\tOptional for -b: only extract new or changed files, with --delete-removed the outputs of removed files are deleted.%n", "", "--incremental [--delete-removed]");
+        System.out.printf("%5s\t%-60s\tOptional for -b: keep watching the source directory and extract files once they stop changing, quiet period default %d ms.%n", "", "--watch [ms]", DEFAULT_WATCH_QUIET_MILLIS);
+        System.out.printf("%5s\t%-60s\tOptional for -b: comma separated glob filters, a glob without / matches the file name, e.g. --include \"*.{pdf,docx}\" --exclude \".*\".%n", "", "--include [globs] --exclude [globs]");
+        System.out.printf("%5s\t%-60s\tOptional for -b: number of threads listing directories in parallel, default %d.%n", "", "--discovery-threads [n]", BatchExtractor.DEFAULT_DISCOVERY_THREADS);
+        System.out.printf("%5s\t%-60s\tOptional for -b: heap budget for files extracted at the same time, estimated from format and size, default %d%% of max heap.%n", "", "--memory-budget [MB]", (int) (BatchExtractor.DEFAULT_MEMORY_BUDGET_RATIO * 100));
     }
 
     private static boolean checkOptions(String op) {
@@ -0,0 +1,581 @@
+package io.naivekyo.batch;
+
+import io.naivekyo.support.cache.ExtractionCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量抽取: 使用固定大小的工作线程池并发抽取目录下所有文件的文本内容 <br/>
+ * 已提交但未执行的任务数量受限于 {@link #queueCapacity}, 避免一次性堆积大量任务 <br/>
+ * 同时抽取的文件还受限于 {@link MemoryBudget}: 大文件放不下时暂缓提交, 由后面的小文件填满剩余的预算 <br/>
+ * 每个文件的处理状态记录在输出目录下的 {@link BatchManifest} 中, 中断后可以通过 {@link #setResume(boolean)} 续跑,
+ * 定期重新扫描同一个目录时可以通过 {@link #setIncremental(boolean)} 只抽取新增和变化的文件,
+ * 或者通过 {@link #watch(long)} 常驻监听目录, 文件写入完成后立即抽取
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class BatchExtractor {
+
+    /**
+     * 默认的目录遍历线程数量
+     */
+    public static final int DEFAULT_DISCOVERY_THREADS = 4;
+
+    /**
+     * 遍历结果队列的容量, 遍历速度快于抽取速度时遍历线程在此阻塞
+     */
+    private static final int DISCOVERY_QUEUE_CAPACITY = 1024;
+
+    /**
+     * 默认的内存预算占最大堆内存的比例, 剩余部分留给缓存、输出以及估算误差
+     */
+    public static final double DEFAULT_MEMORY_BUDGET_RATIO = 0.6;
+
+    /**
+     * 大文件因为内存预算不足而让位于小文件的最长时间, 超过后不再提交其他文件, 等待内存释放
+     */
+    private static final long MAX_DEFER_MILLIS = 2000;
+
+    /**
+     * 有文件等待内存预算时, 等待新文件的轮询间隔
+     */
+    private static final long DEFER_POLL_MILLIS = 50;
+
+    private final Path inputDir;
+
+    private final Path outputDir;
+
+    /**
+     * 工作线程数量
+     */
+    private final int threads;
+
+    /**
+     * 线程池中允许排队等待的任务数量
+     */
+    private final int queueCapacity;
+
+    /**
+     * 进度/统计信息的互斥锁, 保证进度编号与输出顺序一致
+     */
+    private final Object progressLock = new Object();
+
+    /**
+     * 抽取结果缓存, null 表示不使用缓存
+     */
+    private ExtractionCache cache;
+
+    /**
+     * 是否续跑: 跳过任务清单中已经成功的文件
+     */
+    private boolean resume;
+
+    /**
+     * 是否增量抽取: 在续跑的基础上, 内容未变化的失败文件也不再重试
+     */
+    private boolean incremental;
+
+    /**
+     * 增量抽取时是否删除已经不存在的输入文件对应的输出文件
+     */
+    private boolean deleteRemoved;
+
+    private int discoveryThreads = DEFAULT_DISCOVERY_THREADS;
+
+    private List<String> includes;
+
+    private List<String> excludes;
+
+    private MemoryBudget budget = new MemoryBudget((long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_BUDGET_RATIO));
+
+    private BatchManifest manifest;
+
+    /**
+     * 监听模式下的目录监听器, 用于 {@link #stop()}
+     */
+    private volatile DirectoryWatcher watcher;
+
+    private volatile boolean stopped;
+
+    private int completed;
+
+    /**
+     * 已经发现的文件数量, 用于输出进度; 监听模式下文件总数未知, 为 -1
+     */
+    private volatile int discoveredTotal = -1;
+
+    /**
+     * 目录是否已经遍历完成, 完成之前 {@link #discoveredTotal} 只是下限
+     */
+    private volatile boolean discoveryFinished;
+
+    private int success;
+
+    private int failure;
+
+    private int skipped;
+
+    private int removed;
+
+    public BatchExtractor(Path inputDir, Path outputDir, int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("thread number must be positive.");
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.threads = threads;
+        this.queueCapacity = threads * 2;
+    }
+
+    /**
+     * 设置抽取结果缓存, 内容相同的文件只抽取一次
+     * @param cache 抽取结果缓存, null 表示不使用缓存
+     */
+    public void setCache(ExtractionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 设置是否续跑上一次被中断的批量抽取: 输入文件的大小和修改时间与清单中的记录一致(或者内容摘要一致)并且输出文件存在时跳过,
+     * 在抽取过程中被中断了 {@link BatchManifest#MAX_ATTEMPTS} 次的文件视为失败, 同样跳过
+     * @param resume true 表示续跑, false 表示重新开始并清空任务清单
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * 设置是否增量抽取: 清单作为索引保存每个输入文件的大小、修改时间、内容摘要和输出文件, 只有新增或者内容变化的文件会被重新抽取,
+     * 内容未变化的失败文件同样跳过, 适用于定期重新扫描同一个目录
+     * @param incremental true 表示增量抽取
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * 设置增量抽取时是否删除已经不存在的输入文件对应的输出文件, 其他输入文件仍在使用的输出文件会被保留
+     * @param deleteRemoved true 表示删除
+     */
+    public void setDeleteRemoved(boolean deleteRemoved) {
+        this.deleteRemoved = deleteRemoved;
+    }
+
+    /**
+     * 设置遍历目录的线程数量, 目录位于网络文件系统时可以适当调大
+     * @param discoveryThreads 遍历线程数量, 默认为 {@link #DEFAULT_DISCOVERY_THREADS}
+     */
+    public void setDiscoveryThreads(int discoveryThreads) {
+        if (discoveryThreads <= 0)
+            throw new IllegalArgumentException("discovery thread number must be positive.");
+        this.discoveryThreads = discoveryThreads;
+    }
+
+    /**
+     * 设置包含规则(glob), 只抽取匹配任意一条规则的文件; 不含 / 的规则匹配文件名, 否则匹配相对于输入目录的路径
+     * @param includes 包含规则, 为空时抽取所有文件
+     */
+    public void setIncludes(List<String> includes) {
+        this.includes = includes;
+    }
+
+    /**
+     * 设置排除规则(glob), 匹配任意一条规则的文件和目录不再处理; 规则格式同 {@link #setIncludes(List)}
+     * @param excludes 排除规则
+     */
+    public void setExcludes(List<String> excludes) {
+        this.excludes = excludes;
+    }
+
+    /**
+     * 设置抽取时可以使用的堆内存预算, 每个文件按照格式和大小估算内存占用, 估算值之和不超过预算;
+     * 超过整个预算的文件独占预算, 与其他文件串行执行
+     * @param bytes 内存预算, 默认为最大堆内存的 {@link #DEFAULT_MEMORY_BUDGET_RATIO}
+     */
+    public void setMemoryBudget(long bytes) {
+        this.budget = new MemoryBudget(bytes);
+    }
+
+    /**
+     * 执行批量抽取, 阻塞直到所有文件处理完毕 <br/>
+     * 目录由 {@link FileDiscovery} 并行遍历, 边遍历边抽取, 不需要等待整个目录树遍历结束
+     * @throws IOException 读写任务清单时出现的异常
+     * @throws InterruptedException 等待任务结束时被中断
+     */
+    public void run() throws IOException, InterruptedException {
+        manifest = BatchManifest.open(outputDir, resume || incremental);
+        if (resume || incremental)
+            System.out.println((incremental ? "incremental" : "resume") + " from manifest: " + manifest.getFile() + ", recorded file number: " + manifest.getEntries().size());
+        // 删除输出文件时需要知道哪些输入文件仍然存在
+        Set<String> present = incremental && deleteRemoved ? new HashSet<>() : null;
+        int total = 0;
+        discoveredTotal = 0;
+        discoveryFinished = false;
+        int discoveryErrors = 0;
+        System.out.printf("memory budget: %d MB%n", budget.getCapacity() / 1024 / 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+        Semaphore slots = new Semaphore(threads + queueCapacity);
+        // 因为内存预算不足而暂缓提交的文件, 按照发现的顺序排列
+        Deque<Job> waiting = new ArrayDeque<>();
+        try (FileDiscovery discovery = new FileDiscovery(inputDir, outputDir, discoveryThreads, DISCOVERY_QUEUE_CAPACITY, includes, excludes)) {
+            discovery.start();
+            while (true) {
+                Path path = waiting.isEmpty() ? discovery.take() : discovery.poll(DEFER_POLL_MILLIS);
+                if (path == null && discovery.isFinished()) {
+                    discoveryFinished = true;
+                    break;
+                }
+                if (path != null) {
+                    discoveredTotal = ++total;
+                    if (present != null)
+                        present.add(manifestKey(path));
+                    waiting.add(new Job(path, estimate(path)));
+                }
+                dispatch(executor, slots, waiting, null, false);
+            }
+            dispatch(executor, slots, waiting, null, true);
+            discoveryErrors = discovery.getErrors();
+        } finally {
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // 等待剩余任务执行完毕
+            }
+            try {
+                // 目录为空或者部分目录无法读取时(例如网络存储未挂载), 不能据此删除输出文件
+                if (present != null && total > 0 && discoveryErrors == 0)
+                    deleteRemovedOutputs(present);
+            } finally {
+                manifest.close();
+            }
+        }
+        if (total == 0) {
+            System.out.println("can't find any document file in this folder: " + inputDir);
+            return;
+        }
+        System.out.printf("work is completed. total: %d, success: %d, failure: %d, skipped: %d%n", total, success, failure, skipped);
+        if (incremental && deleteRemoved)
+            System.out.printf("removed input file number: %d%n", removed);
+        if (cache != null)
+            System.out.printf("cache hits: %d, misses: %d, size: %d bytes%n", cache.getHits(), cache.getMisses(), cache.getTotalBytes());
+    }
+
+    /**
+     * 按照发现的顺序提交内存预算足够的文件, 放不下的大文件让位于后面的小文件;
+     * 大文件等待过久、等待的文件过多或者遍历已经结束时, 阻塞直到最早的文件可以提交
+     * @param running 正在抽取的文件, 同一个文件不会同时抽取两次; 为 null 时不检查
+     * @param flush 是否提交所有等待中的文件
+     */
+    private void dispatch(ExecutorService executor, Semaphore slots, Deque<Job> waiting, Set<Path> running, boolean flush) throws InterruptedException {
+        while (true) {
+            Job head = null;
+            Iterator<Job> it = waiting.iterator();
+            while (it.hasNext()) {
+                Job job = it.next();
+                if (running != null && running.contains(job.path))
+                    continue;
+                if (budget.tryAcquire(job.cost)) {
+                    it.remove();
+                    submit(executor, slots, job, running);
+                } else if (head == null) {
+                    head = job;
+                }
+            }
+            if (head == null)
+                return;
+            if (!flush && waiting.size() < queueCapacity && System.currentTimeMillis() - head.since < MAX_DEFER_MILLIS)
+                return;
+            // 不再让位, 等待正在抽取的文件释放内存, 避免大文件饿死
+            budget.acquire(head.cost);
+            waiting.remove(head);
+            submit(executor, slots, head, running);
+        }
+    }
+
+    private void submit(ExecutorService executor, Semaphore slots, Job job, Set<Path> running) throws InterruptedException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            budget.release(job.cost);
+            throw e;
+        }
+        if (running != null)
+            running.add(job.path);
+        executor.execute(() -> {
+            try {
+                process(job.path);
+            } finally {
+                if (running != null)
+                    running.remove(job.path);
+                budget.release(job.cost);
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * 文件已经在等待时只更新估算值, 保留原来的等待时间和顺序
+     */
+    private static void enqueue(Deque<Job> waiting, Path path) {
+        for (Job job : waiting) {
+            if (job.path.equals(path)) {
+                job.cost = estimate(path);
+                return;
+            }
+        }
+        waiting.add(new Job(path, estimate(path)));
+    }
+
+    private static long estimate(Path path) {
+        try {
+            return MemoryBudget.estimate(path, Files.size(path));
+        } catch (IOException e) {
+            // 文件已经被删除或者无法访问, 抽取时会记录失败
+            return MemoryBudget.BASE_COST;
+        }
+    }
+
+    /**
+     * 监听模式: 先增量抽取目录中已有的文件, 然后常驻监听目录树, 新增或者修改的文件写入完成(去抖)后交给常驻的工作线程池抽取,
+     * 每个文件抽取完成后立即写出结果; 阻塞直到 {@link #stop()} 被调用或者线程被中断 <br/>
+     * 监听模式总是使用增量抽取, 重启后不会重复抽取未变化的文件
+     * @param quietMillis 文件在多长时间内没有变化时认为写入完成, 毫秒
+     * @throws IOException 注册目录或者读写任务清单时出现的异常
+     * @throws InterruptedException 等待时被中断
+     */
+    public void watch(long quietMillis) throws IOException, InterruptedException {
+        incremental = true;
+        discoveredTotal = -1;
+        manifest = BatchManifest.open(outputDir, true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+        Semaphore slots = new Semaphore(threads + queueCapacity);
+        // 同一个文件在抽取过程中再次被修改时, 等待本次抽取结束后再重新抽取
+        Set<Path> running = ConcurrentHashMap.newKeySet();
+        // 与 run() 相同的提交策略, 文件只在写入完成(或者再次被修改)时估算一次内存占用
+        Deque<Job> waiting = new ArrayDeque<>();
+        try (DirectoryWatcher w = new DirectoryWatcher(inputDir, outputDir, quietMillis)) {
+            watcher = w;
+            List<Path> ready = w.start();
+            if (stopped)
+                return;
+            System.out.printf("watching directory: %s, existing file number: %d, quiet period: %d ms%n", inputDir, ready.size(), quietMillis);
+            while (ready != null) {
+                for (Path path : ready)
+                    enqueue(waiting, path);
+                dispatch(executor, slots, waiting, running, false);
+                ready = w.poll(waiting.isEmpty() ? Long.MAX_VALUE : DEFER_POLL_MILLIS);
+            }
+        } finally {
+            watcher = null;
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // 等待正在抽取的文件处理完毕
+            }
+            manifest.close();
+            System.out.printf("stop watching. success: %d, failure: %d, skipped: %d%n", success, failure, skipped);
+        }
+    }
+
+    /**
+     * 停止监听模式, 正在抽取的文件会继续处理完毕, 可以由其他线程(例如 shutdown hook)调用
+     */
+    public void stop() {
+        stopped = true;
+        DirectoryWatcher w = watcher;
+        if (w != null) {
+            try {
+                w.close();
+            } catch (IOException e) {
+                System.out.println("can't close directory watcher: " + e);
+            }
+        }
+    }
+
+    private void process(Path path) {
+        String key = manifestKey(path);
+        DocumentTextExporter.ExportResult result;
+        String skipTip = null;
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attrs.size();
+            long mtime = attrs.lastModifiedTime().toMillis();
+            skipTip = resume || incremental ? checkCompleted(path, key, size, mtime) : null;
+            if (skipTip != null) {
+                result = null;
+            } else {
+                manifest.started(key, size, mtime);
+                // 摘要只用于续跑/增量抽取时的比较和缓存键, 两者都需要时只读取一遍文件
+                String hash = null;
+                try {
+                    if (resume || incremental || cache != null)
+                        hash = ExtractionCache.contentHash(path);
+                    result = DocumentTextExporter.export(path, outputDir, cache, hash);
+                } catch (Throwable e) {
+                    // 单个文件的异常(包括 OOM 等 Error)不能终止整个批处理
+                    result = DocumentTextExporter.ExportResult.failure(e.toString());
+                }
+                if (result.isSuccess())
+                    manifest.done(key, size, mtime, hash, outputDir.normalize().relativize(result.getOutput()).toString());
+                else
+                    manifest.failed(key, size, mtime, result.getTip());
+            }
+        } catch (IOException e) {
+            result = DocumentTextExporter.ExportResult.failure("can't update manifest: " + e);
+        }
+        synchronized (progressLock) {
+            completed++;
+            if (result == null) {
+                skipped++;
+                // 增量抽取时绝大多数文件都未变化, 不逐个输出
+                if (!incremental)
+                    System.out.printf("progress: [%s], file name: %s, skipped, %s%n", progress(), path.getFileName().toString(), skipTip);
+                return;
+            }
+            if (result.isSuccess())
+                success++;
+            else
+                failure++;
+            System.out.printf("progress: [%s], file name: %s, %s%n", progress(),
+                    path.getFileName().toString(), result.isSuccess() ? "success" : "failure, tip: " + result.getTip());
+        }
+    }
+
+    /**
+     * 批量抽取时输出 已处理/总数, 目录尚未遍历完成时总数只是已经发现的数量, 以 + 结尾; 监听模式下文件总数未知, 只输出已处理的数量
+     */
+    private String progress() {
+        int total = discoveredTotal;
+        if (total < 0)
+            return String.valueOf(completed);
+        return completed + "/" + total + (discoveryFinished ? "" : "+");
+    }
+
+    /**
+     * 续跑时检查文件是否已经处理过
+     * @return 跳过的原因, 需要抽取时返回 null
+     */
+    private String checkCompleted(Path path, String key, long size, long mtime) throws IOException {
+        BatchManifest.Entry entry = manifest.get(key);
+        if (entry == null)
+            return null;
+        if (entry.getStatus() == BatchManifest.Status.RUNNING && entry.getAttempts() >= BatchManifest.MAX_ATTEMPTS && entry.matches(size, mtime))
+            return "extraction was interrupted " + entry.getAttempts() + " times, the file may crash the process";
+        if (incremental && entry.getStatus() == BatchManifest.Status.FAILED && entry.matches(size, mtime))
+            return "failed in previous run and unchanged since then";
+        if (entry.getStatus() != BatchManifest.Status.DONE || entry.getDetail() == null || !Files.isRegularFile(outputDir.resolve(entry.getDetail())))
+            return null;
+        if (entry.matches(size, mtime))
+            return "completed in previous run";
+        // 只有修改时间变化时, 比较内容摘要
+        if (entry.getSize() == size && ExtractionCache.contentHash(path).equals(entry.getHash())) {
+            manifest.done(key, size, mtime, entry.getHash(), entry.getDetail());
+            return "content unchanged since previous run";
+        }
+        return null;
+    }
+
+    /**
+     * 移除清单中已经不存在的输入文件, 并删除对应的输出文件
+     * @param present 本次遍历到的所有文件
+     */
+    private void deleteRemovedOutputs(Set<String> present) throws IOException {
+        Map<String, BatchManifest.Entry> entries = manifest.getEntries();
+        // 输出文件只由文件名决定, 不同目录下的同名文件可能共用一个输出文件
+        Set<String> liveOutputs = new HashSet<>();
+        for (BatchManifest.Entry entry : entries.values()) {
+            if (present.contains(entry.getPath()) && entry.getStatus() == BatchManifest.Status.DONE && entry.getDetail() != null)
+                liveOutputs.add(entry.getDetail());
+        }
+        for (BatchManifest.Entry entry : entries.values()) {
+            if (present.contains(entry.getPath()))
+                continue;
+            if (entry.getStatus() == BatchManifest.Status.DONE && entry.getDetail() != null && !liveOutputs.contains(entry.getDetail())) {
+                Path output = outputDir.resolve(entry.getDetail());
+                if (Files.deleteIfExists(output))
+                    System.out.println("delete output of removed file: " + entry.getPath() + " -> " + output);
+            }
+            manifest.removed(entry.getPath());
+            removed++;
+        }
+    }
+
+    /**
+     * 清单中使用相对于输入目录的路径, 分隔符统一为 /
+     */
+    private String manifestKey(Path path) {
+        return inputDir.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    public int getSuccess() {
+        synchronized (progressLock) {
+            return success;
+        }
+    }
+
+    public int getFailure() {
+        synchronized (progressLock) {
+            return failure;
+        }
+    }
+
+    public int getSkipped() {
+        synchronized (progressLock) {
+            return skipped;
+        }
+    }
+
+    /**
+     * 等待提交的文件
+     */
+    private static class Job {
+
+        private final Path path;
+
+        /**
+         * 估算的内存占用, 提交之前文件再次被修改时会重新估算
+         */
+        private long cost;
+
+        /**
+         * 发现的时间, 用于判断是否等待过久
+         */
+        private final long since = System.currentTimeMillis();
+
+        Job(Path path, long cost) {
+            this.path = path;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * 为工作线程命名, 方便排查问题
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger seq = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "extract-worker-" + seq.incrementAndGet());
+            t.setDaemon(false);
+            return t;
+        }
+    }
+
+}
@@ -0,0 +1,372 @@
+package io.naivekyo.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>批量抽取的任务清单, 保存在输出目录下的 {@link #FILE_NAME} 文件中, 记录每个输入文件的处理状态、大小、修改时间、内容摘要以及输出文件</p>
+ * <ul>
+ *     <li>清单是追加写入的文本日志, 每条记录占一行, 写入后立即 flush, 进程被杀死时最多丢失最后一行;
+ *     读取时忽略不完整的行, 同一个文件以最后一条记录为准</li>
+ *     <li>开始抽取前写入 {@link Status#RUNNING} 记录, 结束后写入 {@link Status#DONE} 或者 {@link Status#FAILED} 记录,
+ *     多次停留在 RUNNING 状态的文件很可能导致了进程崩溃(例如 OOM), 见 {@link #MAX_ATTEMPTS}</li>
+ *     <li>续跑时先压缩日志, 每个文件只保留最后一条记录</li>
+ * </ul>
+ * <p><b>thread-safe</b>, 但同一个输出目录不应被多个进程同时使用</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class BatchManifest implements Closeable {
+
+    /**
+     * 清单文件名
+     */
+    public static final String FILE_NAME = ".extract-manifest";
+
+    /**
+     * 文件连续多少次在抽取过程中被中断后, 续跑时不再尝试
+     */
+    public static final int MAX_ATTEMPTS = 2;
+
+    private static final String HEADER = "# document-content-extract batch manifest v1";
+
+    /**
+     * 每条记录的字段数量: status, attempts, size, mtime, hash, path, detail
+     */
+    private static final int FIELDS = 7;
+
+    /**
+     * 没有内容摘要时的占位符
+     */
+    private static final String NO_HASH = "-";
+
+    /**
+     * 文件处理状态
+     */
+    public enum Status {
+
+        /**
+         * 正在抽取, 进程中断后会停留在该状态
+         */
+        RUNNING,
+
+        /**
+         * 抽取成功, 输出文件已经写入
+         */
+        DONE,
+
+        /**
+         * 抽取失败
+         */
+        FAILED,
+
+        /**
+         * 输入文件已经被删除, 只出现在日志中, 加载时移除该文件的记录
+         */
+        REMOVED
+    }
+
+    private final Path file;
+
+    /**
+     * 输入文件(相对路径) -> 最后一条记录, 按照首次出现的顺序排列
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private BufferedWriter writer;
+
+    private BatchManifest(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 打开输出目录下的任务清单
+     * @param outputDir 输出目录
+     * @param resume true 表示续跑: 读取已有的清单并在其后追加; false 表示开始新的任务: 清空已有的清单
+     * @return 任务清单
+     * @throws IOException 读写清单文件时出现的异常
+     */
+    public static BatchManifest open(Path outputDir, boolean resume) throws IOException {
+        BatchManifest manifest = new BatchManifest(outputDir.resolve(FILE_NAME));
+        if (resume && Files.isRegularFile(manifest.file)) {
+            manifest.load();
+            manifest.compact();
+        } else {
+            manifest.writer = Files.newBufferedWriter(manifest.file, StandardCharsets.UTF_8);
+            manifest.writer.write(HEADER);
+            manifest.writer.write('\n');
+            manifest.writer.flush();
+        }
+        return manifest;
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                Entry entry = Entry.parse(line);
+                if (entry == null)
+                    continue;
+                if (entry.status == Status.REMOVED)
+                    entries.remove(entry.path);
+                else
+                    entries.put(entry.path, entry);
+            }
+        }
+    }
+
+    /**
+     * 重写清单文件, 每个文件只保留最后一条记录, 写入临时文件后原子替换
+     */
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (Entry entry : entries.values()) {
+                out.write(entry.format());
+                out.write('\n');
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 获取文件的最后一条记录
+     * @param path 输入文件相对于输入目录的路径
+     * @return 记录, 没有时返回 null
+     */
+    public synchronized Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * @return 所有文件的最后一条记录, 只读
+     */
+    public synchronized Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+    }
+
+    /**
+     * 记录文件开始抽取
+     * @param path 输入文件相对于输入目录的路径
+     * @param size 文件大小
+     * @param mtime 文件修改时间, 毫秒
+     * @throws IOException 写入清单时出现的异常
+     */
+    public synchronized void started(String path, long size, long mtime) throws IOException {
+        Entry previous = entries.get(path);
+        int attempts = previous != null && previous.status == Status.RUNNING ? previous.attempts + 1 : 1;
+        append(new Entry(Status.RUNNING, attempts, size, mtime, null, path, null));
+    }
+
+    /**
+     * 记录文件抽取成功
+     * @param path 输入文件相对于输入目录的路径
+     * @param size 文件大小
+     * @param mtime 文件修改时间, 毫秒
+     * @param hash 文件内容摘要
+     * @param output 输出文件相对于输出目录的路径
+     * @throws IOException 写入清单时出现的异常
+     */
+    public synchronized void done(String path, long size, long mtime, String hash, String output) throws IOException {
+        append(new Entry(Status.DONE, 0, size, mtime, hash, path, output));
+    }
+
+    /**
+     * 记录文件抽取失败
+     * @param path 输入文件相对于输入目录的路径
+     * @param size 文件大小
+     * @param mtime 文件修改时间, 毫秒
+     * @param tip 失败原因
+     * @throws IOException 写入清单时出现的异常
+     */
+    public synchronized void failed(String path, long size, long mtime, String tip) throws IOException {
+        append(new Entry(Status.FAILED, 0, size, mtime, null, path, tip));
+    }
+
+    /**
+     * 记录输入文件已被删除, 移除该文件的记录
+     * @param path 输入文件相对于输入目录的路径
+     * @throws IOException 写入清单时出现的异常
+     */
+    public synchronized void removed(String path) throws IOException {
+        Entry previous = entries.get(path);
+        if (previous == null)
+            return;
+        append(new Entry(Status.REMOVED, 0, previous.size, previous.mtime, null, path, null));
+    }
+
+    private void append(Entry entry) throws IOException {
+        if (writer == null)
+            throw new IOException("manifest is closed: " + file);
+        if (entry.status == Status.REMOVED)
+            entries.remove(entry.path);
+        else
+            entries.put(entry.path, entry);
+        writer.write(entry.format());
+        writer.write('\n');
+        writer.flush();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * 清单中的一条记录
+     */
+    public static class Entry {
+
+        private final Status status;
+
+        /**
+         * 连续处于 RUNNING 状态的次数, 其他状态为 0
+         */
+        private final int attempts;
+
+        private final long size;
+
+        private final long mtime;
+
+        private final String hash;
+
+        private final String path;
+
+        /**
+         * DONE: 输出文件相对于输出目录的路径; FAILED: 失败原因
+         */
+        private final String detail;
+
+        Entry(Status status, int attempts, long size, long mtime, String hash, String path, String detail) {
+            this.status = status;
+            this.attempts = attempts;
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+            this.path = path;
+            this.detail = detail;
+        }
+
+        /**
+         * 解析一行记录, 格式不正确(例如进程崩溃时只写入了一半)时返回 null
+         */
+        static Entry parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != FIELDS)
+                return null;
+            try {
+                return new Entry(Status.valueOf(fields[0]), Integer.parseInt(fields[1]), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]), NO_HASH.equals(fields[4]) ? null : fields[4], unescape(fields[5]),
+                        fields[6].isEmpty() ? null : unescape(fields[6]));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String format() {
+            return status.name() + '\t' + attempts + '\t' + size + '\t' + mtime + '\t' + (hash == null ? NO_HASH : hash) +
+                    '\t' + escape(path) + '\t' + (detail == null ? "" : escape(detail));
+        }
+
+        /**
+         * 文件大小和修改时间是否与记录一致
+         */
+        public boolean matches(long size, long mtime) {
+            return this.size == size && this.mtime == mtime;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getMtime() {
+            return mtime;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        @Override
+        public String toString() {
+            return format();
+        }
+    }
+
+    /**
+     * 转义路径和提示信息中的制表符、换行符以及反斜杠, 保证每条记录只占一行
+     */
+    static String escape(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String replacement = c == '\\' ? "\\\\" : c == '\t' ? "\\t" : c == '\n' ? "\\n" : c == '\r' ? "\\r" : null;
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(s.length() + 8);
+                sb.append(s, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null)
+                    sb.append(replacement);
+                else
+                    sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    static String unescape(String s) {
+        if (s.indexOf('\\') == -1)
+            return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,230 @@
+package io.naivekyo.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 {@link WatchService} 监听目录树中新增和修改的文件 <br/>
+ * 文件通常是分多次写入的, 因此需要去抖: 文件在 {@link #quietMillis} 内没有新的事件并且大小不再变化时才认为写入完成 <br/>
+ * 新建的子目录会自动注册, 事件溢出(OVERFLOW)时重新扫描整个目录树 <br/>
+ * 只能由一个线程调用 {@link #start()}/{@link #poll(long)}, {@link #close()} 可以由其他线程调用
+ * @author NaiveKyo
+ * @since 1.0
+ */
+class DirectoryWatcher implements Closeable {
+
+    private final Path root;
+
+    /**
+     * 不需要监听的目录(输出目录位于输入目录中时), 可以为 null
+     */
+    private final Path excluded;
+
+    private final long quietMillis;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+
+    private final Set<Path> registered = new HashSet<>();
+
+    /**
+     * 等待写入完成的文件, 按照首次出现的顺序排列
+     */
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+
+    DirectoryWatcher(Path root, Path excluded, long quietMillis) throws IOException {
+        if (quietMillis <= 0)
+            throw new IllegalArgumentException("quiet period must be positive.");
+        this.root = root;
+        this.excluded = excluded == null ? null : excluded.toAbsolutePath().normalize();
+        this.quietMillis = quietMillis;
+        this.watchService = root.getFileSystem().newWatchService();
+    }
+
+    /**
+     * 注册整个目录树
+     * @return 目录树中已经存在的文件
+     * @throws IOException 遍历目录时出现的异常
+     */
+    List<Path> start() throws IOException {
+        List<Path> files = new ArrayList<>();
+        register(root, files);
+        return files;
+    }
+
+    /**
+     * 等待并返回写入完成的文件, 最多阻塞 {@link #quietMillis} 和 maxWaitMillis 中较小的时间
+     * @param maxWaitMillis 最长等待时间, 调用方有其他工作(例如等待内存预算的文件)时使用较短的时间
+     * @return 写入完成的文件, 可能为空; 监听被关闭时返回 null
+     * @throws IOException 注册新目录时出现的异常
+     * @throws InterruptedException 等待时被中断
+     */
+    List<Path> poll(long maxWaitMillis) throws IOException, InterruptedException {
+        long timeout = Math.min(maxWaitMillis, pending.isEmpty() ? quietMillis : Math.max(1, quietMillis / 2));
+        try {
+            WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+            while (key != null) {
+                handle(key);
+                key = watchService.poll();
+            }
+        } catch (ClosedWatchServiceException e) {
+            return null;
+        }
+        List<Path> ready = new ArrayList<>();
+        collectQuiet(ready);
+        return ready;
+    }
+
+    private void handle(WatchKey key) throws IOException {
+        Path dir = keys.get(key);
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 丢失了部分事件, 重新扫描整个目录树, 已经注册的目录不会重复注册
+                List<Path> files = new ArrayList<>();
+                register(root, files);
+                for (Path file : files)
+                    touch(file, now);
+                continue;
+            }
+            if (dir == null)
+                continue;
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(path);
+            } else if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    // 目录可能在注册之前就已经写入了文件
+                    List<Path> files = new ArrayList<>();
+                    register(path, files);
+                    for (Path file : files)
+                        touch(file, now);
+                }
+            } else {
+                touch(path, now);
+            }
+        }
+        if (!key.reset())
+            registered.remove(keys.remove(key));
+    }
+
+    private void touch(Path file, long now) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            size = -1;
+        }
+        Pending p = pending.get(file);
+        if (p == null) {
+            pending.put(file, new Pending(now, size));
+        } else {
+            p.lastEvent = now;
+            p.size = size;
+        }
+    }
+
+    private void collectQuiet(List<Path> ready) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Pending> entry = it.next();
+            Pending p = entry.getValue();
+            if (now - p.lastEvent < quietMillis)
+                continue;
+            long size;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(entry.getKey(), BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) {
+                    it.remove();
+                    continue;
+                }
+                size = attrs.size();
+            } catch (NoSuchFileException e) {
+                it.remove();
+                continue;
+            } catch (IOException e) {
+                // 暂时无法读取属性, 下一次再检查
+                p.lastEvent = now;
+                continue;
+            }
+            if (size != p.size) {
+                // 没有收到事件但是大小仍在变化(部分文件系统不会报告每一次写入)
+                p.size = size;
+                p.lastEvent = now;
+                continue;
+            }
+            it.remove();
+            ready.add(entry.getKey());
+        }
+    }
+
+    private void register(Path start, List<Path> files) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (excluded != null && dir.toAbsolutePath().normalize().startsWith(excluded))
+                    return FileVisitResult.SKIP_SUBTREE;
+                if (registered.add(dir))
+                    keys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile())
+                    files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // 遍历过程中被删除或者没有权限的文件直接忽略
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private static class Pending {
+
+        private long lastEvent;
+
+        /**
+         * 上一次事件或者检查时的文件大小, -1 表示无法读取
+         */
+        private long size;
+
+        Pending(long lastEvent, long size) {
+            this.lastEvent = lastEvent;
+            this.size = size;
+        }
+    }
+
+}
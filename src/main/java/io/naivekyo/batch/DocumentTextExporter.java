@@ -0,0 +1,213 @@
+package io.naivekyo.batch;
+
+import io.naivekyo.content.DocumentParagraph;
+import io.naivekyo.exception.ContentExtractFailureException;
+import io.naivekyo.extractor.ExtractHelper;
+import io.naivekyo.support.cache.ExtractionCache;
+import io.naivekyo.util.IOUtils;
+import io.naivekyo.util.TikaFacadeUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 单个文件的文本导出逻辑: 检测文件类型 -> 抽取文本段落 -> 写入目标目录下的同名 txt 文件 <br/>
+ * 方法无状态, thread-safe, 可被多个工作线程同时调用
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public final class DocumentTextExporter {
+
+    private static final Log LOG = LogFactory.getLog(DocumentTextExporter.class);
+
+    /**
+     * 提取文件名前缀(去除后缀)的模式
+     */
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("^(.*)?\\..*$");
+
+    private DocumentTextExporter() {
+    }
+
+    /**
+     * 抽取指定文件的文本内容并写入输出目录
+     * @param path 输入文件
+     * @param outputDir 输出目录
+     * @return 处理结果
+     */
+    public static ExportResult export(Path path, Path outputDir) {
+        return export(path, outputDir, null);
+    }
+
+    /**
+     * 抽取指定文件的文本内容并写入输出目录, 优先使用缓存的抽取结果
+     * @param path 输入文件
+     * @param outputDir 输出目录
+     * @param cache 抽取结果缓存, null 表示不使用缓存
+     * @return 处理结果
+     */
+    public static ExportResult export(Path path, Path outputDir, ExtractionCache cache) {
+        return export(path, outputDir, cache, null);
+    }
+
+    /**
+     * 抽取指定文件的文本内容并写入输出目录, 优先使用缓存的抽取结果
+     * @param path 输入文件
+     * @param outputDir 输出目录
+     * @param cache 抽取结果缓存, null 表示不使用缓存
+     * @param contentHash 调用方已经计算好的文件内容摘要, 见 {@link ExtractionCache#contentHash(Path)}, null 表示需要时再计算
+     * @return 处理结果
+     */
+    public static ExportResult export(Path path, Path outputDir, ExtractionCache cache, String contentHash) {
+        String fileName = path.getFileName().toString();
+        try {
+            List<DocumentParagraph> paragraphs = extractParagraphs(path, cache, contentHash);
+            if (paragraphs == null || paragraphs.isEmpty())
+                return ExportResult.failure("cant extract any text content from " + fileName);
+            String prefix = fileNamePrefix(fileName);
+            if (prefix == null)
+                return ExportResult.failure("can't extract file name. origin name: " + fileName);
+            List<String> textContents = paragraphs.stream().map(DocumentParagraph::getContent).collect(Collectors.toList());
+            Path output = outputDir.normalize().resolve(prefix + ".txt");
+            IOUtils.writeToTxtFile(new File(output.toString()), textContents);
+            return ExportResult.success(output);
+        } catch (ContentExtractFailureException e) {
+            return ExportResult.failure(e.getMessage() + ", name: " + fileName);
+        } catch (Exception e) {
+            LOG.error("can't export text content of " + fileName, e);
+            return ExportResult.failure(e.getMessage());
+        }
+    }
+
+    /**
+     * 检测文件类型并抽取文本段落, pdf 文件直接随机访问, 不经过输入流
+     * @param path 输入文件
+     * @return 文本段落
+     * @throws ContentExtractFailureException 不支持的文件类型
+     * @throws Exception 抽取过程中出现的异常
+     */
+    public static List<DocumentParagraph> extractParagraphs(Path path) throws Exception {
+        try (InputStream bis = new BufferedInputStream(Files.newInputStream(path))) {
+            return extractParagraphs(bis, path);
+        }
+    }
+
+    /**
+     * 检测文件类型并抽取文本段落, 缓存键由文件内容摘要和段落合并参数决定
+     * @param path 输入文件
+     * @param cache 抽取结果缓存, null 表示不使用缓存
+     * @return 文本段落
+     * @throws ContentExtractFailureException 不支持的文件类型
+     * @throws Exception 抽取过程中出现的异常
+     */
+    public static List<DocumentParagraph> extractParagraphs(Path path, ExtractionCache cache) throws Exception {
+        return extractParagraphs(path, cache, null);
+    }
+
+    /**
+     * 检测文件类型并抽取文本段落, 缓存键由文件内容摘要和段落合并参数决定
+     * @param path 输入文件
+     * @param cache 抽取结果缓存, null 表示不使用缓存
+     * @param contentHash 调用方已经计算好的文件内容摘要, null 表示需要时再计算
+     * @return 文本段落
+     * @throws ContentExtractFailureException 不支持的文件类型
+     * @throws Exception 抽取过程中出现的异常
+     */
+    public static List<DocumentParagraph> extractParagraphs(Path path, ExtractionCache cache, String contentHash) throws Exception {
+        if (cache == null)
+            return extractParagraphs(path);
+        String key = ExtractionCache.key(contentHash != null ? contentHash : ExtractionCache.contentHash(path), "paragraphs",
+                false, ExtractHelper.DEFAULT_THRESHOLD, ExtractHelper.DEFAULT_FACTOR);
+        return cache.computeIfAbsent(key, () -> new ArrayList<>(extractParagraphs(path)));
+    }
+
+    /**
+     * 检测文件类型并抽取文本段落
+     * @param is 输入流, 方法不负责关闭
+     * @return 文本段落
+     * @throws ContentExtractFailureException 不支持的文件类型
+     * @throws Exception 抽取过程中出现的异常
+     */
+    public static List<DocumentParagraph> extractParagraphs(InputStream is) throws Exception {
+        return extractParagraphs(is.markSupported() ? is : new BufferedInputStream(is), null);
+    }
+
+    private static List<DocumentParagraph> extractParagraphs(InputStream bis, Path path) throws Exception {
+        String media = TikaFacadeUtil.detectFileMediaType(bis);
+        if (TikaFacadeUtil.isPdf(media)) {
+            return path != null ? ExtractHelper.pdfTextExtract2Paragraphs(path) : ExtractHelper.pdfTextExtract2Paragraphs(bis);
+        } else if (TikaFacadeUtil.isOLE2Word(media)) {
+            return ExtractHelper.wordDocTextExtract2Paragraphs(bis);
+        } else if (TikaFacadeUtil.isOOXMLWord(media)) {
+            return ExtractHelper.wordDocxTextExtract2Paragraphs(bis);
+        } else {
+            throw new ContentExtractFailureException("no support file, media type: " + media);
+        }
+    }
+
+    /**
+     * 获取文件名中去除后缀的部分, 无法解析时返回 null
+     * @param originName 原始文件名
+     * @return 文件名前缀
+     */
+    public static String fileNamePrefix(String originName) {
+        if (!originName.contains("."))
+            return originName;
+        Matcher mat = FILE_NAME_PATTERN.matcher(originName);
+        return mat.matches() ? mat.group(1) : null;
+    }
+
+    /**
+     * 单个文件的处理结果
+     */
+    public static class ExportResult {
+
+        private final boolean success;
+
+        /**
+         * 失败时的提示信息
+         */
+        private final String tip;
+
+        /**
+         * 成功时的输出文件
+         */
+        private final Path output;
+
+        private ExportResult(boolean success, String tip, Path output) {
+            this.success = success;
+            this.tip = tip;
+            this.output = output;
+        }
+
+        public static ExportResult success(Path output) {
+            return new ExportResult(true, null, output);
+        }
+
+        public static ExportResult failure(String tip) {
+            return new ExportResult(false, tip, null);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getTip() {
+            return tip;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+    }
+
+}
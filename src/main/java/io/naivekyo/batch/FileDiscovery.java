@@ -0,0 +1,258 @@
+package io.naivekyo.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行遍历目录树, 将发现的文件写入有界队列, 由调用方通过 {@link #take()} 边遍历边消费 <br/>
+ * 每个目录作为一个独立的任务只列出自身的内容, 子目录提交为新的任务, 不使用递归, 因此可以由多个线程同时遍历
+ * (目录位于 NFS 等网络文件系统时, 列目录和读取文件属性的延迟可以并行重叠) <br/>
+ * 队列满时遍历线程阻塞, 内存中最多保存 {@link #capacity} 个待处理的文件 <br/>
+ * 支持 glob 格式的包含/排除规则: 不含 / 的规则匹配文件名(或目录名), 否则匹配相对于根目录的路径(分隔符为 /);
+ * 排除规则同样作用于目录, 被排除的目录不再遍历
+ * @author NaiveKyo
+ * @since 1.0
+ */
+class FileDiscovery implements Closeable {
+
+    /**
+     * 遍历结束的标记
+     */
+    private static final Path END = Paths.get("");
+
+    private final Path root;
+
+    /**
+     * 不需要遍历的目录(输出目录位于输入目录中时), 可以为 null
+     */
+    private final Path excluded;
+
+    private final int capacity;
+
+    private final List<PathMatcher> includes;
+
+    private final List<PathMatcher> excludes;
+
+    private final boolean[] includeNameOnly;
+
+    private final boolean[] excludeNameOnly;
+
+    private final BlockingQueue<Path> queue;
+
+    private final ExecutorService executor;
+
+    /**
+     * 尚未遍历完成的目录数量, 降为 0 时遍历结束
+     */
+    private final AtomicInteger pendingDirs = new AtomicInteger();
+
+    private final AtomicInteger discovered = new AtomicInteger();
+
+    private final AtomicInteger errors = new AtomicInteger();
+
+    private boolean finished;
+
+    /**
+     * @param root 根目录
+     * @param excluded 不需要遍历的目录, 可以为 null
+     * @param threads 遍历线程数量
+     * @param capacity 队列容量
+     * @param includes 包含规则, 为空时包含所有文件
+     * @param excludes 排除规则
+     */
+    FileDiscovery(Path root, Path excluded, int threads, int capacity, List<String> includes, List<String> excludes) {
+        if (threads <= 0 || capacity <= 0)
+            throw new IllegalArgumentException("thread number and queue capacity must be positive.");
+        this.root = root;
+        this.excluded = excluded == null ? null : excluded.toAbsolutePath().normalize();
+        this.capacity = capacity;
+        FileSystem fs = root.getFileSystem();
+        this.includes = compile(fs, includes);
+        this.excludes = compile(fs, excludes);
+        this.includeNameOnly = nameOnly(includes);
+        this.excludeNameOnly = nameOnly(excludes);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "discovery-worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static List<PathMatcher> compile(FileSystem fs, List<String> globs) {
+        if (globs == null || globs.isEmpty())
+            return Collections.emptyList();
+        List<PathMatcher> matchers = new ArrayList<>(globs.size());
+        for (String glob : globs)
+            matchers.add(fs.getPathMatcher("glob:" + glob));
+        return matchers;
+    }
+
+    private static boolean[] nameOnly(List<String> globs) {
+        if (globs == null)
+            return new boolean[0];
+        boolean[] flags = new boolean[globs.size()];
+        for (int i = 0; i < flags.length; i++)
+            flags[i] = globs.get(i).indexOf('/') == -1;
+        return flags;
+    }
+
+    /**
+     * 开始遍历
+     */
+    void start() {
+        pendingDirs.set(1);
+        submit(root);
+    }
+
+    /**
+     * 获取下一个文件, 队列为空时阻塞
+     * @return 下一个文件, 遍历结束时返回 null
+     * @throws InterruptedException 等待时被中断
+     */
+    Path take() throws InterruptedException {
+        if (finished)
+            return null;
+        Path path = queue.take();
+        if (path == END) {
+            finished = true;
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * 获取下一个文件, 最多等待指定的时间
+     * @param timeoutMillis 超时时间, 毫秒
+     * @return 下一个文件, 超时或者遍历结束时返回 null, 通过 {@link #isFinished()} 区分
+     * @throws InterruptedException 等待时被中断
+     */
+    Path poll(long timeoutMillis) throws InterruptedException {
+        if (finished)
+            return null;
+        Path path = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (path == END) {
+            finished = true;
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * @return 遍历是否结束并且所有文件都已经被取出
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return 已经发现的文件数量
+     */
+    int getDiscovered() {
+        return discovered.get();
+    }
+
+    /**
+     * @return 无法列出内容或者遍历失败的目录数量
+     */
+    int getErrors() {
+        return errors.get();
+    }
+
+    private void submit(Path dir) {
+        try {
+            executor.execute(() -> scan(dir));
+        } catch (RejectedExecutionException e) {
+            // 已经关闭
+        }
+    }
+
+    private void scan(Path dir) {
+        boolean interrupted = false;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // 遍历过程中被删除或者失效的链接
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    if (excluded != null && path.toAbsolutePath().normalize().startsWith(excluded))
+                        continue;
+                    if (matches(excludes, excludeNameOnly, path))
+                        continue;
+                    pendingDirs.incrementAndGet();
+                    submit(path);
+                } else if (attrs.isRegularFile()) {
+                    if (matches(excludes, excludeNameOnly, path))
+                        continue;
+                    if (!includes.isEmpty() && !matches(includes, includeNameOnly, path))
+                        continue;
+                    queue.put(path);
+                    discovered.incrementAndGet();
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            errors.incrementAndGet();
+            System.out.println("can't list directory: " + dir + ", " + e);
+        } catch (InterruptedException e) {
+            // close() 被调用, 不再写入结束标记
+            interrupted = true;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            System.out.println("can't scan directory: " + dir + ", " + e);
+        } finally {
+            // 任何异常都必须计数, 否则 pendingDirs 无法降为 0, take() 会一直阻塞
+            if (!interrupted && pendingDirs.decrementAndGet() == 0) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private boolean matches(List<PathMatcher> matchers, boolean[] nameOnly, Path path) {
+        Path relative = null;
+        for (int i = 0; i < matchers.size(); i++) {
+            if (!nameOnly[i] && relative == null)
+                relative = root.relativize(path);
+            Path target = nameOnly[i] ? path.getFileName() : relative;
+            if (matchers.get(i).matches(target))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 停止遍历, 正在阻塞的遍历线程会被中断
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,122 @@
+package io.naivekyo.batch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 批量抽取的内存预算: 根据文件格式和大小估算抽取时占用的堆内存, 所有正在抽取的文件的估算值之和不超过预算 <br/>
+ * 估算值超过整个预算的文件按照预算计算, 即独占所有内存, 与其他文件串行执行 <br/>
+ * <b>thread-safe</b>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+class MemoryBudget {
+
+    /**
+     * 每个文件的固定开销: 格式检测、解析器对象、段落合并等
+     */
+    static final long BASE_COST = 4L * 1024 * 1024;
+
+    /**
+     * docx 中 xml 部件解压后构建 DOM 的膨胀系数, 实测 15 MB xml 需要约 250 MB 堆内存
+     */
+    private static final int OOXML_XML_FACTOR = 16;
+
+    private final long capacity;
+
+    private long used;
+
+    MemoryBudget(long capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("memory budget must be positive.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * 根据文件后缀和大小估算抽取时占用的堆内存, 系数是偏保守的经验值:
+     * <ul>
+     *     <li>pdf: 随机访问文件, 解析后的对象和页面文本约为文件大小的 3 倍</li>
+     *     <li>doc: POIFS 将整个文件读入内存, 加上文本约为 4 倍</li>
+     *     <li>docx: 所有部件解压到内存中, xml 部件再构建 DOM, 与压缩后的大小关系不大,
+     *     因此读取 zip 中央目录中记录的解压后大小: xml 部件按 {@link #OOXML_XML_FACTOR} 倍计算, 图片等其他部件按 1 倍计算</li>
+     *     <li>其他: 只做格式检测</li>
+     * </ul>
+     * @param path 文件
+     * @param size 文件大小
+     * @return 估算的内存占用, 字节
+     */
+    static long estimate(Path path, long size) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".pdf"))
+            return BASE_COST + size * 3;
+        if (name.endsWith(".doc"))
+            return BASE_COST + size * 4;
+        if (name.endsWith(".docx"))
+            return BASE_COST + ooxmlCost(path, size);
+        return BASE_COST;
+    }
+
+    private static long ooxmlCost(Path path, long size) {
+        long cost = 0;
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                long unpacked = Math.max(entry.getSize(), entry.getCompressedSize());
+                String entryName = entry.getName();
+                cost += entryName.endsWith(".xml") || entryName.endsWith(".rels") ? unpacked * OOXML_XML_FACTOR : unpacked;
+            }
+        } catch (IOException e) {
+            // 不是合法的 zip 文件, 抽取时会很快失败
+            return size;
+        }
+        return cost;
+    }
+
+    /**
+     * 剩余预算足够时占用预算
+     * @param cost 估算的内存占用
+     * @return 是否成功
+     */
+    synchronized boolean tryAcquire(long cost) {
+        cost = clamp(cost);
+        if (used + cost > capacity)
+            return false;
+        used += cost;
+        return true;
+    }
+
+    /**
+     * 阻塞直到剩余预算足够
+     * @param cost 估算的内存占用
+     * @throws InterruptedException 等待时被中断
+     */
+    synchronized void acquire(long cost) throws InterruptedException {
+        cost = clamp(cost);
+        while (used + cost > capacity)
+            wait();
+        used += cost;
+    }
+
+    synchronized void release(long cost) {
+        used -= clamp(cost);
+        notifyAll();
+    }
+
+    private long clamp(long cost) {
+        return Math.min(cost, capacity);
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    synchronized long getUsed() {
+        return used;
+    }
+
+}
@@ -2,13 +2,16 @@ package io.naivekyo.content;
 
 import io.naivekyo.support.function.ContentConverter;
 
+import java.io.Serializable;
+
 /**
  * <p>文档内容接口</p>
+ * <p>实现类需要支持序列化, 以便抽取结果可以被缓存</p>
  * @author NaiveKyo
  * @version 1.0
  * @since 2023/7/10 22:22
  */
-public interface DocContent {
+public interface DocContent extends Serializable {
 
     /**
      * 获取原始内容
@@ -0,0 +1,158 @@
+package io.naivekyo.content.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>未经解码的图片内容, 字节数组是文档中保存的原始编码数据, 同时记录解码需要的 filter 以及图片参数</p>
+ * <p>只有 filter 为 DCTDecode(jpg)、JPXDecode(jp2) 的图片可以直接作为图片文件使用, 其他数据(例如 FlateDecode 压缩的像素数据、
+ * CCITT 传真编码、JBIG2)需要根据 {@link #getFilters()} 和 {@link #getDecodeParams()} 自行解码</p>
+ * <p><b>thread-safe</b></p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class EncodedImageContent extends ImageContent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 按照解码顺序排列的 filter 名称, 例如 FlateDecode、DCTDecode, 没有 filter 时为空
+     */
+    private final List<String> filters;
+
+    /**
+     * 与 {@link #filters} 一一对应的解码参数, 例如 Predictor、Columns、K, 参数值转换为字符串, 没有参数时为空 map
+     */
+    private final List<Map<String, String>> decodeParams;
+
+    private final int width;
+
+    private final int height;
+
+    private final int bitsPerComponent;
+
+    /**
+     * 颜色空间名称, 例如 DeviceRGB、ICCBased、Indexed, 未知时为 null
+     */
+    private final String colorSpace;
+
+    private EncodedImageContent(EncodedImageContentBuilder builder) {
+        super(builder.rawData, builder.mimeType, builder.fileType);
+        this.filters = Collections.unmodifiableList(new ArrayList<>(builder.filters));
+        this.decodeParams = Collections.unmodifiableList(new ArrayList<>(builder.decodeParams));
+        this.width = builder.width;
+        this.height = builder.height;
+        this.bitsPerComponent = builder.bitsPerComponent;
+        this.colorSpace = builder.colorSpace;
+    }
+
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    public List<Map<String, String>> getDecodeParams() {
+        return decodeParams;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBitsPerComponent() {
+        return bitsPerComponent;
+    }
+
+    public String getColorSpace() {
+        return colorSpace;
+    }
+
+    public static class EncodedImageContentBuilder {
+
+        private byte[] rawData;
+
+        private String mimeType;
+
+        private String fileType;
+
+        private List<String> filters = Collections.emptyList();
+
+        private List<Map<String, String>> decodeParams = Collections.emptyList();
+
+        private int width;
+
+        private int height;
+
+        private int bitsPerComponent;
+
+        private String colorSpace;
+
+        public EncodedImageContentBuilder(byte[] rawData, String mimeType, String fileType) {
+            this.rawData = rawData;
+            this.mimeType = mimeType;
+            this.fileType = fileType;
+        }
+
+        public EncodedImageContentBuilder filters(List<String> filters, List<Map<String, String>> decodeParams) {
+            this.filters = filters;
+            this.decodeParams = decodeParams;
+            return this;
+        }
+
+        public EncodedImageContentBuilder size(int width, int height) {
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        public EncodedImageContentBuilder bitsPerComponent(int bitsPerComponent) {
+            this.bitsPerComponent = bitsPerComponent;
+            return this;
+        }
+
+        public EncodedImageContentBuilder colorSpace(String colorSpace) {
+            this.colorSpace = colorSpace;
+            return this;
+        }
+
+        public EncodedImageContent build() {
+            return new EncodedImageContent(this);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!super.equals(o)) return false;
+        EncodedImageContent that = (EncodedImageContent) o;
+        return width == that.width && height == that.height && bitsPerComponent == that.bitsPerComponent
+                && Objects.equals(filters, that.filters) && Objects.equals(decodeParams, that.decodeParams)
+                && Objects.equals(colorSpace, that.colorSpace);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hash(filters, decodeParams, width, height, bitsPerComponent, colorSpace);
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedImageContent{" +
+                "bytes length=" + getRawData().length +
+                ", mime type='" + getMimeType() + '\'' +
+                ", file type='" + getFileType() + '\'' +
+                ", filters=" + filters +
+                ", decode params=" + decodeParams +
+                ", width=" + width +
+                ", height=" + height +
+                ", bits per component=" + bitsPerComponent +
+                ", color space='" + colorSpace + '\'' +
+                '}';
+    }
+}
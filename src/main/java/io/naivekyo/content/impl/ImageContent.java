@@ -17,7 +17,9 @@ import java.util.Objects;
  * @since 1.0
  */
 public class ImageContent implements DocContent {
-    
+
+    private static final long serialVersionUID = 1L;
+
     /**
      * 存储当前图片的所有字节
      */
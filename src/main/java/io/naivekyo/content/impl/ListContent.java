@@ -5,6 +5,7 @@ import io.naivekyo.content.ContentType;
 import io.naivekyo.content.DocContent;
 import io.naivekyo.support.function.ContentConverter;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -16,7 +17,9 @@ import java.util.Objects;
  * @since 1.0
  */
 public class ListContent implements DocContent {
-    
+
+    private static final long serialVersionUID = 1L;
+
     private final List<Item> items;
 
     public ListContent() {
@@ -124,7 +127,9 @@ public class ListContent implements DocContent {
                 '}';
     }
 
-    static class Item {
+    static class Item implements Serializable {
+
+        private static final long serialVersionUID = 1L;
         
         private final TextContent text;
         
@@ -17,7 +17,9 @@ import java.util.stream.Collectors;
  * @since 1.0
  */
 public class TableContent implements DocContent {
-    
+
+    private static final long serialVersionUID = 1L;
+
     // TODO 适配带 row/col span 的表格
     
     /**
@@ -15,6 +15,8 @@ import java.util.Objects;
  */
 public class TextContent implements DocContent {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * 原始内容
      */
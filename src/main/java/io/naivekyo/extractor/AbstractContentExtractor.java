@@ -1,9 +1,15 @@
 package io.naivekyo.extractor;
 
+import io.naivekyo.content.ContentType;
 import io.naivekyo.content.DocContent;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,6 +19,8 @@ import java.util.List;
  * @since 1.0
  */
 public abstract class AbstractContentExtractor implements ContentExtractor{
+
+    private static final Log LOG = LogFactory.getLog(AbstractContentExtractor.class);
     
     // static {
     //     // cancel apache poi secure limit to permit 'zip bomb'
@@ -20,36 +28,176 @@ public abstract class AbstractContentExtractor implements ContentExtractor{
     // }
     
     /**
-     * 文档的字节输入流
+     * 文档的字节输入流, 基于文件创建抽取器时延迟打开
+     */
+    private InputStream docByteStream;
+
+    /**
+     * 文档所在的文件, 基于输入流创建抽取器时为 null
      */
-    private final InputStream docByteStream;
+    private final Path docPath;
 
     /**
-     * 当前文档的内容
+     * 当前文档的内容, 仅在调用 {@link #extract()} 时收集
      */
     private final List<DocContent> contents;
 
+    /**
+     * 当前抽取过程的内容接收器
+     */
+    private ContentSink sink;
+
+    /**
+     * 抽取选项
+     */
+    private ExtractionOptions options = ExtractionOptions.DEFAULT;
+
+    /**
+     * 取消令牌, null 表示不限制
+     */
+    private CancellationToken cancellationToken;
+
+    /**
+     * 最近一次抽取的状态
+     */
+    private ExtractionStatus status = ExtractionStatus.COMPLETED;
+
     public AbstractContentExtractor(InputStream docByteStream) {
         if (docByteStream == null)
             throw new RuntimeException("文档输入流不能为 null");
         this.docByteStream = docByteStream;
+        this.docPath = null;
+        this.contents = new ArrayList<>();
+    }
+
+    /**
+     * 基于文件创建抽取器, 子类可以通过 {@link #getDocPath()} 随机访问文件, 
+     * 也可以通过 {@link #getDocByteStream()} 获取输入流, 输入流由抽取器打开, 在 {@link #extract()} 结束时关闭
+     * @param docPath 文档文件
+     */
+    public AbstractContentExtractor(Path docPath) {
+        if (docPath == null)
+            throw new RuntimeException("文档路径不能为 null");
+        this.docByteStream = null;
+        this.docPath = docPath;
         this.contents = new ArrayList<>();
     }
 
     public InputStream getDocByteStream() {
+        if (docByteStream == null) {
+            try {
+                docByteStream = Files.newInputStream(docPath);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
         return docByteStream;
     }
 
+    public Path getDocPath() {
+        return docPath;
+    }
+
+    public ExtractionOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 设置抽取选项, 需要在抽取之前设置
+     * @param options 抽取选项
+     */
+    public void setOptions(ExtractionOptions options) {
+        if (options == null)
+            throw new RuntimeException("抽取选项不能为 null");
+        this.options = options;
+    }
+
+    /**
+     * 设置取消令牌, 需要在抽取之前设置; 令牌被取消或者超时后抽取器停止处理剩余的页面/幻灯片/段落,
+     * 已经输出的内容作为部分结果返回, 见 {@link #getStatus()}
+     * @param cancellationToken 取消令牌, null 表示不限制
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * @return 最近一次抽取的状态, 不是 {@link ExtractionStatus#COMPLETED} 时抽取结果只包含部分内容
+     */
+    @Override
+    public ExtractionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * 子类在处理每个单元(页面、幻灯片、段落等)之前调用, 检查取消令牌; 一旦返回 true, 本次抽取中后续调用都返回 true
+     * @return true 表示应当停止抽取
+     */
+    protected boolean isStopRequested() {
+        if (status != ExtractionStatus.COMPLETED)
+            return true;
+        if (cancellationToken == null)
+            return false;
+        status = cancellationToken.check();
+        return status != ExtractionStatus.COMPLETED;
+    }
+
+    /**
+     * 判断是否需要抽取指定类型的内容, 子类可以据此跳过不需要的解析工作(例如读取图片数据)
+     * @param type 内容类型
+     * @return true 表示需要抽取
+     */
+    protected boolean isIncluded(ContentType type) {
+        return options.includes(type);
+    }
+
     public List<DocContent> getContents() {
         return contents;
     }
 
     @Override
     public List<DocContent> extract() {
-        this.doExtract();
+        this.extract(this.contents::add);
         return this.contents;
     }
 
+    @Override
+    public void extract(ContentSink sink) {
+        if (sink == null)
+            throw new RuntimeException("内容接收器不能为 null");
+        this.sink = sink;
+        this.status = ExtractionStatus.COMPLETED;
+        try {
+            this.doExtract();
+            if (status != ExtractionStatus.COMPLETED)
+                LOG.warn(String.format("抽取提前结束, 只返回部分内容, 状态: %s, 抽取器: %s", status, getClass().getSimpleName()));
+        } finally {
+            this.sink = null;
+            // 自行打开的输入流需要自行关闭
+            if (docPath != null && docByteStream != null) {
+                try {
+                    docByteStream.close();
+                } catch (IOException ignore) {
+                }
+                docByteStream = null;
+            }
+        }
+    }
+
+    /**
+     * 输出抽取到的一个内容, 子类在抽取过程中按照文档顺序调用, 抽取选项中未选择的内容类型会被丢弃
+     * @param content 文档内容
+     */
+    protected void emit(DocContent content) {
+        if (!options.includes(content.getType()))
+            return;
+        this.sink.accept(content);
+    }
+
     /**
      * 模板方法: 执行具体的内容抽取逻辑
      */
@@ -0,0 +1,94 @@
+package io.naivekyo.extractor;
+
+import io.naivekyo.content.DocContent;
+import io.naivekyo.support.cache.ExtractionCache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>带结果缓存的内容抽取器, 命中缓存时直接返回保存的内容, 不会解析文档</p>
+ * <p>未命中时委托给实际的抽取器, 抽取完成后写入缓存. 注意: 为了写入缓存,
+ * {@link #extract(ContentSink)} 在未命中时也会在内存中保留所有内容</p>
+ * @author NaiveKyo
+ * @since 1.0
+ * @see ExtractorFactory#createCachingExtractor(ContentExtractor, ExtractionCache, java.nio.file.Path)
+ */
+public class CachingContentExtractor implements ContentExtractor {
+
+    private static final Log LOG = LogFactory.getLog(CachingContentExtractor.class);
+
+    private final ContentExtractor delegate;
+
+    private final ExtractionCache cache;
+
+    private final String key;
+
+    /**
+     * 命中缓存时为 {@link ExtractionStatus#COMPLETED}, 否则为实际抽取器的状态
+     */
+    private ExtractionStatus status = ExtractionStatus.COMPLETED;
+
+    /**
+     * @param delegate 实际的抽取器
+     * @param cache 结果缓存
+     * @param key 缓存键, 见 {@link ExtractionCache#key(String, Object...)}
+     */
+    public CachingContentExtractor(ContentExtractor delegate, ExtractionCache cache, String key) {
+        if (delegate == null || cache == null || key == null)
+            throw new RuntimeException("delegate, cache and key cant be null.");
+        this.delegate = delegate;
+        this.cache = cache;
+        this.key = key;
+    }
+
+    @Override
+    public List<DocContent> extract() {
+        ArrayList<DocContent> cached = cache.get(key);
+        if (cached != null) {
+            status = ExtractionStatus.COMPLETED;
+            return cached;
+        }
+        List<DocContent> contents = delegate.extract();
+        store(new ArrayList<>(contents));
+        return contents;
+    }
+
+    @Override
+    public void extract(ContentSink sink) {
+        ArrayList<DocContent> cached = cache.get(key);
+        if (cached != null) {
+            status = ExtractionStatus.COMPLETED;
+            cached.forEach(sink::accept);
+            return;
+        }
+        ArrayList<DocContent> contents = new ArrayList<>();
+        delegate.extract(content -> {
+            contents.add(content);
+            sink.accept(content);
+        });
+        store(contents);
+    }
+
+    @Override
+    public ExtractionStatus getStatus() {
+        return status;
+    }
+
+    private void store(ArrayList<DocContent> contents) {
+        status = delegate.getStatus();
+        // 部分内容不能写入缓存, 否则之后的抽取会一直得到不完整的结果
+        if (status != ExtractionStatus.COMPLETED)
+            return;
+        try {
+            cache.put(key, contents);
+        } catch (IOException e) {
+            // 缓存写入失败不影响抽取结果
+            LOG.warn("写入抽取结果缓存失败", e);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package io.naivekyo.extractor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>协作式的取消令牌, 可以附带截止时间, 通过 {@link AbstractContentExtractor#setCancellationToken(CancellationToken)} 传递给抽取器</p>
+ * <p>抽取器在处理每个单元(pdf 页面、幻灯片、段落)之前检查令牌, 令牌被取消或者超过截止时间后停止抽取,
+ * 已经输出的内容作为部分结果保留, 并通过 {@link AbstractContentExtractor#getStatus()} 报告原因.
+ * 注意: 文档加载阶段(例如 {@code SlideShowFactory.create})由第三方库完成, 无法中途停止</p>
+ * <p>令牌可以组成父子关系, 父令牌被取消时所有子令牌都视为被取消, 例如整个批处理共用一个父令牌, 每个文档使用一个带截止时间的子令牌</p>
+ * <p><b>thread-safe</b>, {@link #cancel()} 可以由其他线程调用</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public final class CancellationToken {
+
+    private final CancellationToken parent;
+
+    /**
+     * 截止时间, 基于 {@link System#nanoTime()}, 没有截止时间时为 {@link Long#MAX_VALUE}
+     */
+    private final long deadline;
+
+    private final boolean hasDeadline;
+
+    private volatile boolean cancelled;
+
+    private CancellationToken(CancellationToken parent, long timeoutNanos) {
+        this.parent = parent;
+        this.hasDeadline = timeoutNanos >= 0;
+        this.deadline = hasDeadline ? System.nanoTime() + timeoutNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * 创建没有截止时间的令牌
+     * @return 令牌
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(null, -1);
+    }
+
+    /**
+     * 创建带截止时间的令牌, 截止时间从创建时开始计算, 因此应当在抽取每个文档之前创建
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 令牌
+     */
+    public static CancellationToken withTimeout(long timeout, TimeUnit unit) {
+        return create().child(timeout, unit);
+    }
+
+    /**
+     * 创建带截止时间的子令牌, 当前令牌被取消或者超时时子令牌同样停止
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 子令牌
+     */
+    public CancellationToken child(long timeout, TimeUnit unit) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("timeout cant be negative.");
+        return new CancellationToken(this, unit.toNanos(timeout));
+    }
+
+    /**
+     * 取消令牌, 使用该令牌及其子令牌的抽取器会在处理下一个单元之前停止
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return 是否被取消(包括父令牌被取消)
+     */
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    /**
+     * @return 是否超过截止时间(包括父令牌超时)
+     */
+    public boolean isExpired() {
+        return (hasDeadline && System.nanoTime() - deadline >= 0) || (parent != null && parent.isExpired());
+    }
+
+    /**
+     * 检查令牌的状态
+     * @return 需要停止时返回原因, 否则返回 {@link ExtractionStatus#COMPLETED}
+     */
+    public ExtractionStatus check() {
+        if (isCancelled())
+            return ExtractionStatus.CANCELLED;
+        if (isExpired())
+            return ExtractionStatus.TIMED_OUT;
+        return ExtractionStatus.COMPLETED;
+    }
+
+}
@@ -16,5 +16,20 @@ public interface ContentExtractor {
      * @return {@link io.naivekyo.content.DocContent}
      */
     List<DocContent> extract();
+
+    /**
+     * 对文档进行数据抽取, 每个内容产生后立即推送给接收器, 不会在抽取器中保留 <br/>
+     * 处理大文档时使用该方法可以避免所有内容同时驻留在内存中
+     * @param sink 内容接收器
+     */
+    void extract(ContentSink sink);
+
+    /**
+     * 获取最近一次抽取的状态, 抽取器支持 {@link CancellationToken} 时可能只抽取了部分内容
+     * @return 抽取状态, 默认为 {@link ExtractionStatus#COMPLETED}
+     */
+    default ExtractionStatus getStatus() {
+        return ExtractionStatus.COMPLETED;
+    }
     
 }
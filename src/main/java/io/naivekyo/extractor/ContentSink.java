@@ -0,0 +1,21 @@
+package io.naivekyo.extractor;
+
+import io.naivekyo.content.DocContent;
+
+/**
+ * <p>文档内容接收器, 配合 {@link ContentExtractor#extract(ContentSink)} 使用</p>
+ * <p>抽取器每产生一个内容就立即推送给接收器, 自身不再持有该内容, 调用方处理完毕(写入文件、建立索引等)后内容即可被回收,
+ * 因此处理大文档时堆内存的占用与文档大小无关</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface ContentSink {
+
+    /**
+     * 接收抽取到的一个内容, 按照内容在文档中出现的顺序依次调用
+     * @param content 文档内容
+     */
+    void accept(DocContent content);
+
+}
@@ -3,8 +3,7 @@ package io.naivekyo.extractor;
 import io.naivekyo.content.ContentHelper;
 import io.naivekyo.content.DocumentParagraph;
 import io.naivekyo.exception.ContentExtractFailureException;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.io.IOUtils;
+import io.naivekyo.support.pdf.PDFDocumentSource;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
 import org.apache.pdfbox.text.PDFTextStripper;
@@ -28,10 +27,16 @@ import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -70,12 +75,17 @@ public class ExtractHelper {
     /**
      * 段落字数默认值
      */
-    protected static final int DEFAULT_THRESHOLD = 400;
+    public static final int DEFAULT_THRESHOLD = 400;
 
     /**
      * 段落字数最大值, max = DEFAULT_THRESHOLD * (1.0 + DEFAULT_FACTOR)
      */
-    protected static final float DEFAULT_FACTOR = 3.0f;
+    public static final float DEFAULT_FACTOR = 3.0f;
+
+    /**
+     * 并行抽取 pdf 文本时, 每个工作线程一次领取的页数
+     */
+    private static final int PARALLEL_PAGE_BLOCK = 8;
 
     /**
      * 抽取 txt 文件的所有文本内容, 会先尝试获取文件的编码, 如果无法获取就是用默认的 {@link StandardCharsets#UTF_8} 进行处理 <br/>
@@ -377,28 +387,55 @@ public class ExtractHelper {
      * @throws IOException IO 异常或者没有权限抽取 pdf 内容
      */
     public static List<String> pdfTextExtract(InputStream is, boolean sortByPosition) throws IOException {
+        return pdfTextExtract(is, sortByPosition, 1);
+    }
+
+    /**
+     * 抽取 pdf 文件中的所有文本内容, 支持将页面范围拆分给多个线程并行抽取, 结果按页码顺序合并
+     * @param is 文档流
+     * @param sortByPosition true 表示按照特定顺序排列每页中的文本, 但需损耗一定性能, 而 false 表示不排序
+     * @param parallelism 并行抽取的线程数, 小于等于 1 时在当前线程顺序抽取
+     * @return pdf 所有文本内容
+     * @throws IOException IO 异常或者没有权限抽取 pdf 内容
+     */
+    public static List<String> pdfTextExtract(InputStream is, boolean sortByPosition, int parallelism) throws IOException {
+        try {
+            return pdfTextExtract(PDFDocumentSource.of(is), sortByPosition, parallelism);
+        } finally {
+            if (is != null)
+                is.close();
+        }
+    }
+
+    /**
+     * 抽取 pdf 文件中的所有文本内容, 基于文件随机访问, 不会将整个文件读入内存
+     * @param file pdf 文件
+     * @param sortByPosition true 表示按照特定顺序排列每页中的文本, 但需损耗一定性能, 而 false 表示不排序
+     * @param parallelism 并行抽取的线程数, 小于等于 1 时在当前线程顺序抽取
+     * @return pdf 所有文本内容
+     * @throws IOException IO 异常或者没有权限抽取 pdf 内容
+     */
+    public static List<String> pdfTextExtract(Path file, boolean sortByPosition, int parallelism) throws IOException {
+        return pdfTextExtract(PDFDocumentSource.of(file, parallelism > 1), sortByPosition, parallelism);
+    }
+
+    private static List<String> pdfTextExtract(PDFDocumentSource source, boolean sortByPosition, int parallelism) throws IOException {
         List<String> pageTexts = null;
         PDDocument document = null;
         Exception bak = null;
         try {
-            byte[] bytes = IOUtils.toByteArray(is);
-            document = Loader.loadPDF(bytes, "", null, null, IOUtils.createTempFileOnlyStreamCache());
+            document = source.load();
             AccessPermission ap = document.getCurrentAccessPermission();
             if (!ap.canExtractContent()) {
                 throw new IOException("You do not have permission to extract text");
             }
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setSortByPosition(sortByPosition);
 
             int pageNum = document.getNumberOfPages();
             if (pageNum < 1)
                 return null;
+            String[] rawTexts = stripPageTexts(document, source, sortByPosition, parallelism);
             pageTexts = new ArrayList<>(pageNum + pageNum >> 1);
-            for (int i = 0; i < pageNum; i++) {
-                stripper.setStartPage(i + 1); // 1-base
-                stripper.setEndPage(i + 1);
-
-                String text = stripper.getText(document);
+            for (String text : rawTexts) {
                 if (ContentHelper.hasText(text)) {
                     text = text.trim();
                     String[] split = text.split(ContentHelper.SYSTEM_NEW_LINE_SYMBOL);
@@ -410,8 +447,9 @@ public class ExtractHelper {
             bak = e;
         } finally {
             try {
-                if (is != null)
-                    is.close();
+                if (document != null)
+                    document.close();
+                source.close();
             } catch (IOException e) {
                 bak = e;
             }
@@ -448,268 +486,87 @@ public class ExtractHelper {
      * @throws Exception    文档抽取过程中可能会出现异常
      */
     public static List<DocumentParagraph> pdfTextExtract2Paragraphs(InputStream is, boolean sortByPosition, int threshold, float factor) throws Exception {
+        return pdfTextExtract2Paragraphs(is, sortByPosition, threshold, factor, 1);
+    }
+
+    /**
+     * 抽取 pdf 每个页面中的所有文本片段, 尝试基于特定的规则将文本片段合并为多个文本段落, 返回所有的文本段落集合 <br/>
+     * parallelism 大于 1 时页面范围会被拆分给多个线程并行抽取(每个线程持有独立的文档对象和 {@link PDFTextStripper}),
+     * 之后按页码顺序合并, 跨页段落的拼接结果与顺序抽取完全一致
+     * @param is    文档输入流
+     * @param sortByPosition    pdfbox 文本抽取规则, true 表示按照特定顺序排列每页中的文本, 但需损耗一定性能, 而 false 表示不排序
+     * @param threshold 文本段落字数阈值, 调整该阈值会影响文本片段拼接为文本段落的处理逻辑
+     * @param factor 段落字数影响因子, 段落最大字数 = threshold * (1 + factor), 浮点数 factor 取值范围 (0, 1.00)
+     * @param parallelism 并行抽取的线程数, 小于等于 1 时在当前线程顺序抽取
+     * @return  一个 pdf 文档中所有的文本段落集合
+     * @throws Exception    文档抽取过程中可能会出现异常
+     */
+    public static List<DocumentParagraph> pdfTextExtract2Paragraphs(InputStream is, boolean sortByPosition, int threshold, float factor, int parallelism) throws Exception {
+        return pdfTextExtract2Paragraphs(PDFDocumentSource.of(is), sortByPosition, threshold, factor, parallelism);
+    }
+
+    /**
+     * 抽取 pdf 每个页面中的所有文本片段并合并为文本段落, 使用默认参数, 基于文件随机访问, 不会将整个文件读入内存
+     * @param file pdf 文件
+     * @return 一个 pdf 文档中所有的文本段落集合
+     * @throws Exception 文档抽取过程中可能会出现异常
+     */
+    public static List<DocumentParagraph> pdfTextExtract2Paragraphs(Path file) throws Exception {
+        return pdfTextExtract2Paragraphs(file, false, DEFAULT_THRESHOLD, DEFAULT_FACTOR, 1);
+    }
+
+    /**
+     * 抽取 pdf 每个页面中的所有文本片段并合并为文本段落, 基于文件随机访问, 不会将整个文件读入内存 <br/>
+     * 并行抽取时使用内存映射读取文件, 多个工作线程共享操作系统的页缓存
+     * @param file pdf 文件
+     * @param sortByPosition    pdfbox 文本抽取规则, true 表示按照特定顺序排列每页中的文本, 但需损耗一定性能, 而 false 表示不排序
+     * @param threshold 文本段落字数阈值, 调整该阈值会影响文本片段拼接为文本段落的处理逻辑
+     * @param factor 段落字数影响因子, 段落最大字数 = threshold * (1 + factor)
+     * @param parallelism 并行抽取的线程数, 小于等于 1 时在当前线程顺序抽取
+     * @return  一个 pdf 文档中所有的文本段落集合
+     * @throws Exception    文档抽取过程中可能会出现异常
+     */
+    public static List<DocumentParagraph> pdfTextExtract2Paragraphs(Path file, boolean sortByPosition, int threshold, float factor, int parallelism) throws Exception {
+        return pdfTextExtract2Paragraphs(PDFDocumentSource.of(file, parallelism > 1), sortByPosition, threshold, factor, parallelism);
+    }
+
+    private static List<DocumentParagraph> pdfTextExtract2Paragraphs(PDFDocumentSource source, boolean sortByPosition, int threshold, float factor, int parallelism) throws Exception {
         List<DocumentParagraph> paragraphs = null;
         PDDocument document = null;
         Exception markEx = null;
         try {
-            byte[] bytes = IOUtils.toByteArray(is);
-            document = Loader.loadPDF(bytes, "", null, null, IOUtils.createTempFileOnlyStreamCache());
+            document = source.load();
             AccessPermission ap = document.getCurrentAccessPermission();
             if (!ap.canExtractContent()) {
                 throw new IOException("You do not have permission to extract text");
             }
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setSortByPosition(sortByPosition);
 
             int pageNum = document.getNumberOfPages();
+            PDFParagraphMerger merger = new PDFParagraphMerger(pageNum, threshold);
             if (pageNum > 0) {
-                paragraphs = new ArrayList<>(pageNum * 3 >> 1 + pageNum * 3);
-                String lastSegment = EMPTY_STRING;  // 每页的最后一个文本片段
-                // 0 表示无需处理; 
-                // 1 表示当前页的最后一个文本片段拼接到下一页第一个文本片段前; 
-                // 2 表示当前页的最后一个文本片段需要拼接到前一个片段后, 同时追加下一页的第一个文本片段; 
-                // 3 表示上一个片段被截断了, 需要将剩下的部分填充到下一个片段的开头
-                int joinFlag = 0;
-                for (int i = 0; i < pageNum; i++) {
-                    stripper.setStartPage(i + 1);
-                    stripper.setEndPage(i + 1);
-                    String pageFullText = stripper.getText(document);
-                    if (ContentHelper.hasText(pageFullText)) {
-                        // 全文根据换行符拆分为多个文本片段
-                        String[] split = pageFullText.trim().split(ContentHelper.SYSTEM_NEW_LINE_SYMBOL);
-                        List<String> cleanTexts = Arrays.stream(split).filter(t -> {
-                            boolean equals = EMPTY_STRING.equals(t.trim());
-                            return !equals;
-                        }).collect(Collectors.toList());
-
-                        // 开始处理当前页面中的所有文本片段
-                        if (!cleanTexts.isEmpty()) {
-                            StringBuilder tmp = new StringBuilder();
-                            int p = 1;
-                            // 当前页面第一段文本需要追加上一页的最后一段文本
-                            if (joinFlag == 1) {
-                                tmp.append(lastSegment);
-                                lastSegment = EMPTY_STRING;
-                            }
-                            for (int j = 0; j < cleanTexts.size(); j++) {
-                                String segment = cleanTexts.get(j);
-                                if (segment != null && !EMPTY_STRING.equals(segment)) {
-                                    if (j == cleanTexts.size() - 1) {   // 每个页面的最后一段文本
-                                        if (cleanTexts.size() == 1) {   // 当前页面只有一个文本片段时
-                                            tmp.append(segment);
-                                            paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
-                                            tmp = new StringBuilder();
-                                            joinFlag = 0;
-                                            lastSegment = EMPTY_STRING;
-                                        } else {
-                                            if (i != pageNum - 1) {
-                                                // 非最后一页的其他页面的最后一个文本片段
-                                                // 如果当前页面全文都没有文本终止符, 则不做任何处理, 保存当前文本即可
-                                                if (joinFlag == 3)
-                                                    tmp.append(lastSegment);
-                                                String tt = tmp.toString();
-                                                StringBuilder full = null;
-                                                if (!paragraphs.isEmpty()) {
-                                                    full = new StringBuilder();
-                                                    for (int i1 = paragraphs.size() - 1; i1 >= 0; i1--) {
-                                                        DocumentParagraph p1 = paragraphs.get(i1);
-                                                        Integer pn = p1.getPagination();
-                                                        if (pn == i + 1) {
-                                                            full.append(p1.getContent());
-                                                        } else
-                                                            break;
-                                                    }
-                                                    full.append(tt);
-                                                }
-                                                int tmpI = -1;
-                                                if (full != null)
-                                                    tmpI = lastEndpoint(full.toString());
-                                                else
-                                                    tmpI = lastEndpoint(tt);
-                                                if (tmpI == -1) {
-                                                    // 当前页面全文没有一个完整的句子, 则无需考虑最后一段的情况
-                                                    paragraphs.add(new DocumentParagraph(i + 1, p++, tt + segment));
-                                                    tmp = new StringBuilder();
-                                                    joinFlag = 0;
-                                                    lastSegment = EMPTY_STRING;
-                                                    continue;
-                                                }
-                                                // 考虑 tmp 为空的情况
-                                                char curLast = segment.charAt(segment.length() - 1);
-                                                boolean curFlag = runEndpointMatch(curLast);
-                                                if (tmp.length() == 0) {
-                                                    // 当前页面最后一段, 但是 tmp 是空的, 可能是字数原因新开了一个段落
-                                                    DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
-                                                    String lastParagraph = lastParagraphObj.getContent();
-                                                    char preLast = lastParagraph.charAt(lastParagraph.length() - 1);
-                                                    boolean preFlag = runEndpointMatch(preLast);
-                                                    if (!preFlag && !curFlag) {
-                                                        // 上一段和当前段的结束都不是语句结束符, 合并当前段和上一段以及下一页的第一段
-                                                        lastParagraphObj.setContent(lastParagraphObj.getContent() + segment);
-                                                        joinFlag = 2;
-                                                    }
-                                                    if (preFlag && !curFlag) {
-                                                        // 上一段结束了, 但是当前段还未结束, 当前段拼接下一页的第一段
-                                                        lastSegment = segment;
-                                                        joinFlag = 1;
-                                                    }
-                                                    if (!preFlag && curFlag || preFlag && curFlag) {
-                                                        // 场景 1：上一段未结束, 当前段结束, 则合并到上一段
-                                                        // 场景 2：两段都结束了, 也合并到上一段中
-                                                        lastParagraphObj.setContent(lastParagraphObj.getContent() + segment);
-                                                        joinFlag = 0;
-                                                    }
-                                                } else {
-                                                    char preLast = tmp.charAt(tmp.length() - 1);
-                                                    boolean preFlag = runEndpointMatch(preLast);
-                                                    if (!preFlag && !curFlag) {
-                                                        // 上一段和当前段的结束都不是语句结束符, 合并当前段和上一段以及下一页的第一段
-                                                        tmp.append(segment);
-                                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
-                                                        joinFlag = 2;
-                                                    }
-                                                    if (preFlag && !curFlag) {
-                                                        // 上一段结束了, 但是当前段还未结束, 当前段拼接下一页的第一段
-                                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
-                                                        lastSegment = segment;
-                                                        joinFlag = 1;
-                                                    }
-                                                    if (!preFlag && curFlag || preFlag && curFlag) {
-                                                        // 场景 1：上一段未结束, 当前段结束, 则合并到上一段
-                                                        // 场景 2：两段都结束了, 也合并到上一段中
-                                                        tmp.append(segment);
-                                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
-                                                        joinFlag = 0;
-                                                    }
-                                                    tmp = new StringBuilder();
-                                                }
-                                            } else {
-                                                // 最后一页的最后一个段落
-                                                tmp.append(segment);
-                                                paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
-                                            }
-                                        }
-                                    } else {
-                                        // 正在处理当前页面第一个文本片段, 同时需要将第一个文本片段追加到上一个文本段落中
-                                        if (j == 0 && joinFlag == 2) {  // joinFlag = 2 时 tmp 一定是空的
-                                            DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
-                                            if (lastParagraphObj != null) {
-                                                String preParagraph = lastParagraphObj.getContent();
-                                                int idx = lastEndpoint(segment);
-                                                if (idx == -1) {
-                                                    // 继续向下寻找可以截断的文本
-                                                    StringBuilder sb = new StringBuilder(preParagraph);
-                                                    sb.append(segment);
-                                                    int k = j + 1;
-                                                    for (; k < cleanTexts.size() - 1; k++) {
-                                                        String s = cleanTexts.get(k);
-                                                        int x = lastEndpoint(s);
-                                                        if (x != -1) {
-                                                            String pre = s.substring(0, x + 1);
-                                                            String last = s.substring(x + 1);
-                                                            sb.append(pre);
-                                                            joinFlag = 3;
-                                                            lastSegment = last;
-                                                            j = k;
-                                                            preParagraph = sb.toString();
-                                                            break;
-                                                        } else {
-                                                            sb.append(s);
-                                                        }
-                                                    }
-                                                    if (k == cleanTexts.size() - 1) {
-                                                        j = k - 1;
-                                                        preParagraph = sb.toString();
-                                                        joinFlag = 0;
-                                                    }
-                                                } else {
-                                                    String pre = segment.substring(0, idx + 1);
-                                                    String last = segment.substring(idx + 1);
-                                                    preParagraph += pre;
-                                                    joinFlag = 3;
-                                                    lastSegment = last;
-                                                }
-                                                lastParagraphObj.setContent(preParagraph);
-                                            }
-                                        } else {
-                                            // 处理常规文本片段, 持续拼接片段直到超过阈值
-                                            if (joinFlag == 3) {
-                                                tmp.append(lastSegment);
-                                                // len += lastSegment.length();
-                                                lastSegment = EMPTY_STRING;
-                                                joinFlag = 0;
-                                            }
-                                            tmp.append(segment);
-                                            if (tmp.length() >= threshold) {
-                                                String paragraph = tmp.toString();
-                                                tmp = new StringBuilder();
-                                                int idx = lastEndpoint(paragraph);
-                                                if (idx != -1) {
-                                                    String pre = paragraph.substring(0, idx + 1);
-                                                    String last = paragraph.substring(idx + 1);
-                                                    paragraphs.add(new DocumentParagraph(i + 1, p++, pre));
-                                                    lastSegment = last;
-                                                    joinFlag = 3;
-                                                } else {
-                                                    // 继续寻找下一个句子休止的地方
-                                                    int k = j + 1;
-                                                    StringBuilder sb = new StringBuilder(paragraph);
-                                                    for (; k < cleanTexts.size() - 1; k++) {
-                                                        String s = cleanTexts.get(k);
-                                                        int x = lastEndpoint(s);
-                                                        if (x != -1) {
-                                                            // 找到后就保存
-                                                            String pre = s.substring(0, x + 1);
-                                                            String last = s.substring(x + 1);
-                                                            sb.append(pre);
-                                                            joinFlag = 3;
-                                                            lastSegment = last;
-                                                            j = k;
-                                                            paragraph = sb.toString();
-                                                            break;
-                                                        } else
-                                                            sb.append(s);
-                                                    }
-                                                    if (k == cleanTexts.size() - 1) {
-                                                        j = k - 1;
-                                                        paragraph = sb.toString();
-                                                        joinFlag = 0;
-                                                        lastSegment = EMPTY_STRING;
-                                                    }
-                                                    paragraphs.add(new DocumentParagraph(i + 1, p++, paragraph));
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        } else {
-                            // 没有实际的内容, 也需要还原备份
-                            if (joinFlag == 1 && !EMPTY_STRING.equals(lastSegment)) {
-                                DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
-                                if (lastParagraphObj != null) {
-                                    lastParagraphObj.setContent(lastParagraphObj.getContent() + lastSegment);
-                                    lastSegment = EMPTY_STRING;
-                                }
-                            }
-                        }
-                    } else {
-                        // 当前页面没有抽取到文本, 则把前一页备份的最后一个文本片段还原
-                        if (!paragraphs.isEmpty() && joinFlag == 1 && !EMPTY_STRING.equals(lastSegment)) {
-                            DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
-                            if (lastParagraphObj != null) {
-                                lastParagraphObj.setContent(lastParagraphObj.getContent() + lastSegment);
-                                lastSegment = EMPTY_STRING;
-                            }
-                        }
+                if (parallelism > 1 && pageNum > 1) {
+                    String[] pageTexts = stripPageTextsInParallel(source, pageNum, sortByPosition, parallelism);
+                    for (int i = 0; i < pageNum; i++) {
+                        merger.mergePage(i, pageTexts[i]);
+                    }
+                } else {
+                    // 顺序抽取时逐页合并, 无需保存所有页面的文本
+                    PDFTextStripper stripper = new PDFTextStripper();
+                    stripper.setSortByPosition(sortByPosition);
+                    for (int i = 0; i < pageNum; i++) {
+                        stripper.setStartPage(i + 1);
+                        stripper.setEndPage(i + 1);
+                        merger.mergePage(i, stripper.getText(document));
                     }
                 }
             }
+            paragraphs = merger.getParagraphs();
         } catch (Exception e) {
             markEx = e;
         } finally {
             if (document != null)
                 document.close();
+            source.close();
         }
 
         if (markEx != null)
@@ -719,26 +576,81 @@ public class ExtractHelper {
     }
 
     /**
-     * 找到指定文本中最后一个语句休止符的下标, 未找到则返回 -1
-     * @param text 目标字符串
-     * @return 下标 0-base, 未找到则返回 -1
+     * 抽取 pdf 每一页的全文, 数组下标对应页码(0-base)
+     * @param document 已加载的文档, 顺序抽取时使用
+     * @param source pdf 数据来源, 并行抽取时每个线程基于它加载独立的文档对象
+     * @param sortByPosition 是否按位置排序文本
+     * @param parallelism 并行线程数
+     * @return 每一页的全文
      */
-    private static int lastEndpoint(String text) {
-        int idx = -1;
-        for (int i = 0; i < text.length(); i++) {
-            if (runEndpointMatch(text.charAt(i))) {
-                idx = i;
-            }
+    private static String[] stripPageTexts(PDDocument document, PDFDocumentSource source, boolean sortByPosition, int parallelism) throws Exception {
+        int pageNum = document.getNumberOfPages();
+        if (parallelism > 1 && pageNum > 1)
+            return stripPageTextsInParallel(source, pageNum, sortByPosition, parallelism);
+        String[] pageTexts = new String[pageNum];
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(sortByPosition);
+        for (int i = 0; i < pageNum; i++) {
+            stripper.setStartPage(i + 1); // 1-base
+            stripper.setEndPage(i + 1);
+            pageTexts[i] = stripper.getText(document);
         }
-        return idx;
+        return pageTexts;
     }
 
-    private static boolean runEndpointMatch(char c) {
-        for (char s : SENTENCE_ENDPOINTS) {
-            if (s == c)
-                return true;
+    /**
+     * 多线程并行抽取 pdf 每一页的全文 <br/>
+     * PDDocument 和 PDFTextStripper 都不是线程安全的, 因此每个工作线程加载自己的文档对象,
+     * 然后以 {@link #PARALLEL_PAGE_BLOCK} 页为单位领取页面范围, 直到所有页面处理完毕
+     * @param source pdf 数据来源
+     * @param pageNum 总页数
+     * @param sortByPosition 是否按位置排序文本
+     * @param parallelism 并行线程数
+     * @return 每一页的全文, 数组下标对应页码(0-base)
+     */
+    private static String[] stripPageTextsInParallel(PDFDocumentSource source, int pageNum, boolean sortByPosition, int parallelism) throws Exception {
+        String[] pageTexts = new String[pageNum];
+        int workers = Math.min(parallelism, (pageNum + PARALLEL_PAGE_BLOCK - 1) / PARALLEL_PAGE_BLOCK);
+        AtomicInteger cursor = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "pdf-text-stripper");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    try (PDDocument doc = source.load()) {
+                        PDFTextStripper stripper = new PDFTextStripper();
+                        stripper.setSortByPosition(sortByPosition);
+                        int start;
+                        while ((start = cursor.getAndAdd(PARALLEL_PAGE_BLOCK)) < pageNum) {
+                            int end = Math.min(start + PARALLEL_PAGE_BLOCK, pageNum);
+                            for (int i = start; i < end; i++) {
+                                stripper.setStartPage(i + 1);
+                                stripper.setEndPage(i + 1);
+                                pageTexts[i] = stripper.getText(doc);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception)
+                        throw (Exception) cause;
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
-        return false;
+        return pageTexts;
     }
 
     public static void main(String[] args) throws Exception {
@@ -0,0 +1,184 @@
+package io.naivekyo.extractor;
+
+import io.naivekyo.content.ContentType;
+import io.naivekyo.support.image.MetafileConverter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>抽取选项, 通过 {@link ExtractorFactory} 传递给抽取器</p>
+ * <p>目前支持按照内容类型筛选抽取结果, 未选择的类型不会输出. 没有选择 {@link ContentType#IMAGE} 时, 
+ * 抽取器不会读取文档中的图片数据, 也不会进行 WMF/EMF 转换, 适合只需要文本的场景(例如构建搜索索引)</p>
+ * <p>Word 和 PPT 中的 WMF/EMF 图片通过 {@link MetafileConverter} 转换为 png, 默认使用全局共享的转换器</p>
+ * <p>PDF 图片的去重方式和是否复制原始编码数据同样属于抽取选项, 它们会改变输出的图片, 因此参与结果缓存键的计算</p>
+ * <p><b>thread-safe</b></p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public final class ExtractionOptions {
+
+    /**
+     * 默认选项: 抽取所有类型的内容
+     */
+    public static final ExtractionOptions DEFAULT = new ExtractionOptionsBuilder().build();
+
+    /**
+     * 只抽取文本、表格和列表, 跳过所有图片
+     */
+    public static final ExtractionOptions TEXT_ONLY = new ExtractionOptionsBuilder()
+            .contentTypes(ContentType.TEXT, ContentType.TABLE, ContentType.LIST)
+            .build();
+
+    /**
+     * 需要输出的内容类型
+     */
+    private final Set<ContentType> contentTypes;
+
+    /**
+     * WMF/EMF 转换器, null 表示使用 {@link MetafileConverter#getDefault()}
+     */
+    private final MetafileConverter metafileConverter;
+
+    /**
+     * PDF 图片是否按内容去重, 默认只按对象引用去重
+     */
+    private final boolean deduplicateImagesByContent;
+
+    /**
+     * PDF 图片是否直接复制原始编码数据
+     */
+    private final boolean rawImagePassthrough;
+
+    private ExtractionOptions(ExtractionOptionsBuilder builder) {
+        this.contentTypes = Collections.unmodifiableSet(EnumSet.copyOf(builder.contentTypes));
+        this.metafileConverter = builder.metafileConverter;
+        this.deduplicateImagesByContent = builder.deduplicateImagesByContent;
+        this.rawImagePassthrough = builder.rawImagePassthrough;
+    }
+
+    /**
+     * 判断是否需要输出指定类型的内容
+     * @param type 内容类型
+     * @return true 表示需要输出
+     */
+    public boolean includes(ContentType type) {
+        return contentTypes.contains(type);
+    }
+
+    public Set<ContentType> getContentTypes() {
+        return contentTypes;
+    }
+
+    public MetafileConverter getMetafileConverter() {
+        return metafileConverter == null ? MetafileConverter.getDefault() : metafileConverter;
+    }
+
+    public boolean isDeduplicateImagesByContent() {
+        return deduplicateImagesByContent;
+    }
+
+    public boolean isRawImagePassthrough() {
+        return rawImagePassthrough;
+    }
+
+    public static class ExtractionOptionsBuilder {
+
+        private Set<ContentType> contentTypes = EnumSet.allOf(ContentType.class);
+
+        private MetafileConverter metafileConverter;
+
+        private boolean deduplicateImagesByContent;
+
+        private boolean rawImagePassthrough;
+
+        public ExtractionOptionsBuilder() {
+        }
+
+        /**
+         * 以已有的选项为基础创建 builder
+         * @param options 已有的选项
+         */
+        public ExtractionOptionsBuilder(ExtractionOptions options) {
+            this.contentTypes = EnumSet.copyOf(options.contentTypes);
+            this.metafileConverter = options.metafileConverter;
+            this.deduplicateImagesByContent = options.deduplicateImagesByContent;
+            this.rawImagePassthrough = options.rawImagePassthrough;
+        }
+
+        /**
+         * 设置需要输出的内容类型, 默认输出所有类型
+         * @param types 内容类型, 至少包含一个
+         * @return builder
+         */
+        public ExtractionOptionsBuilder contentTypes(ContentType... types) {
+            if (types == null || types.length == 0)
+                throw new RuntimeException("至少需要选择一种内容类型");
+            this.contentTypes = EnumSet.noneOf(ContentType.class);
+            Collections.addAll(this.contentTypes, types);
+            return this;
+        }
+
+        /**
+         * 设置 WMF/EMF 转换器, 例如使用较低的分辨率或者 {@link MetafileConverter.Quality#FAST}
+         * @param metafileConverter 转换器, null 表示使用全局共享的转换器
+         * @return builder
+         */
+        public ExtractionOptionsBuilder metafileConverter(MetafileConverter metafileConverter) {
+            this.metafileConverter = metafileConverter;
+            return this;
+        }
+
+        /**
+         * 设置 PDF 图片是否按内容去重. 默认情况下多个页面引用同一个 image XObject 时只转换一次;
+         * 开启后内容相同但是对象不同的图片(例如每页单独嵌入的 logo)也只转换一次, 代价是需要计算每个 image XObject 的摘要
+         * @param deduplicateImagesByContent true 表示按内容去重
+         * @return builder
+         */
+        public ExtractionOptionsBuilder deduplicateImagesByContent(boolean deduplicateImagesByContent) {
+            this.deduplicateImagesByContent = deduplicateImagesByContent;
+            return this;
+        }
+
+        /**
+         * 设置 PDF 图片是否直接复制原始编码数据(raw passthrough). 开启后图片不会被解码为 BufferedImage 再重新编码,
+         * 而是输出文档中保存的字节以及 filter、解码参数, 见 {@link io.naivekyo.content.impl.EncodedImageContent}, 适合只需要归档图片的场景
+         * @param rawImagePassthrough true 表示复制原始编码数据
+         * @return builder
+         */
+        public ExtractionOptionsBuilder rawImagePassthrough(boolean rawImagePassthrough) {
+            this.rawImagePassthrough = rawImagePassthrough;
+            return this;
+        }
+
+        public ExtractionOptions build() {
+            return new ExtractionOptions(this);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExtractionOptions that = (ExtractionOptions) o;
+        return contentTypes.equals(that.contentTypes) && Objects.equals(metafileConverter, that.metafileConverter)
+                && deduplicateImagesByContent == that.deduplicateImagesByContent && rawImagePassthrough == that.rawImagePassthrough;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contentTypes, metafileConverter, deduplicateImagesByContent, rawImagePassthrough);
+    }
+
+    @Override
+    public String toString() {
+        return "ExtractionOptions{" +
+                "contentTypes=" + contentTypes +
+                ", metafileConverter=" + getMetafileConverter() +
+                ", deduplicateImagesByContent=" + deduplicateImagesByContent +
+                ", rawImagePassthrough=" + rawImagePassthrough +
+                '}';
+    }
+}
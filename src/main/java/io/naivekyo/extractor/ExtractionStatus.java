@@ -0,0 +1,25 @@
+package io.naivekyo.extractor;
+
+/**
+ * 抽取结束时的状态, 见 {@link AbstractContentExtractor#getStatus()}
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public enum ExtractionStatus {
+
+    /**
+     * 抽取了文档的全部内容
+     */
+    COMPLETED,
+
+    /**
+     * 超过了 {@link CancellationToken} 的截止时间, 只抽取了部分内容
+     */
+    TIMED_OUT,
+
+    /**
+     * 通过 {@link CancellationToken#cancel()} 取消, 只抽取了部分内容
+     */
+    CANCELLED
+
+}
@@ -7,11 +7,14 @@ import io.naivekyo.extractor.impl.PDFFileContentExtractor;
 import io.naivekyo.extractor.impl.TxtFileContentExtractor;
 import io.naivekyo.extractor.impl.XSLFPPTContentExtractor;
 import io.naivekyo.extractor.impl.XSSFExcelContentExtractor;
+import io.naivekyo.extractor.impl.XWPFStreamingWordContentExtractor;
 import io.naivekyo.extractor.impl.XWPFWordContentExtractor;
+import io.naivekyo.support.cache.ExtractionCache;
 import org.apache.poi.poifs.filesystem.FileMagic;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 /**
  * 内容抽取器 factory class, 包含快速创建抽取器的静态工厂方法, 以及其他一些便捷的方法
@@ -32,6 +35,16 @@ public final class ExtractorFactory {
         return new TxtFileContentExtractor(is);
     }
 
+    /**
+     * factory method: create .txt file extractor. 
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .txt 文件内容抽取器实例
+     */
+    public static ContentExtractor createTxtFileExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createTxtFileExtractor(is), options);
+    }
+
     /**
      * factory method: create .doc file extractor. 
      * @param is 文档输入流
@@ -41,6 +54,16 @@ public final class ExtractorFactory {
         return new HWPFWordContentExtractor(is);
     }
 
+    /**
+     * factory method: create .doc file extractor. 
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .doc 文件内容抽取器实例
+     */
+    public static ContentExtractor createHWPFWordExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createHWPFWordExtractor(is), options);
+    }
+
     /**
      * factory method: create .docx file extractor. 
      * @param is 文档输入流
@@ -50,6 +73,54 @@ public final class ExtractorFactory {
         return new XWPFWordContentExtractor(is);
     }
 
+    /**
+     * factory method: create .docx file extractor. 
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .docx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXWPFWordExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createXWPFWordExtractor(is), options);
+    }
+
+    /**
+     * factory method: create .docx file extractor, 基于 StAX 流式解析, 不构建 XWPFDocument, 适合处理大文件
+     * @param is 文档输入流
+     * @return .docx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXWPFStreamingWordExtractor(InputStream is) {
+        return new XWPFStreamingWordContentExtractor(is);
+    }
+
+    /**
+     * factory method: create .docx file extractor, 基于 StAX 流式解析, 不构建 XWPFDocument, 适合处理大文件
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .docx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXWPFStreamingWordExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createXWPFStreamingWordExtractor(is), options);
+    }
+
+    /**
+     * factory method: create .docx file extractor, 基于 StAX 流式解析并按需读取 zip 条目, 适合处理大文件
+     * @param path .docx 文件
+     * @return .docx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXWPFStreamingWordExtractor(Path path) {
+        return new XWPFStreamingWordContentExtractor(path);
+    }
+
+    /**
+     * factory method: create .docx file extractor, 基于 StAX 流式解析并按需读取 zip 条目, 适合处理大文件
+     * @param path .docx 文件
+     * @param options 抽取选项
+     * @return .docx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXWPFStreamingWordExtractor(Path path, ExtractionOptions options) {
+        return withOptions(createXWPFStreamingWordExtractor(path), options);
+    }
+
     /**
      * 根据文件字节流自动检测 word 文件类型(.doc/.docx)
      * @param is	文件输入流
@@ -68,6 +139,18 @@ public final class ExtractorFactory {
             throw new RuntimeException("未知的 word 文件类型");
     }
 
+    /**
+     * 根据文件字节流自动检测 word 文件类型(.doc/.docx)
+     * @param is	文件输入流
+     * @param options 抽取选项
+     * @return		抽取器实例
+     * @throws IOException IOException
+     * @throws RuntimeException 未知的类型
+     */
+    public static ContentExtractor smartCreateWordExtractor(InputStream is, ExtractionOptions options) throws IOException {
+        return withOptions(smartCreateWordExtractor(is), options);
+    }
+
     /**
      * factory method: create .pdf file extractor. 
      * @param is 文档输入流
@@ -77,6 +160,56 @@ public final class ExtractorFactory {
         return new PDFFileContentExtractor(is);
     }
 
+    /**
+     * factory method: create .pdf file extractor. 
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .pdf 文件内容抽取器实例
+     */
+    public static ContentExtractor createPDFFileExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createPDFFileExtractor(is), options);
+    }
+
+    /**
+     * factory method: create .pdf file extractor, 随机访问文件内容, 不会将整个文件读入内存
+     * @param path pdf 文件
+     * @return .pdf 文件内容抽取器实例
+     */
+    public static ContentExtractor createPDFFileExtractor(Path path) {
+        return new PDFFileContentExtractor(path);
+    }
+
+    /**
+     * factory method: create .pdf file extractor, 随机访问文件内容, 不会将整个文件读入内存
+     * @param path pdf 文件
+     * @param options 抽取选项
+     * @return .pdf 文件内容抽取器实例
+     */
+    public static ContentExtractor createPDFFileExtractor(Path path, ExtractionOptions options) {
+        return withOptions(createPDFFileExtractor(path), options);
+    }
+
+    /**
+     * factory method: create .pdf file extractor, 随机访问文件内容, 不会将整个文件读入内存
+     * @param path pdf 文件
+     * @param memoryMapped true 表示使用内存映射读取文件, false 表示使用 buffered file
+     * @return .pdf 文件内容抽取器实例
+     */
+    public static ContentExtractor createPDFFileExtractor(Path path, boolean memoryMapped) {
+        return new PDFFileContentExtractor(path, memoryMapped);
+    }
+
+    /**
+     * factory method: create .pdf file extractor, 随机访问文件内容, 不会将整个文件读入内存
+     * @param path pdf 文件
+     * @param memoryMapped true 表示使用内存映射读取文件, false 表示使用 buffered file
+     * @param options 抽取选项
+     * @return .pdf 文件内容抽取器实例
+     */
+    public static ContentExtractor createPDFFileExtractor(Path path, boolean memoryMapped, ExtractionOptions options) {
+        return withOptions(createPDFFileExtractor(path, memoryMapped), options);
+    }
+
     /**
      * factory method: create .ppt file extractor
      * @param is 文档输入流
@@ -86,6 +219,16 @@ public final class ExtractorFactory {
         return new HSLFPPTContentExtractor(is);
     }
 
+    /**
+     * factory method: create .ppt file extractor
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .ppt 文件内容抽取器实例
+     */
+    public static ContentExtractor createHSLFPPTExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createHSLFPPTExtractor(is), options);
+    }
+
     /**
      * factory method: create .pptx file extractor
      * @param is 文档输入流
@@ -95,6 +238,16 @@ public final class ExtractorFactory {
         return new XSLFPPTContentExtractor(is);
     }
 
+    /**
+     * factory method: create .pptx file extractor
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .pptx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXSLFPPTExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createXSLFPPTExtractor(is), options);
+    }
+
 
     /**
      * 根据文件字节流自动检测 ppt 文件类型(.ppt/.pptx)
@@ -114,6 +267,18 @@ public final class ExtractorFactory {
             throw new RuntimeException("未知的 ppt 文件类型");
     }
 
+    /**
+     * 根据文件字节流自动检测 ppt 文件类型(.ppt/.pptx)
+     * @param is	文件输入流
+     * @param options 抽取选项
+     * @return		抽取器实例
+     * @throws IOException IOException
+     * @throws RuntimeException 未知的类型
+     */
+    public static ContentExtractor smartCreatePPTExtractor(InputStream is, ExtractionOptions options) throws IOException {
+        return withOptions(smartCreatePPTExtractor(is), options);
+    }
+
     /**
      * factory method: create .xls file extractor
      * @param is 文档输入流
@@ -123,6 +288,35 @@ public final class ExtractorFactory {
         return new HSSFExcelContentExtractor(is);
     }
 
+    /**
+     * factory method: create .xls file extractor
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .xls 文件内容抽取器实例
+     */
+    public static ContentExtractor createHSSFExcelExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createHSSFExcelExtractor(is), options);
+    }
+
+    /**
+     * factory method: create .xls file extractor, 只读打开文件, 按需读取数据块
+     * @param path .xls 文件
+     * @return .xls 文件内容抽取器实例
+     */
+    public static ContentExtractor createHSSFExcelExtractor(Path path) {
+        return new HSSFExcelContentExtractor(path);
+    }
+
+    /**
+     * factory method: create .xls file extractor, 只读打开文件, 按需读取数据块
+     * @param path .xls 文件
+     * @param options 抽取选项
+     * @return .xls 文件内容抽取器实例
+     */
+    public static ContentExtractor createHSSFExcelExtractor(Path path, ExtractionOptions options) {
+        return withOptions(createHSSFExcelExtractor(path), options);
+    }
+
     /**
      * factory method: create .xlsx file extractor
      * @param is 文档输入流
@@ -131,5 +325,63 @@ public final class ExtractorFactory {
     public static ContentExtractor createXSSFExcelExtractor(InputStream is) {
         return new XSSFExcelContentExtractor(is);
     }
+
+    /**
+     * factory method: create .xlsx file extractor
+     * @param is 文档输入流
+     * @param options 抽取选项
+     * @return .xlsx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXSSFExcelExtractor(InputStream is, ExtractionOptions options) {
+        return withOptions(createXSSFExcelExtractor(is), options);
+    }
+
+    /**
+     * factory method: create .xlsx file extractor, 按需读取 zip 条目, 适合处理大文件
+     * @param path .xlsx 文件
+     * @return .xlsx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXSSFExcelExtractor(Path path) {
+        return new XSSFExcelContentExtractor(path);
+    }
+
+    /**
+     * factory method: create .xlsx file extractor, 按需读取 zip 条目, 适合处理大文件
+     * @param path .xlsx 文件
+     * @param options 抽取选项
+     * @return .xlsx 文件内容抽取器实例
+     */
+    public static ContentExtractor createXSSFExcelExtractor(Path path, ExtractionOptions options) {
+        return withOptions(createXSSFExcelExtractor(path), options);
+    }
+
+    /**
+     * factory method: 为抽取器增加结果缓存, 缓存键由文件内容摘要、抽取器类型和抽取选项决定
+     * @param delegate 实际的抽取器, 应当基于 file 创建, 抽取选项需要在此之前设置
+     * @param cache 结果缓存
+     * @param file 文档文件, 用于计算内容摘要
+     * @return 带缓存的抽取器实例
+     * @throws IOException 读取文件计算摘要时出现的异常
+     */
+    public static ContentExtractor createCachingExtractor(ContentExtractor delegate, ExtractionCache cache, Path file) throws IOException {
+        String contentHash = ExtractionCache.contentHash(file);
+        ExtractionOptions options = delegate instanceof AbstractContentExtractor ? ((AbstractContentExtractor) delegate).getOptions() : ExtractionOptions.DEFAULT;
+        // 默认选项不参与计算, 保持已有缓存键不变
+        String key = ExtractionOptions.DEFAULT.equals(options)
+                ? ExtractionCache.key(contentHash, "contents", delegate.getClass().getName())
+                : ExtractionCache.key(contentHash, "contents", delegate.getClass().getName(), options);
+        return new CachingContentExtractor(delegate, cache, key);
+    }
+
+    /**
+     * 设置抽取器的抽取选项
+     * @param extractor 抽取器
+     * @param options 抽取选项
+     * @return 抽取器
+     */
+    private static ContentExtractor withOptions(ContentExtractor extractor, ExtractionOptions options) {
+        ((AbstractContentExtractor) extractor).setOptions(options);
+        return extractor;
+    }
     
 }
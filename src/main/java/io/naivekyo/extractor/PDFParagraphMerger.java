@@ -0,0 +1,362 @@
+package io.naivekyo.extractor;
+
+import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.DocumentParagraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.naivekyo.extractor.ExtractHelper.EMPTY_STRING;
+
+/**
+ * pdf 文本段落合并器: 按页码顺序接收每一页的全文, 基于语句结束符将文本片段合并为文本段落, 并处理跨页的段落拼接 <br/>
+ * 页面文本的来源(顺序抽取或者多线程并行抽取)不影响合并结果, 只要求按页码顺序调用 {@link #mergePage(int, String)} <br/>
+ * 文本片段以下标的形式引用页面全文, 语句结束符的位置在拼接时增量维护, 合并的耗时与页面文本长度成线性关系 <br/>
+ * <b>not thread-safe</b>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+class PDFParagraphMerger {
+
+    /**
+     * 语句结束符查找表, 下标为字符
+     */
+    private static final boolean[] ENDPOINT_TABLE = new boolean[Character.MAX_VALUE + 1];
+
+    static {
+        for (char c : ExtractHelper.SENTENCE_ENDPOINTS) {
+            ENDPOINT_TABLE[c] = true;
+        }
+    }
+
+    /**
+     * 文档总页数
+     */
+    private final int pageNum;
+
+    /**
+     * 文本段落字数阈值
+     */
+    private final int threshold;
+
+    /**
+     * 合并得到的所有段落, 文档没有页面时为 null
+     */
+    private final List<DocumentParagraph> paragraphs;
+
+    /**
+     * 每页的最后一个文本片段
+     */
+    private String lastSegment = EMPTY_STRING;
+
+    /**
+     * 0 表示无需处理; <br/>
+     * 1 表示当前页的最后一个文本片段拼接到下一页第一个文本片段前; <br/>
+     * 2 表示当前页的最后一个文本片段需要拼接到前一个片段后, 同时追加下一页的第一个文本片段; <br/>
+     * 3 表示上一个片段被截断了, 需要将剩下的部分填充到下一个片段的开头
+     */
+    private int joinFlag = 0;
+
+    /**
+     * 当前页面的全文, 文本片段通过下标引用其中的字符, 避免复制
+     */
+    private String text;
+
+    /**
+     * 当前页面非空白文本片段在全文中的起始下标(包含)、结束下标(不包含)以及片段中最后一个语句结束符的下标(没有则为 -1)
+     */
+    private int[] segStart = new int[16];
+
+    private int[] segEnd = new int[16];
+
+    private int[] segEndpoint = new int[16];
+
+    private int segCount;
+
+    /**
+     * 当前页面正在拼接的段落, 所有页面复用
+     */
+    private final StringBuilder tmp = new StringBuilder();
+
+    /**
+     * {@link #tmp} 中最后一个语句结束符的下标, 没有则为 -1, 随着追加增量更新
+     */
+    private int tmpEndpoint = -1;
+
+    PDFParagraphMerger(int pageNum, int threshold) {
+        this.pageNum = pageNum;
+        this.threshold = threshold;
+        this.paragraphs = pageNum > 0 ? new ArrayList<>(pageNum * 3 >> 1 + pageNum * 3) : null;
+    }
+
+    /**
+     * 合并下一页的文本, 必须按照页码顺序调用
+     * @param i 页码下标, 0-base
+     * @param pageFullText 当前页面的全文
+     */
+    void mergePage(int i, String pageFullText) {
+        if (ContentHelper.hasText(pageFullText)) {
+            // 全文根据换行符拆分为多个文本片段
+            int size = splitSegments(pageFullText);
+
+            // 开始处理当前页面中的所有文本片段
+            if (size > 0) {
+                resetTmp();
+                int p = 1;
+                // 当前页面已经生成的段落中是否包含语句结束符
+                boolean pageEndpoint = false;
+                // 当前页面第一段文本需要追加上一页的最后一段文本
+                if (joinFlag == 1) {
+                    appendText(lastSegment);
+                    lastSegment = EMPTY_STRING;
+                }
+                for (int j = 0; j < size; j++) {
+                    if (j == size - 1) {   // 每个页面的最后一段文本
+                        if (size == 1) {   // 当前页面只有一个文本片段时
+                            appendSegment(j);
+                            paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                            resetTmp();
+                            joinFlag = 0;
+                            lastSegment = EMPTY_STRING;
+                        } else {
+                            if (i != pageNum - 1) {
+                                // 非最后一页的其他页面的最后一个文本片段
+                                // 如果当前页面全文都没有文本终止符, 则不做任何处理, 保存当前文本即可
+                                if (joinFlag == 3)
+                                    appendText(lastSegment);
+                                if (!pageEndpoint && tmpEndpoint == -1) {
+                                    // 当前页面全文没有一个完整的句子, 则无需考虑最后一段的情况
+                                    appendSegment(j);
+                                    paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                    resetTmp();
+                                    joinFlag = 0;
+                                    lastSegment = EMPTY_STRING;
+                                    continue;
+                                }
+                                // 考虑 tmp 为空的情况
+                                boolean curFlag = ENDPOINT_TABLE[text.charAt(segEnd[j] - 1)];
+                                if (tmp.length() == 0) {
+                                    // 当前页面最后一段, 但是 tmp 是空的, 可能是字数原因新开了一个段落
+                                    DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                                    String lastParagraph = lastParagraphObj.getContent();
+                                    boolean preFlag = ENDPOINT_TABLE[lastParagraph.charAt(lastParagraph.length() - 1)];
+                                    if (curFlag) {
+                                        // 场景 1：上一段未结束, 当前段结束, 则合并到上一段
+                                        // 场景 2：两段都结束了, 也合并到上一段中
+                                        lastParagraphObj.setContent(lastParagraph + segment(j));
+                                        joinFlag = 0;
+                                    } else if (preFlag) {
+                                        // 上一段结束了, 但是当前段还未结束, 当前段拼接下一页的第一段
+                                        lastSegment = segment(j);
+                                        joinFlag = 1;
+                                    } else {
+                                        // 上一段和当前段的结束都不是语句结束符, 合并当前段和上一段以及下一页的第一段
+                                        lastParagraphObj.setContent(lastParagraph + segment(j));
+                                        joinFlag = 2;
+                                    }
+                                } else {
+                                    boolean preFlag = ENDPOINT_TABLE[tmp.charAt(tmp.length() - 1)];
+                                    if (curFlag) {
+                                        // 场景 1：上一段未结束, 当前段结束, 则合并到上一段
+                                        // 场景 2：两段都结束了, 也合并到上一段中
+                                        appendSegment(j);
+                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                        joinFlag = 0;
+                                    } else if (preFlag) {
+                                        // 上一段结束了, 但是当前段还未结束, 当前段拼接下一页的第一段
+                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                        lastSegment = segment(j);
+                                        joinFlag = 1;
+                                    } else {
+                                        // 上一段和当前段的结束都不是语句结束符, 合并当前段和上一段以及下一页的第一段
+                                        appendSegment(j);
+                                        paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                        joinFlag = 2;
+                                    }
+                                    resetTmp();
+                                }
+                            } else {
+                                // 最后一页的最后一个段落
+                                appendSegment(j);
+                                paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                            }
+                        }
+                    } else {
+                        // 正在处理当前页面第一个文本片段, 同时需要将第一个文本片段追加到上一个文本段落中
+                        if (j == 0 && joinFlag == 2) {  // joinFlag = 2 时 tmp 一定是空的
+                            DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                            if (lastParagraphObj != null) {
+                                // 从第一个片段开始向下寻找可以截断的文本
+                                StringBuilder sb = new StringBuilder(lastParagraphObj.getContent());
+                                int k = appendUntilEndpoint(sb, j, size);
+                                if (k == size - 1) {
+                                    j = k - 1;
+                                    joinFlag = 0;
+                                } else
+                                    j = k;
+                                lastParagraphObj.setContent(sb.toString());
+                            }
+                        } else {
+                            // 处理常规文本片段, 持续拼接片段直到超过阈值
+                            if (joinFlag == 3) {
+                                appendText(lastSegment);
+                                lastSegment = EMPTY_STRING;
+                                joinFlag = 0;
+                            }
+                            appendSegment(j);
+                            if (tmp.length() >= threshold) {
+                                if (tmpEndpoint != -1) {
+                                    paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.substring(0, tmpEndpoint + 1)));
+                                    lastSegment = tmp.substring(tmpEndpoint + 1);
+                                    joinFlag = 3;
+                                    pageEndpoint = true;
+                                } else {
+                                    // 继续寻找下一个句子休止的地方, 找到后就保存
+                                    int k = appendUntilEndpoint(tmp, j + 1, size);
+                                    if (k == size - 1) {
+                                        j = k - 1;
+                                        joinFlag = 0;
+                                        lastSegment = EMPTY_STRING;
+                                    } else {
+                                        j = k;
+                                        pageEndpoint = true;
+                                    }
+                                    paragraphs.add(new DocumentParagraph(i + 1, p++, tmp.toString()));
+                                }
+                                resetTmp();
+                            }
+                        }
+                    }
+                }
+            } else {
+                // 没有实际的内容, 也需要还原备份
+                if (joinFlag == 1 && !EMPTY_STRING.equals(lastSegment)) {
+                    DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                    if (lastParagraphObj != null) {
+                        lastParagraphObj.setContent(lastParagraphObj.getContent() + lastSegment);
+                        lastSegment = EMPTY_STRING;
+                    }
+                }
+            }
+            text = null;
+        } else {
+            // 当前页面没有抽取到文本, 则把前一页备份的最后一个文本片段还原
+            if (!paragraphs.isEmpty() && joinFlag == 1 && !EMPTY_STRING.equals(lastSegment)) {
+                DocumentParagraph lastParagraphObj = paragraphs.get(paragraphs.size() - 1);
+                if (lastParagraphObj != null) {
+                    lastParagraphObj.setContent(lastParagraphObj.getContent() + lastSegment);
+                    lastSegment = EMPTY_STRING;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取合并后的段落集合
+     * @return 所有段落, 文档没有页面时返回 null
+     */
+    List<DocumentParagraph> getParagraphs() {
+        return paragraphs;
+    }
+
+    /**
+     * 去掉页面全文首尾的空白后按照换行符拆分, 只记录非空白文本片段的位置, 同时找到每个片段中最后一个语句结束符, 与
+     * {@code pageFullText.trim().split(SYSTEM_NEW_LINE_SYMBOL)} 之后过滤空白片段的结果一致
+     * @param pageFullText 页面全文
+     * @return 非空白文本片段的数量
+     */
+    private int splitSegments(String pageFullText) {
+        text = pageFullText;
+        segCount = 0;
+        int start = 0;
+        int end = pageFullText.length();
+        while (start < end && pageFullText.charAt(start) <= ' ')
+            start++;
+        while (start < end && pageFullText.charAt(end - 1) <= ' ')
+            end--;
+        String separator = ContentHelper.SYSTEM_NEW_LINE_SYMBOL;
+        int from = start;
+        while (from <= end) {
+            int to = pageFullText.indexOf(separator, from);
+            if (to == -1 || to + separator.length() > end)
+                to = end;
+            addSegment(from, to);
+            from = to + separator.length();
+        }
+        return segCount;
+    }
+
+    private void addSegment(int start, int end) {
+        boolean blank = true;
+        int endpoint = -1;
+        for (int k = start; k < end; k++) {
+            char c = text.charAt(k);
+            if (c > ' ')
+                blank = false;
+            if (ENDPOINT_TABLE[c])
+                endpoint = k;
+        }
+        if (blank)
+            return;
+        if (segCount == segStart.length) {
+            int capacity = segCount << 1;
+            segStart = Arrays.copyOf(segStart, capacity);
+            segEnd = Arrays.copyOf(segEnd, capacity);
+            segEndpoint = Arrays.copyOf(segEndpoint, capacity);
+        }
+        segStart[segCount] = start;
+        segEnd[segCount] = end;
+        segEndpoint[segCount] = endpoint;
+        segCount++;
+    }
+
+    private String segment(int j) {
+        return text.substring(segStart[j], segEnd[j]);
+    }
+
+    private void appendSegment(int j) {
+        if (segEndpoint[j] != -1)
+            tmpEndpoint = tmp.length() + segEndpoint[j] - segStart[j];
+        tmp.append(text, segStart[j], segEnd[j]);
+    }
+
+    private void appendText(String str) {
+        for (int k = str.length() - 1; k >= 0; k--) {
+            if (ENDPOINT_TABLE[str.charAt(k)]) {
+                tmpEndpoint = tmp.length() + k;
+                break;
+            }
+        }
+        tmp.append(str);
+    }
+
+    private void resetTmp() {
+        tmp.setLength(0);
+        tmpEndpoint = -1;
+    }
+
+    /**
+     * 从第 from 个片段开始依次追加到 sb 中, 直到遇到包含语句结束符的片段(不包括页面的最后一个片段),
+     * 该片段只追加到最后一个语句结束符为止, 剩下的部分保存到 {@link #lastSegment} 中
+     * @param sb 目标
+     * @param from 起始片段下标
+     * @param size 片段数量
+     * @return 被截断的片段下标, 没有找到时返回 size - 1
+     */
+    private int appendUntilEndpoint(StringBuilder sb, int from, int size) {
+        int k = from;
+        for (; k < size - 1; k++) {
+            int x = segEndpoint[k];
+            if (x != -1) {
+                sb.append(text, segStart[k], x + 1);
+                lastSegment = text.substring(x + 1, segEnd[k]);
+                joinFlag = 3;
+                break;
+            }
+            sb.append(text, segStart[k], segEnd[k]);
+        }
+        return k;
+    }
+
+}
@@ -1,12 +1,13 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.ContentType;
 import io.naivekyo.content.impl.ImageContent;
 import io.naivekyo.content.impl.ListContent;
 import io.naivekyo.content.impl.TableContent;
 import io.naivekyo.content.impl.TextContent;
 import io.naivekyo.extractor.AbstractContentExtractor;
-import io.naivekyo.util.IOUtils;
+import io.naivekyo.support.image.MetafileConverter;
 import io.naivekyo.support.word.ImageType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,7 +39,6 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * <p>.ppt 后缀的 ppt 文件内容抽取器实现</p>
@@ -71,18 +71,22 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
             if (hslf instanceof HSLFSlideShow) {
                 HSLFSlideShow hslfSlideShow = (HSLFSlideShow) hslf;
                 
-                // 图片数据的 bitset
-                picBitSet = new BitSet(hslfSlideShow.getPictureData().size());
+                // 图片数据的 bitset, 不需要图片时不读取图片数据
+                boolean includeImages = isIncluded(ContentType.IMAGE);
+                if (includeImages)
+                    picBitSet = new BitSet(hslfSlideShow.getPictureData().size());
                 
                 // TODO 暂不处理音频数据
                 HSLFSoundData[] soundDataList = hslfSlideShow.getSoundData();
 
                 // 幻灯片母版只提取图片
-                List<HSLFSlideMaster> slideMasters = hslfSlideShow.getSlideMasters();
-                for (HSLFSlideMaster sm : slideMasters) {
-                    for (HSLFShape shape : sm.getShapes()) {
-                        if (shape instanceof HSLFPictureShape) {
-                            handlePictureShape(-1, "", (HSLFPictureShape) shape);
+                if (includeImages) {
+                    List<HSLFSlideMaster> slideMasters = hslfSlideShow.getSlideMasters();
+                    for (HSLFSlideMaster sm : slideMasters) {
+                        for (HSLFShape shape : sm.getShapes()) {
+                            if (shape instanceof HSLFPictureShape) {
+                                handlePictureShape(-1, "", (HSLFPictureShape) shape);
+                            }
                         }
                     }
                 }
@@ -93,18 +97,22 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
                 // 分页解析所有幻灯片
                 List<HSLFSlide> slides = hslfSlideShow.getSlides();
                 for (HSLFSlide currentSlide : slides) {
+                    if (isStopRequested())
+                        break;
                     int page = currentSlide.getSlideNumber();
-                    getContents().add(new TextContent(String.format("第 %d 页", page)));
+                    emit(new TextContent(String.format("第 %d 页", page)));
                     
                     // 处理批注文字
                     handleComment(page, currentSlide.getComments());
                     // 处理备注文字
                     handleNote(page, currentSlide.getNotes());
                     // 处理 layout TODO
-                    HSLFMasterSheet slideLayout = currentSlide.getSlideLayout();
-                    for (HSLFShape shape : slideLayout.getShapes()) {
-                        if (shape instanceof HSLFPictureShape)
-                            handlePictureShape(page, "", (HSLFPictureShape) shape);
+                    if (includeImages) {
+                        HSLFMasterSheet slideLayout = currentSlide.getSlideLayout();
+                        for (HSLFShape shape : slideLayout.getShapes()) {
+                            if (shape instanceof HSLFPictureShape)
+                                handlePictureShape(page, "", (HSLFPictureShape) shape);
+                        }
                     }
                     
                     // 当前幻灯片的所有内容
@@ -179,8 +187,8 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
             if (noteList != null && !noteList.isEmpty()) {
-                getContents().add(new TextContent(String.format("页码: %d -- 备注: ", page)));
-                getContents().addAll(noteList.stream().map(TextContent::new).collect(Collectors.toList()));
+                emit(new TextContent(String.format("页码: %d -- 备注: ", page)));
+                noteList.stream().map(TextContent::new).forEach(this::emit);
             }
         }
     }
@@ -203,8 +211,8 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
             if (commentList != null && !commentList.isEmpty()) {
-                getContents().add(new TextContent(String.format("页码: %d -- 批注: ", page)));
-                getContents().addAll(commentList.stream().map(TextContent::new).collect(Collectors.toList()));
+                emit(new TextContent(String.format("页码: %d -- 批注: ", page)));
+                commentList.stream().map(TextContent::new).forEach(this::emit);
             }
         }
     }
@@ -328,7 +336,7 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
             i++;
         }
         if (listContent != null && !listContent.isEmpty()) {
-            getContents().add(listContent);
+            emit(listContent);
         }
     }
 
@@ -362,7 +370,7 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
             }
         }
         if (builder != null)
-            getContents().add(builder.build());
+            emit(builder.build());
     }
 
     /**
@@ -383,7 +391,7 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
             if (sb != null) {
-                getContents().add(new TextContent(ContentHelper.cleanExtractedText(sb.toString())));
+                emit(new TextContent(ContentHelper.cleanExtractedText(sb.toString())));
             }
         }
     }
@@ -396,6 +404,9 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
      * @throws IOException IOException
      */
     private void handlePictureShape(int page, String oleName, HSLFPictureShape pic) throws IOException {
+        // 不需要图片时不读取图片数据
+        if (!isIncluded(ContentType.IMAGE))
+            return;
         int picIndex = pic.getPictureIndex();
         if (picIndex == 0) {
             if (page == -1)
@@ -421,13 +432,13 @@ public class HSLFPPTContentExtractor extends AbstractContentExtractor {
             String mimeType = pt.contentType;
             // WMF 和 EMF 文件全部转换为 PNG 图片
             if (PictureData.PictureType.WMF.equals(pt)) {
-                data = IOUtils.convertWMFToPNG(data);
-                getContents().add(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
+                data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.WMF);
+                emit(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
             } else if (PictureData.PictureType.EMF.equals(pt)) {
-                data = IOUtils.convertEMFToPNG(data);
-                getContents().add(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
+                data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.EMF);
+                emit(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
             } else {
-                getContents().add(new ImageContent(data, mimeType, extension.substring(extension.indexOf(".") + 1)));
+                emit(new ImageContent(data, mimeType, extension.substring(extension.indexOf(".") + 1)));
             }
             picBitSet.set(picIndex - 1);
         }
@@ -1,54 +1,92 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.extractor.AbstractContentExtractor;
+import io.naivekyo.support.excel.RowBatchCollector;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <p>.xls 后缀的 Excel 文件内容抽取器实现</p>
+ * <p>基于 {@link HSSFEventFactory} 事件模型逐条处理 BIFF 记录, 不会构建完整的 {@code HSSFWorkbook}: </p>
+ * <ul>
+ *     <li>每个 sheet 先输出 sheet 名称, 然后每 {@link #batchSize} 行输出一个表格分块</li>
+ *     <li>数值和日期单元格使用 {@link FormatTrackingHSSFListener} 按照单元格格式格式化</li>
+ *     <li>公式单元格输出缓存的计算结果</li>
+ * </ul>
  * @author NaiveKyo
  * @since 1.0
+ * @see <a href="https://poi.apache.org/components/spreadsheet/how-to.html#event_api">The New Halloween Document (Event API)</a>
  */
 public class HSSFExcelContentExtractor extends AbstractContentExtractor {
-	
+
 	private static final Log LOG = LogFactory.getLog(HSSFExcelContentExtractor.class);
 
+	/**
+	 * 每个表格分块包含的行数
+	 */
+	private final int batchSize;
+
 	public HSSFExcelContentExtractor(InputStream docByteStream) {
+		this(docByteStream, RowBatchCollector.DEFAULT_BATCH_SIZE);
+	}
+
+	public HSSFExcelContentExtractor(InputStream docByteStream, int batchSize) {
 		super(docByteStream);
+		this.batchSize = batchSize;
+	}
+
+	public HSSFExcelContentExtractor(Path docPath) {
+		this(docPath, RowBatchCollector.DEFAULT_BATCH_SIZE);
+	}
+
+	public HSSFExcelContentExtractor(Path docPath, int batchSize) {
+		super(docPath);
+		this.batchSize = batchSize;
 	}
 
 	@Override
 	protected void doExtract() {
-		HSSFWorkbook hssfWorkbook = null;
+		POIFSFileSystem fs = null;
 		Exception markEx = null;
 		try {
-			hssfWorkbook = new HSSFWorkbook(getDocByteStream());
-			int sheets = hssfWorkbook.getNumberOfSheets();
-			if (sheets ==  0)
+			// 基于文件时只读打开, 按需读取数据块
+			fs = getDocPath() != null ? new POIFSFileSystem(getDocPath().toFile(), true) : new POIFSFileSystem(getDocByteStream());
+			RecordsListener listener = new RecordsListener(new RowBatchCollector(this::emit, batchSize));
+			HSSFRequest request = new HSSFRequest();
+			request.addListenerForAllRecords(listener.formatTracker);
+			new HSSFEventFactory().processWorkbookEvents(request, fs);
+			if (listener.sheetIndex < 0)
 				throw new IllegalArgumentException("没有检测到有效的 sheet 表格, 不规范的 Excel 文件");
-			for (int i = 0; i < sheets; i++) {
-				HSSFSheet sheet = hssfWorkbook.getSheetAt(i);
-				for (Row row : sheet) {
-					for (Cell cell : row) {
-						new CellReference(row.getRowNum(), cell.getColumnIndex());
-						
-					}
-				}
-			}
+			listener.collector.flush();
 		} catch (Exception e) {
 			markEx = e;
 		} finally {
 			try {
-				if (hssfWorkbook != null)
-					hssfWorkbook.close();
+				if (fs != null)
+					fs.close();
 			} catch (IOException e) {
 				markEx = e;
 			}
@@ -56,4 +94,147 @@ public class HSSFExcelContentExtractor extends AbstractContentExtractor {
 		if (markEx != null)
 			throw new RuntimeException(markEx);
 	}
+
+	/**
+	 * 处理 BIFF 记录, 同一个 sheet 中的单元格记录按照行号递增的顺序出现, 行号变化即表示上一行结束
+	 */
+	private static class RecordsListener implements HSSFListener {
+
+		private final RowBatchCollector collector;
+
+		private final FormatTrackingHSSFListener formatTracker;
+
+		/**
+		 * workbook 中的 sheet 信息, 在第一个 worksheet 开始前全部出现
+		 */
+		private final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+
+		private BoundSheetRecord[] orderedSheets;
+
+		private SSTRecord sst;
+
+		/**
+		 * 下标对应 {@link #orderedSheets}, 其中包含 chart、macro、VB module 等所有类型的 sheet
+		 */
+		private int sheetIndex = -1;
+
+		/**
+		 * BOF/EOF 的嵌套深度, worksheet 中的图表也有自己的 BOF, 深度为 1 时才是 sheet 级别的子流
+		 */
+		private int depth;
+
+		/**
+		 * 当前 sheet 是否为 worksheet, 只有 worksheet 中的单元格需要输出
+		 */
+		private boolean inWorksheet;
+
+		private int lastRow = -1;
+
+		/**
+		 * 结果类型为字符串的公式单元格, 其结果保存在紧随其后的 {@link StringRecord} 中
+		 */
+		private boolean expectFormulaString;
+
+		RecordsListener(RowBatchCollector collector) {
+			this.collector = collector;
+			this.formatTracker = new FormatTrackingHSSFListener(this);
+		}
+
+		@Override
+		public void processRecord(Record record) {
+			switch (record.getSid()) {
+				case BoundSheetRecord.sid:
+					boundSheets.add((BoundSheetRecord) record);
+					break;
+				case BOFRecord.sid:
+					depth++;
+					int type = ((BOFRecord) record).getType();
+					if (depth == 1 && type != BOFRecord.TYPE_WORKBOOK)
+						startSheet(type == BOFRecord.TYPE_WORKSHEET);
+					break;
+				case EOFRecord.sid:
+					if (depth > 0)
+						depth--;
+					if (depth == 0)
+						inWorksheet = false;
+					lastRow = -1;
+					break;
+				case SSTRecord.sid:
+					sst = (SSTRecord) record;
+					break;
+				case LabelSSTRecord.sid:
+					LabelSSTRecord lsr = (LabelSSTRecord) record;
+					cell(lsr.getRow(), sst == null ? null : sst.getString(lsr.getSSTIndex()).getString());
+					break;
+				case LabelRecord.sid:
+					LabelRecord lr = (LabelRecord) record;
+					cell(lr.getRow(), lr.getValue());
+					break;
+				case NumberRecord.sid:
+					NumberRecord nr = (NumberRecord) record;
+					cell(nr.getRow(), formatTracker.formatNumberDateCell(nr));
+					break;
+				case BoolErrRecord.sid:
+					BoolErrRecord ber = (BoolErrRecord) record;
+					if (ber.isBoolean())
+						cell(ber.getRow(), ber.getBooleanValue() ? "TRUE" : "FALSE");
+					break;
+				case FormulaRecord.sid:
+					formula((FormulaRecord) record);
+					break;
+				case StringRecord.sid:
+					if (expectFormulaString) {
+						expectFormulaString = false;
+						collector.cell(((StringRecord) record).getString());
+					}
+					break;
+				default:
+					break;
+			}
+		}
+
+		private void startSheet(boolean worksheet) {
+			if (orderedSheets == null)
+				orderedSheets = BoundSheetRecord.orderByBofPosition(boundSheets);
+			sheetIndex++;
+			lastRow = -1;
+			inWorksheet = worksheet;
+			if (worksheet)
+				collector.startSheet(sheetIndex < orderedSheets.length ? orderedSheets[sheetIndex].getSheetname() : null);
+		}
+
+		private void formula(FormulaRecord fr) {
+			if (!collecting())
+				return;
+			if (fr.hasCachedResultString()) {
+				// 先结束上一行, 字符串结果在下一条记录中追加到当前行
+				switchRow(fr.getRow());
+				expectFormulaString = true;
+			} else if (fr.getCachedResultTypeEnum() == CellType.BOOLEAN) {
+				cell(fr.getRow(), fr.getCachedBooleanValue() ? "TRUE" : "FALSE");
+			} else if (fr.getCachedResultTypeEnum() == CellType.NUMERIC) {
+				cell(fr.getRow(), formatTracker.formatNumberDateCell(fr));
+			}
+		}
+
+		private void cell(int row, String value) {
+			if (!collecting())
+				return;
+			switchRow(row);
+			collector.cell(value);
+		}
+
+		private boolean collecting() {
+			return inWorksheet && depth == 1;
+		}
+
+		private void switchRow(int row) {
+			if (row != lastRow) {
+				if (lastRow >= 0)
+					collector.endRow();
+				lastRow = row;
+			}
+		}
+	}
+
 }
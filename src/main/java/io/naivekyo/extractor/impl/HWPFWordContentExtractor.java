@@ -1,10 +1,11 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.ContentType;
 import io.naivekyo.content.impl.ImageContent;
 import io.naivekyo.content.impl.TextContent;
 import io.naivekyo.extractor.AbstractContentExtractor;
-import io.naivekyo.util.IOUtils;
+import io.naivekyo.support.image.MetafileConverter;
 import io.naivekyo.support.word.ImageType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,15 +40,21 @@ public class HWPFWordContentExtractor extends AbstractContentExtractor {
             hwpfDocument = new HWPFDocument(this.getDocByteStream());
             Range range = hwpfDocument.getRange();
             PicturesTable picturesTable = hwpfDocument.getPicturesTable();
+            boolean includeImages = isIncluded(ContentType.IMAGE);
             int numParagraphs = range.numParagraphs();
             // 处理所有的段落
             for (int i = 0; i < numParagraphs; i++) {
+                if (isStopRequested())
+                    break;
                 Paragraph paragraph = range.getParagraph(i);
                 int pRuns = paragraph.numCharacterRuns();
                 StringBuilder sb = null;
                 for (int r = 0; r < pRuns; r++) {
                     CharacterRun characterRun = paragraph.getCharacterRun(r);
                     if (picturesTable.hasPicture(characterRun)) {
+                        // 不需要图片时不读取图片数据
+                        if (!includeImages)
+                            continue;
                         // 处理 .doc 文件中包含的图片
                         Picture picture = picturesTable.extractPicture(characterRun, true);
                         byte[] imgBytes = picture.getContent();
@@ -57,13 +64,13 @@ public class HWPFWordContentExtractor extends AbstractContentExtractor {
                             LOG.error(String.format("处理 .doc 文件时发现未知的图片类型, 图片 mime-type: %s", mimeType));
                             continue;
                         } else if (ImageType.WMF.equals(imageType)) {
-                            imgBytes = IOUtils.convertWMFToPNG(imgBytes);
+                            imgBytes = getOptions().getMetafileConverter().convert(imgBytes, MetafileConverter.Format.WMF);
                             mimeType = ImageType.PNG.getMimeType();
                         } else if (ImageType.EMF.equals(imageType)) {
-                            imgBytes = IOUtils.convertEMFToPNG(imgBytes);
+                            imgBytes = getOptions().getMetafileConverter().convert(imgBytes, MetafileConverter.Format.EMF);
                             mimeType = ImageType.PNG.getMimeType();
                         }
-                        this.getContents().add(new ImageContent(imgBytes, mimeType, imageType.getName()));
+                        this.emit(new ImageContent(imgBytes, mimeType, imageType.getName()));
                     } else {
                         // 处理文本
                         String runText = characterRun.text();
@@ -77,7 +84,7 @@ public class HWPFWordContentExtractor extends AbstractContentExtractor {
                 if (sb != null) {
                     String text = sb.toString();
                     if (ContentHelper.checkValidText(text)) {
-                        this.getContents().add(new TextContent(ContentHelper.cleanExtractedText(text)));
+                        this.emit(new TextContent(ContentHelper.cleanExtractedText(text)));
                     }
                 }
             }
@@ -1,21 +1,22 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.ContentType;
 import io.naivekyo.content.DocContent;
 import io.naivekyo.content.impl.TextContent;
 import io.naivekyo.extractor.AbstractContentExtractor;
-import io.naivekyo.support.pdf.CustomGraphicsStreamEngine;
+import io.naivekyo.extractor.ExtractionOptions;
+import io.naivekyo.support.pdf.PDFDocumentSource;
+import io.naivekyo.support.pdf.PDFPageContentEngine;
+import io.naivekyo.support.pdf.StoppablePDFTextStripper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
-import org.apache.pdfbox.text.PDFTextStripper;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -31,7 +32,15 @@ public class PDFFileContentExtractor extends AbstractContentExtractor {
 
     private static final Log LOG = LogFactory.getLog(PDFFileContentExtractor.class);
     
-    private PDFTextStripper textStripper;
+    /**
+     * 一次遍历页面内容同时抽取文本和图片, 每个文档使用一个新的实例
+     */
+    private PDFPageContentEngine pageEngine;
+
+    /**
+     * 不需要图片时只使用 PDFTextStripper 抽取文本, 不处理任何图片和颜色相关的操作符
+     */
+    private StoppablePDFTextStripper textStripper;
 
     // see https://pdfbox.apache.org/2.0/getting-started.html
     // Important notice when using PDFBox with Java 8 before 1.8.0_191 or Java 9 before 9.0.4
@@ -39,41 +48,107 @@ public class PDFFileContentExtractor extends AbstractContentExtractor {
         System.setProperty("sun.java2d.cmm", "sun.java2d.cmm.kcms.KcmsServiceProvider");
     }
     
+    /**
+     * 基于文件创建抽取器时是否使用内存映射读取文件
+     */
+    private final boolean memoryMapped;
+    
     public PDFFileContentExtractor(InputStream docByteStream) {
         super(docByteStream);
+        this.memoryMapped = false;
+    }
+
+    /**
+     * 基于文件创建抽取器, 随机访问文件内容, 不会将整个文件读入内存
+     * @param docPath pdf 文件
+     */
+    public PDFFileContentExtractor(Path docPath) {
+        this(docPath, false);
+    }
+
+    /**
+     * 基于文件创建抽取器, 随机访问文件内容, 不会将整个文件读入内存
+     * @param docPath pdf 文件
+     * @param memoryMapped true 表示使用内存映射读取文件, false 表示使用 buffered file
+     */
+    public PDFFileContentExtractor(Path docPath, boolean memoryMapped) {
+        super(docPath);
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * 设置是否按内容对图片去重, 等价于修改抽取选项, 之后再调用 {@link #setOptions(ExtractionOptions)} 会覆盖该设置
+     * @param deduplicateImagesByContent true 表示按内容去重
+     * @see ExtractionOptions.ExtractionOptionsBuilder#deduplicateImagesByContent(boolean)
+     */
+    public void setDeduplicateImagesByContent(boolean deduplicateImagesByContent) {
+        setOptions(new ExtractionOptions.ExtractionOptionsBuilder(getOptions())
+                .deduplicateImagesByContent(deduplicateImagesByContent).build());
+    }
+
+    /**
+     * 设置是否直接复制图片的原始编码数据, 等价于修改抽取选项, 之后再调用 {@link #setOptions(ExtractionOptions)} 会覆盖该设置
+     * @param rawImagePassthrough true 表示复制原始编码数据
+     * @see ExtractionOptions.ExtractionOptionsBuilder#rawImagePassthrough(boolean)
+     */
+    public void setRawImagePassthrough(boolean rawImagePassthrough) {
+        setOptions(new ExtractionOptions.ExtractionOptionsBuilder(getOptions())
+                .rawImagePassthrough(rawImagePassthrough).build());
     }
 
     @Override
     protected void doExtract() {
         PDDocument pdfDocument = null;
+        PDFDocumentSource source = null;
         Exception markEx = null;
         try {
-            byte[] bytes = IOUtils.toByteArray(getDocByteStream());
-            pdfDocument = Loader.loadPDF(bytes, "", null, null, IOUtils.createTempFileOnlyStreamCache());
+            // 输入流在超过阈值时转存到临时文件, 文件直接随机访问
+            source = getDocPath() != null ? PDFDocumentSource.of(getDocPath(), memoryMapped) : PDFDocumentSource.of(getDocByteStream());
+            pdfDocument = source.load();
             AccessPermission ap = pdfDocument.getCurrentAccessPermission();
             boolean canExtract = ap.canExtractForAccessibility();
             if (canExtract) {
+                StoppablePDFTextStripper stripper;
+                if (isIncluded(ContentType.IMAGE)) {
+                    pageEngine = new PDFPageContentEngine(getOptions().isDeduplicateImagesByContent());
+                    pageEngine.setRawImagePassthrough(getOptions().isRawImagePassthrough());
+                    stripper = pageEngine;
+                } else {
+                    textStripper = new StoppablePDFTextStripper();
+                    textStripper.setSortByPosition(true);
+                    stripper = textStripper;
+                }
+                // 单个页面也可能处理很久, 页面内部同样检查取消令牌
+                if (getCancellationToken() != null)
+                    stripper.setStopCondition(this::isStopRequested);
                 int numberOfPages = pdfDocument.getNumberOfPages();
                 for (int i = 1; i <= numberOfPages; i++) {
-                    getContents().add(new TextContent(String.format("第 %d 页", i)));
-                    PDPage pdfPage = pdfDocument.getPage(i - 1);
+                    if (isStopRequested())
+                        break;
+                    emit(new TextContent(String.format("第 %d 页", i)));
                     // 处理文本
-                    String pageText = this.extractByTextStripper(pdfDocument, i);
+                    String pageText;
+                    try {
+                        pageText = this.extractPage(pdfDocument, i);
+                    } catch (StoppablePDFTextStripper.StoppedException e) {
+                        // 放弃未处理完的页面, 保留之前的内容
+                        break;
+                    }
                     if (pageText != null) {
                         pageText = pageText.trim();
                         String[] split = pageText.split(ContentHelper.SYSTEM_NEW_LINE_SYMBOL);
                         List<TextContent> texts = Arrays.stream(split).filter(ContentHelper::checkValidText).map(TextContent::new).collect(Collectors.toList());
                         for (int j = 0; j < texts.size() - 1; j++) {
-                            getContents().add(texts.get(j));
+                            emit(texts.get(j));
                         }
                     }
                     
                     // 处理图片
-                    CustomGraphicsStreamEngine engine = new CustomGraphicsStreamEngine(pdfPage);
-                    engine.run();
-                    List<DocContent> images = engine.getContents();
-                    if (images != null && !images.isEmpty())
-                        getContents().addAll(images);
+                    if (pageEngine != null) {
+                        List<DocContent> images = pageEngine.getImages();
+                        if (!images.isEmpty())
+                            images.forEach(this::emit);
+                    }
                 }
             } else {
                 LOG.error("没有权限读取当前 pdf 文件的内容");
@@ -82,9 +157,13 @@ public class PDFFileContentExtractor extends AbstractContentExtractor {
         } catch (IOException e) {
             markEx = e;
         } finally {
+            pageEngine = null;
+            textStripper = null;
             try {
                 if (pdfDocument != null)
                     pdfDocument.close();
+                if (source != null)
+                    source.close();
             } catch (IOException e) {
                 markEx = e;
             }
@@ -94,17 +173,15 @@ public class PDFFileContentExtractor extends AbstractContentExtractor {
     }
 
     /**
-     * 抽取指定页面内的所有文本
+     * 抽取指定页面内的所有文本, 需要图片时同时收集页面中的图片
      * @param doc pdf 文档对象
      * @param pageNum 指定页码
      * @return  页面中包含的所有文本信息
      * @throws IOException IO 异常
      */
-    private String extractByTextStripper(PDDocument doc, int pageNum) throws IOException {
-        if (textStripper == null) {
-            textStripper = new PDFTextStripper();
-            textStripper.setSortByPosition(true);
-        }
+    private String extractPage(PDDocument doc, int pageNum) throws IOException {
+        if (pageEngine != null)
+            return pageEngine.extractPage(doc, pageNum);
         textStripper.setStartPage(pageNum);
         textStripper.setEndPage(pageNum);
         return textStripper.getText(doc);
@@ -32,7 +32,7 @@ public class TxtFileContentExtractor extends AbstractContentExtractor {
             String str = null;
             while ((str = br.readLine()) != null) {
                 if (!"".equals(str))
-                    this.getContents().add(new TextContent(str));
+                    this.emit(new TextContent(str));
             }
         } catch (IOException e) {
             ex = e;
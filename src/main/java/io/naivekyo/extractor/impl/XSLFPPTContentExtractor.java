@@ -1,12 +1,13 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.ContentType;
 import io.naivekyo.content.impl.ImageContent;
 import io.naivekyo.content.impl.ListContent;
 import io.naivekyo.content.impl.TableContent;
 import io.naivekyo.content.impl.TextContent;
 import io.naivekyo.extractor.AbstractContentExtractor;
-import io.naivekyo.util.IOUtils;
+import io.naivekyo.support.image.MetafileConverter;
 import io.naivekyo.support.word.ImageType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,10 +35,10 @@ import org.apache.poi.xslf.usermodel.XSLFTextShape;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * .pptx 后缀的 ppt 文件内容抽取器实现
@@ -75,15 +76,18 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 LOG.warn("处理 .pptx 文件时, 发现内嵌文件需要处理, TODO");
             
             // 获取所有 media 数据(图片/视频/音频), 目前只处理图片 TODO
-            List<XSLFPictureData> mediaDataList = xmls.getPictureData();
+            boolean includeImages = isIncluded(ContentType.IMAGE);
+            List<XSLFPictureData> mediaDataList = includeImages ? xmls.getPictureData() : Collections.emptyList();
             mediaNameMap = new HashMap<>((int) (mediaDataList.size() / .75f + 1f));
             
             // 处理幻灯片母版, 抽取图片数据
-            List<XSLFSlideMaster> slideMasters = xmls.getSlideMasters();
-            for (XSLFSlideMaster slideMaster : slideMasters) {
-                for (XSLFShape shape : slideMaster.getShapes()) {
-                    if (shape instanceof XSLFPictureShape) {
-                        handlePicture(-1, ((XSLFPictureShape) shape).getPictureData());
+            if (includeImages) {
+                List<XSLFSlideMaster> slideMasters = xmls.getSlideMasters();
+                for (XSLFSlideMaster slideMaster : slideMasters) {
+                    for (XSLFShape shape : slideMaster.getShapes()) {
+                        if (shape instanceof XSLFPictureShape) {
+                            handlePicture(-1, (XSLFPictureShape) shape);
+                        }
                     }
                 }
             }
@@ -93,8 +97,10 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
             
             // 分页处理所有幻灯片
             for (XSLFSlide slide : xmls.getSlides()) {
+                if (isStopRequested())
+                    break;
                 int slideNumber = slide.getSlideNumber();   // 幻灯片页码, 从 1 开始计数
-                getContents().add(new TextContent(String.format("第 %d 页", slideNumber)));
+                emit(new TextContent(String.format("第 %d 页", slideNumber)));
 
                 // 批注
                 handleComments(slideNumber, slide.getComments());
@@ -103,10 +109,12 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 handleNotes(slideNumber, slide.getNotes());
 
                 // 处理 layout
-                XSLFSlideLayout layout = slide.getSlideLayout();
-                for (XSLFShape shape : layout.getShapes()) {
-                    if (shape instanceof XSLFPictureShape) {
-                        handlePicture(0, ((XSLFPictureShape) shape).getPictureData());
+                if (includeImages) {
+                    XSLFSlideLayout layout = slide.getSlideLayout();
+                    for (XSLFShape shape : layout.getShapes()) {
+                        if (shape instanceof XSLFPictureShape) {
+                            handlePicture(0, (XSLFPictureShape) shape);
+                        }
                     }
                 }
                 
@@ -114,7 +122,7 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 for (XSLFShape shape : slide.getShapes()) {
                     if (shape instanceof XSLFPictureShape) {
                         // 处理图片
-                        handlePicture(slideNumber, ((XSLFPictureShape) shape).getPictureData());
+                        handlePicture(slideNumber, (XSLFPictureShape) shape);
                     } else if (shape instanceof XSLFTextBox) {
                         // 处理列表
                         handleTextBox(((XSLFTextBox) shape));
@@ -137,8 +145,8 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
 
-            // 处理完所有幻灯片后, 查看是否有遗漏的图片没有抽取
-            for (XSLFPictureData picData : mediaDataList) {
+            // 处理完所有幻灯片后, 查看是否有遗漏的图片没有抽取, 提前停止时跳过
+            for (XSLFPictureData picData : isStopRequested() ? Collections.<XSLFPictureData>emptyList() : mediaDataList) {
                 String name = picData.getFileName();
                 if (ContentHelper.hasText(name)) {
                     if (mediaNameMap.get(name) == null) {
@@ -178,7 +186,7 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
     private void handleGroupShape(int page, XSLFGroupShape shape) throws IOException {
         for (XSLFShape gs : shape.getShapes()) {
             if (gs instanceof XSLFPictureShape) {
-                handlePicture(page, ((XSLFPictureShape) gs).getPictureData());
+                handlePicture(page, (XSLFPictureShape) gs);
             } else if (gs instanceof XSLFTextBox) {
                 // 处理列表
                 handleTextBox(((XSLFTextBox) gs));
@@ -218,8 +226,8 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
             if (commentList != null && !commentList.isEmpty()) {
-                getContents().add(new TextContent(String.format("页码: %d -- 批注: ", page)));
-                getContents().addAll(commentList.stream().map(TextContent::new).collect(Collectors.toList()));
+                emit(new TextContent(String.format("页码: %d -- 批注: ", page)));
+                commentList.stream().map(TextContent::new).forEach(this::emit);
             }
         }
     }
@@ -252,8 +260,8 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
             if (noteList != null && !noteList.isEmpty()) {
-                getContents().add(new TextContent(String.format("页码: %d -- 备注: ", page)));
-                getContents().addAll(noteList.stream().map(TextContent::new).collect(Collectors.toList()));
+                emit(new TextContent(String.format("页码: %d -- 备注: ", page)));
+                noteList.stream().map(TextContent::new).forEach(this::emit);
             }
         }
     }
@@ -289,7 +297,7 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
             i++;
         }
         if (listContent != null && !listContent.isEmpty()) {
-            getContents().add(listContent);
+            emit(listContent);
         }
     }
 
@@ -323,7 +331,7 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
             }
         }
         if (builder != null)
-            getContents().add(builder.build());
+            emit(builder.build());
     }
 
     /**
@@ -345,7 +353,7 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
                 }
             }
             if (sb != null)
-                getContents().add(new TextContent(ContentHelper.cleanExtractedText(sb.toString())));
+                emit(new TextContent(ContentHelper.cleanExtractedText(sb.toString())));
         }
     }
 
@@ -362,10 +370,14 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
     /**
      * 抽取图片数据
      * @param page 当前幻灯片页码, -1 表示来自母版
-     * @param pictureData {@link XSLFPictureShape}
+     * @param shape {@link XSLFPictureShape}
      * @throws IOException IOException
      */
-    private void handlePicture(int page, XSLFPictureData pictureData) throws IOException {
+    private void handlePicture(int page, XSLFPictureShape shape) throws IOException {
+        // 不需要图片时不读取 picture part
+        if (!isIncluded(ContentType.IMAGE))
+            return;
+        XSLFPictureData pictureData = shape.getPictureData();
         if (pictureData == null)
             return;
         PictureData.PictureType pt = pictureData.getType();
@@ -388,15 +400,15 @@ public class XSLFPPTContentExtractor extends AbstractContentExtractor {
         String extension = pt.extension;
         // WMF 和 EMF 文件全部转换为 PNG 图片
         if (PictureData.PictureType.WMF.equals(pt)) {
-            data = IOUtils.convertWMFToPNG(data);
-            getContents().add(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
+            data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.WMF);
+            emit(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
         } else if (PictureData.PictureType.EMF.equals(pt)) {
-            data = IOUtils.convertEMFToPNG(data);
-            getContents().add(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
+            data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.EMF);
+            emit(new ImageContent(data, ImageType.PNG.getMimeType(), ImageType.PNG.getExtension()));
         } else if (PictureData.PictureType.WDP.equals(pt)) {
             LOG.warn("pptx 文件, 暂不处理 Microsoft Windows Media Photo image (.wdp) 图片文件");
         } else {
-            getContents().add(new ImageContent(data, mimeType, extension.substring(extension.indexOf(".") + 1)));
+            emit(new ImageContent(data, mimeType, extension.substring(extension.indexOf(".") + 1)));
         }
     }
 
@@ -1,50 +1,122 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.extractor.AbstractContentExtractor;
+import io.naivekyo.support.excel.RowBatchCollector;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
-import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 /**
  * <p>.xlsx 后缀的 Excel 文件内容抽取器实现</p>
- * <p>针对数据量非常大的 Excel 文件, 为了降低内存使用、提高处理速度, 可以考虑以下方式: </p>
+ * <p>基于 {@link XSSFReader} 和 SAX 事件模型逐行读取 sheet, 不会构建完整的 {@code XSSFWorkbook}: </p>
  * <ul>
- *     <li>1. 使用 SAX 的方式去读取 see https://roytuts.com/how-to-read-large-excel-file-using-apache-poi/</li>
- *     <li>2. 使用 poi 内置的 stream api</li>
- *     <li>3. 使用其他 Excel 相关的工具包</li>
+ *     <li>每个 sheet 先输出 sheet 名称, 然后每 {@link #batchSize} 行输出一个表格分块</li>
+ *     <li>单元格的值使用 {@link DataFormatter} 按照单元格样式格式化</li>
+ *     <li>共享字符串表使用只读实现, 堆内存占用与 sheet 行数无关</li>
  * </ul>
+ * <p>处理大文件时建议基于文件创建抽取器, 基于输入流时 zip 包会被完整读入内存</p>
  * @author NaiveKyo
  * @since 1.0
+ * @see <a href="https://poi.apache.org/components/spreadsheet/how-to.html#xssf_sax_api">XSSF and SAX (Event API)</a>
  */
 public class XSSFExcelContentExtractor extends AbstractContentExtractor {
-	
+
 	private static final Log LOG = LogFactory.getLog(XSSFExcelContentExtractor.class);
-	
+
+	/**
+	 * 每个表格分块包含的行数
+	 */
+	private final int batchSize;
+
 	public XSSFExcelContentExtractor(InputStream docByteStream) {
+		this(docByteStream, RowBatchCollector.DEFAULT_BATCH_SIZE);
+	}
+
+	public XSSFExcelContentExtractor(InputStream docByteStream, int batchSize) {
 		super(docByteStream);
+		this.batchSize = batchSize;
+	}
+
+	public XSSFExcelContentExtractor(Path docPath) {
+		this(docPath, RowBatchCollector.DEFAULT_BATCH_SIZE);
+	}
+
+	public XSSFExcelContentExtractor(Path docPath, int batchSize) {
+		super(docPath);
+		this.batchSize = batchSize;
 	}
 
 	@Override
 	protected void doExtract() {
-		XSSFWorkbook xssfWorkbook = null;
+		OPCPackage pkg = null;
 		Exception markEx = null;
 		try {
-			xssfWorkbook = new XSSFWorkbook(getDocByteStream());
-			
+			// 基于文件时按需读取 zip 条目, 且只读打开, 不会回写
+			pkg = getDocPath() != null ? OPCPackage.open(getDocPath().toFile(), PackageAccess.READ) : OPCPackage.open(getDocByteStream());
+			XSSFReader reader = new XSSFReader(pkg);
+			ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+			StylesTable styles = reader.getStylesTable();
+			DataFormatter formatter = new DataFormatter();
+			RowBatchCollector collector = new RowBatchCollector(this::emit, batchSize);
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			if (!sheets.hasNext())
+				throw new IllegalArgumentException("没有检测到有效的 sheet 表格, 不规范的 Excel 文件");
+			while (sheets.hasNext()) {
+				try (InputStream sheet = sheets.next()) {
+					collector.startSheet(sheets.getSheetName());
+					XMLReader parser = XMLHelper.newXMLReader();
+					parser.setContentHandler(new XSSFSheetXMLHandler(styles, sharedStrings, new SheetRowsHandler(collector), formatter, false));
+					parser.parse(new InputSource(sheet));
+				}
+			}
+			collector.flush();
 		} catch (Exception e) {
 			markEx = e;
 		} finally {
-			try {
-				if (xssfWorkbook != null)
-					xssfWorkbook.close();
-			} catch (IOException e) {
-				markEx = e;
-			}
+			if (pkg != null)
+				pkg.revert();
 		}
 		if (markEx != null)
 			throw new RuntimeException(markEx);
 	}
+
+	/**
+	 * 将 sheet 的 SAX 事件转发给行收集器
+	 */
+	private static class SheetRowsHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+		private final RowBatchCollector collector;
+
+		SheetRowsHandler(RowBatchCollector collector) {
+			this.collector = collector;
+		}
+
+		@Override
+		public void startRow(int rowNum) {
+		}
+
+		@Override
+		public void endRow(int rowNum) {
+			collector.endRow();
+		}
+
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			collector.cell(formattedValue);
+		}
+	}
+
 }
@@ -0,0 +1,868 @@
+package io.naivekyo.extractor.impl;
+
+import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.ContentType;
+import io.naivekyo.content.impl.ImageContent;
+import io.naivekyo.content.impl.TableContent;
+import io.naivekyo.content.impl.TextContent;
+import io.naivekyo.extractor.AbstractContentExtractor;
+import io.naivekyo.support.image.MetafileConverter;
+import io.naivekyo.support.word.ImageType;
+import io.naivekyo.util.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.common.usermodel.PictureType;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.util.XMLHelper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>.docx 后缀的 Word 文件内容抽取器实现, 基于 StAX 拉取解析 {@code word/document.xml}, 不会构建 {@code XWPFDocument}</p>
+ * <ul>
+ *     <li>输出的 {@link TextContent}/{@link TableContent}/{@link ImageContent} 序列与 {@link XWPFWordContentExtractor} 一致</li>
+ *     <li>一次只在内存中保留一个段落或一个表格的内容, 堆内存占用与文档页数无关</li>
+ *     <li>图片只记录关系 id, 输出时才通过 relationship 读取对应的 part</li>
+ *     <li>脚注和尾注只在表格中引用时才会解析</li>
+ * </ul>
+ * <p>处理大文件时建议基于文件创建抽取器, 基于输入流时 zip 包会被完整读入内存</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class XWPFStreamingWordContentExtractor extends AbstractContentExtractor {
+
+    private static final Log LOG = LogFactory.getLog(XWPFStreamingWordContentExtractor.class);
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final String PIC_NS = "http://schemas.openxmlformats.org/drawingml/2006/picture";
+
+    private static final String A_NS = "http://schemas.openxmlformats.org/drawingml/2006/main";
+
+    private static final String R_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String FOOTNOTES_RELATION = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/footnotes";
+
+    private static final String ENDNOTES_RELATION = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/endnotes";
+
+    private final XMLInputFactory factory = XMLHelper.newXMLInputFactory();
+
+    /**
+     * 正文 part, 用于解析图片和脚注的 relationship
+     */
+    private PackagePart documentPart;
+
+    /**
+     * 脚注/尾注 id -> 文本, 第一次使用时解析
+     */
+    private Map<Integer, String> footnotes;
+
+    private Map<Integer, String> endnotes;
+
+    public XWPFStreamingWordContentExtractor(InputStream docByteStream) {
+        super(docByteStream);
+    }
+
+    public XWPFStreamingWordContentExtractor(Path docPath) {
+        super(docPath);
+    }
+
+    /**
+     * 目前仅抽取正文文本内容以及图片数据
+     */
+    @Override
+    protected void doExtract() {
+        OPCPackage pkg = null;
+        Exception markEx = null;
+        try {
+            pkg = getDocPath() != null ? OPCPackage.open(getDocPath().toFile(), PackageAccess.READ) : OPCPackage.open(getDocByteStream());
+            PackageRelationshipCollection rels = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+            if (rels.size() == 0)
+                throw new IllegalArgumentException("没有找到正文部分, 不规范的 docx 文件");
+            this.documentPart = pkg.getPart(rels.getRelationship(0));
+            try (InputStream is = documentPart.getInputStream()) {
+                XMLStreamReader reader = factory.createXMLStreamReader(is);
+                try {
+                    while (reader.hasNext()) {
+                        if (reader.next() == XMLStreamConstants.START_ELEMENT && isW(reader, "body")) {
+                            readBody(reader);
+                            break;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        } catch (Exception e) {
+            markEx = e;
+        } finally {
+            this.documentPart = null;
+            this.footnotes = null;
+            this.endnotes = null;
+            if (pkg != null)
+                pkg.revert();
+        }
+        if (markEx != null)
+            throw new RuntimeException(markEx);
+    }
+
+    private void readBody(XMLStreamReader r) throws Exception {
+        while (nextChild(r)) {
+            if (isW(r, "p")) {
+                extractParagraphContent(readParagraph(r));
+            } else if (isW(r, "tbl")) {
+                extractTableContent(r);
+            } else if (isW(r, "sdt")) {
+                String text = readSdtBlockText(r);
+                if (ContentHelper.checkValidText(text)) {
+                    this.emit(new TextContent(ContentHelper.cleanExtractedText(text)));
+                }
+            } else {
+                skip(r);
+            }
+        }
+    }
+
+    /**
+     * 抽取段落内容, 图片在所在的 run 结束时输出, 文本在段落结束时输出
+     * @param p 段落
+     */
+    private void extractParagraphContent(Paragraph p) throws Exception {
+        StringBuilder sb = null;
+        for (Object element : p.elements) {
+            if (!(element instanceof Run))
+                continue;
+            Run run = (Run) element;
+            if (!run.pictures.isEmpty() || !run.drawings.isEmpty()) {
+                // 与 XWPFRun#getEmbeddedPictures 顺序一致: 先 w:pict 再 w:drawing
+                for (String embed : run.pictures)
+                    emitPicture(embed);
+                for (String embed : run.drawings)
+                    emitPicture(embed);
+            } else {
+                String text = run.text.toString();
+                if (!ContentHelper.checkValidText(text))
+                    continue;
+                if (sb == null)
+                    sb = new StringBuilder(64);
+                sb.append(text);
+            }
+        }
+        if (sb != null) {
+            String text = sb.toString();
+            if (ContentHelper.checkValidText(text)) {
+                this.emit(new TextContent(ContentHelper.cleanExtractedText(text)));
+            }
+        }
+    }
+
+    /**
+     * 通过 relationship 读取图片 part, 非内部图片关系或者 part 不存在时忽略
+     * @param embed 关系 id
+     */
+    private void emitPicture(String embed) throws Exception {
+        // 不需要图片时不读取图片 part
+        if (embed == null || !isIncluded(ContentType.IMAGE))
+            return;
+        PackageRelationship rel = documentPart.getRelationship(embed);
+        if (rel == null || rel.getTargetMode() != TargetMode.INTERNAL
+                || !PackageRelationshipTypes.IMAGE_PART.equals(rel.getRelationshipType()))
+            return;
+        PackagePart part = documentPart.getRelatedPart(rel);
+        if (part == null)
+            return;
+        ImageType imageType = lookupImageType(part.getContentType());
+        if (ImageType.UNKNOWN.equals(imageType)) {
+            LOG.error(String.format("word 类型: docx, 解析时出现未知的图片类型, content type: %s", part.getContentType()));
+            return;
+        }
+        byte[] data;
+        try (InputStream is = part.getInputStream()) {
+            data = IOUtils.toByteArray(is);
+        }
+        if (ImageType.WMF.equals(imageType)) {
+            data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.WMF);
+            imageType = ImageType.PNG;
+        } else if (ImageType.EMF.equals(imageType)) {
+            data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.EMF);
+            imageType = ImageType.PNG;
+        }
+        this.emit(new ImageContent(data, imageType.getMimeType(), imageType.getName()));
+    }
+
+    /**
+     * 与 {@code XWPFPictureData#getPictureType} 相同, 按照 part 的 content type 确定图片类型
+     */
+    private static ImageType lookupImageType(String contentType) {
+        for (PictureType type : PictureType.values()) {
+            if (type.ooxmlId > 0 && type.getContentType().equals(contentType))
+                return ImageType.lookupByTypeId(type.ooxmlId);
+        }
+        return ImageType.UNKNOWN;
+    }
+
+    /**
+     * 抽取表格文本内容(暂不考虑内嵌图片)
+     */
+    private void extractTableContent(XMLStreamReader r) throws Exception {
+        TableContent.TableContentBuilder tableBuilder = new TableContent.TableContentBuilder();
+        while (nextChild(r)) {
+            if (!isW(r, "tr")) {
+                skip(r);
+                continue;
+            }
+            // 目前仅处理文本
+            List<String> tRow = null;
+            while (nextChild(r)) {
+                String text;
+                if (isW(r, "tc")) {
+                    text = readCellText(r);
+                } else if (isW(r, "sdt")) {
+                    text = readSdtCellText(r);
+                } else {
+                    skip(r);
+                    continue;
+                }
+                if (tRow == null)
+                    tRow = new ArrayList<>();
+                if (!ContentHelper.checkValidText(text)) {
+                    tRow.add(ContentHelper.EMPTY_STR);
+                    continue;
+                }
+                tRow.add(ContentHelper.cleanExtractedText(text));
+            }
+            if (tRow != null && !tRow.isEmpty()) {
+                boolean match = tRow.stream().allMatch(e -> e == null || "".equals(e));
+                if (!match)
+                    tableBuilder.addRow(tRow);
+            }
+        }
+        this.emit(tableBuilder.build());
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // 以下方法按照 POI XWPF 的规则计算文本, 保证与 XWPFWordContentExtractor 的结果一致
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * 读取段落, 规则与 {@code XWPFParagraph#buildRunsInOrderFromXml} 相同
+     */
+    private Paragraph readParagraph(XMLStreamReader r) throws Exception {
+        Paragraph p = new Paragraph();
+        readParagraphChildren(r, p.elements);
+        return p;
+    }
+
+    private void readParagraphChildren(XMLStreamReader r, List<Object> elements) throws Exception {
+        while (nextChild(r)) {
+            if (isW(r, "r")) {
+                elements.add(readRun(r));
+            } else if (isW(r, "hyperlink") || isW(r, "fldSimple")) {
+                while (nextChild(r)) {
+                    if (isW(r, "r"))
+                        elements.add(readRun(r));
+                    else
+                        skip(r);
+                }
+            } else if (isW(r, "sdt")) {
+                elements.add(readSdtRunText(r));
+            } else if (isW(r, "ins") || isW(r, "del") || isW(r, "moveFrom") || isW(r, "moveTo")) {
+                // 先添加直接包含的 run, 再添加嵌套的 w:ins 中的内容
+                List<Object> nested = new ArrayList<>();
+                while (nextChild(r)) {
+                    if (isW(r, "r"))
+                        elements.add(readRun(r));
+                    else if (isW(r, "ins"))
+                        readParagraphChildren(r, nested);
+                    else
+                        skip(r);
+                }
+                elements.addAll(nested);
+            } else if (isW(r, "smartTag")) {
+                readParagraphChildren(r, elements);
+            } else {
+                skip(r);
+            }
+        }
+    }
+
+    /**
+     * 读取 run, 文本规则与 {@code XWPFRun#text} 相同
+     */
+    private Run readRun(XMLStreamReader r) throws Exception {
+        Run run = new Run();
+        while (nextChild(r)) {
+            if (!W_NS.equals(r.getNamespaceURI())) {
+                skip(r);
+                continue;
+            }
+            String name = r.getLocalName();
+            if ("delText".equals(name)) {
+                run.deleted = true;
+                run.text.append(readText(r));
+            } else if ("ruby".equals(name)) {
+                readRuby(r, run);
+            } else if ("pict".equals(name)) {
+                readPicture(r, run.pictures, run.pictureText);
+            } else if ("drawing".equals(name)) {
+                readPicture(r, run.drawings, run.drawingText);
+            } else if ("footnoteReference".equals(name) || "endnoteReference".equals(name)) {
+                run.notes.add(new NoteRef("endnoteReference".equals(name), Integer.parseInt(r.getAttributeValue(W_NS, "id"))));
+                appendRunElement(r, run.text);
+            } else {
+                appendRunElement(r, run.text);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * 处理 run 中的单个元素, 方法返回时位于元素的结束标签
+     */
+    private void appendRunElement(XMLStreamReader r, StringBuilder out) throws Exception {
+        String name = W_NS.equals(r.getNamespaceURI()) ? r.getLocalName() : "";
+        switch (name) {
+            case "t":
+            case "delText":
+            case "delInstrText":
+                out.append(readText(r));
+                return;
+            case "fldChar":
+                if ("begin".equals(r.getAttributeValue(W_NS, "fldCharType"))) {
+                    appendCheckBoxes(r, out);
+                    return;
+                }
+                break;
+            case "tab":
+            case "ptab":
+                out.append('\t');
+                break;
+            case "br":
+            case "cr":
+                out.append('\n');
+                break;
+            case "footnoteReference":
+                out.append("[footnoteRef:").append(Integer.parseInt(r.getAttributeValue(W_NS, "id"))).append(']');
+                break;
+            case "endnoteReference":
+                out.append("[endnoteRef:").append(Integer.parseInt(r.getAttributeValue(W_NS, "id"))).append(']');
+                break;
+            default:
+        }
+        skip(r);
+    }
+
+    /**
+     * 表单复选框输出为 |X| 或者 |_|
+     */
+    private void appendCheckBoxes(XMLStreamReader r, StringBuilder out) throws Exception {
+        int depth = 1;
+        boolean inCheckBox = false;
+        String value = null;
+        while (depth > 0) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (isW(r, "checkBox")) {
+                    inCheckBox = true;
+                    value = null;
+                } else if (inCheckBox && isW(r, "default")) {
+                    value = r.getAttributeValue(W_NS, "val");
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                if (isW(r, "checkBox")) {
+                    inCheckBox = false;
+                    out.append("1".equals(value) ? "|X|" : "|_|");
+                }
+            }
+        }
+    }
+
+    /**
+     * 注音: w:rubyBase 中的内容属于正文, w:rt 中的内容只在 {@code XWPFRun#toString} 中输出
+     */
+    private void readRuby(XMLStreamReader r, Run run) throws Exception {
+        boolean inRT = false;
+        boolean inBase = false;
+        int depth = 1;
+        while (depth > 0) {
+            int event = r.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isW(r, "rt")) {
+                    inRT = true;
+                    depth++;
+                } else if (isW(r, "rubyBase")) {
+                    inRT = false;
+                    inBase = true;
+                    depth++;
+                } else if (isW(r, "t") || isW(r, "delText") || isW(r, "delInstrText") || isW(r, "fldChar")
+                        || isW(r, "tab") || isW(r, "ptab") || isW(r, "br") || isW(r, "cr")
+                        || isW(r, "footnoteReference") || isW(r, "endnoteReference")) {
+                    StringBuilder sb = new StringBuilder();
+                    appendRunElement(r, sb);
+                    if (inRT)
+                        run.phonetic.append(sb);
+                    if (inBase)
+                        run.text.append(sb);
+                } else {
+                    depth++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 收集 w:pict/w:drawing 中所有 pic:pic 引用的图片关系 id, 以及所有 w:t 中的文本(例如文本框)
+     */
+    private void readPicture(XMLStreamReader r, List<String> embeds, StringBuilder text) throws Exception {
+        int depth = 1;
+        boolean inPic = false;
+        boolean found = false;
+        while (depth > 0) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (PIC_NS.equals(r.getNamespaceURI()) && "pic".equals(r.getLocalName())) {
+                    inPic = true;
+                    found = false;
+                    embeds.add(null);
+                } else if (inPic && !found && A_NS.equals(r.getNamespaceURI()) && "blip".equals(r.getLocalName())) {
+                    found = true;
+                    embeds.set(embeds.size() - 1, r.getAttributeValue(R_NS, "embed"));
+                } else if (isW(r, "t")) {
+                    text.append(readText(r));
+                    depth--;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                if (PIC_NS.equals(r.getNamespaceURI()) && "pic".equals(r.getLocalName()))
+                    inPic = false;
+            }
+        }
+    }
+
+    /**
+     * 规则与 {@code XWPFParagraph#getText} 相同: 忽略删除的 run, 包含行内内容控件和脚注文本
+     */
+    private String paragraphText(Paragraph p) throws Exception {
+        StringBuilder out = new StringBuilder(64);
+        StringBuilder notes = new StringBuilder();
+        for (Object element : p.elements) {
+            if (element instanceof Run) {
+                Run run = (Run) element;
+                if (!run.deleted)
+                    out.append(run);
+                for (NoteRef note : run.notes) {
+                    notes.append(" [").append(note.id).append(": ").append(noteText(note)).append("] ");
+                }
+            } else {
+                out.append(element);
+            }
+        }
+        return out.append(notes).toString();
+    }
+
+    /**
+     * 规则与 {@code XWPFSDTContent#appendParagraph} 相同: 只拼接 run, 包括删除的 run
+     */
+    private static String paragraphRunsText(Paragraph p) {
+        StringBuilder out = new StringBuilder(64);
+        for (Object element : p.elements) {
+            if (element instanceof Run)
+                out.append(element);
+        }
+        return out.toString();
+    }
+
+    /**
+     * 规则与 {@code XWPFTableCell#getTextRecursively} 相同
+     */
+    private String readCellText(XMLStreamReader r) throws Exception {
+        List<Object> parts = new ArrayList<>();
+        readCellBody(r, parts);
+        StringBuilder text = new StringBuilder(64);
+        appendCellBody(parts, text);
+        return text.toString();
+    }
+
+    /**
+     * 读取单元格中的段落、表格和内容控件, 表格保存为 单元格 -> 元素列表 的嵌套列表
+     */
+    private void readCellBody(XMLStreamReader r, List<Object> parts) throws Exception {
+        while (nextChild(r)) {
+            if (isW(r, "p")) {
+                parts.add(paragraphText(readParagraph(r)));
+            } else if (isW(r, "tbl")) {
+                List<List<Object>> cells = new ArrayList<>();
+                while (nextChild(r)) {
+                    if (!isW(r, "tr")) {
+                        skip(r);
+                        continue;
+                    }
+                    while (nextChild(r)) {
+                        if (isW(r, "tc")) {
+                            List<Object> cell = new ArrayList<>();
+                            readCellBody(r, cell);
+                            cells.add(cell);
+                        } else {
+                            skip(r);
+                        }
+                    }
+                }
+                parts.add(new NestedTable(cells));
+            } else if (isW(r, "sdt")) {
+                parts.add(readSdtBlockText(r));
+            } else {
+                skip(r);
+            }
+        }
+    }
+
+    private static void appendCellBody(List<Object> parts, StringBuilder text) {
+        for (int i = 0; i < parts.size(); i++) {
+            boolean isLast = i == parts.size() - 1;
+            Object part = parts.get(i);
+            if (part instanceof NestedTable) {
+                for (List<Object> cell : ((NestedTable) part).cells) {
+                    appendCellBody(cell, text);
+                }
+                if (!isLast)
+                    text.append('\n');
+            } else {
+                text.append(part);
+                if (!isLast)
+                    text.append('\t');
+            }
+        }
+    }
+
+    /**
+     * 规则与 {@code XWPFSDTContent#getText} 相同, 适用于块级内容控件
+     */
+    private String readSdtBlockText(XMLStreamReader r) throws Exception {
+        String text = "";
+        while (nextChild(r)) {
+            if (isW(r, "sdtContent")) {
+                text = readSdtContentText(r);
+            } else {
+                skip(r);
+            }
+        }
+        return text;
+    }
+
+    private String readSdtContentText(XMLStreamReader r) throws Exception {
+        List<String> parts = new ArrayList<>();
+        List<Boolean> newLines = new ArrayList<>();
+        while (nextChild(r)) {
+            if (isW(r, "p")) {
+                parts.add(paragraphRunsText(readParagraph(r)));
+                newLines.add(true);
+            } else if (isW(r, "tbl")) {
+                parts.add(readSdtTableText(r));
+                newLines.add(true);
+            } else if (isW(r, "sdt")) {
+                parts.add(readSdtBlockText(r));
+                newLines.add(true);
+            } else if (isW(r, "r")) {
+                parts.add(readRun(r).toString());
+                newLines.add(false);
+            } else {
+                skip(r);
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            text.append(parts.get(i));
+            if (newLines.get(i) && i < parts.size() - 1)
+                text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * 规则与 {@code XWPFSDTContent#appendTable} 相同
+     */
+    private String readSdtTableText(XMLStreamReader r) throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (nextChild(r)) {
+            if (!isW(r, "tr")) {
+                skip(r);
+                continue;
+            }
+            List<String> cells = new ArrayList<>();
+            while (nextChild(r)) {
+                if (isW(r, "tc"))
+                    cells.add(readCellText(r));
+                else if (isW(r, "sdt"))
+                    cells.add(readSdtCellText(r));
+                else
+                    skip(r);
+            }
+            text.append(String.join("\t", cells)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * 规则与 {@code XWPFSDTContent(CTSdtContentRun)} 相同, 适用于行内内容控件
+     */
+    private String readSdtRunText(XMLStreamReader r) throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (nextChild(r)) {
+            if (isW(r, "sdtContent")) {
+                while (nextChild(r)) {
+                    if (isW(r, "r"))
+                        text.append(readRun(r));
+                    else
+                        skip(r);
+                }
+            } else {
+                skip(r);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 规则与 {@code XWPFSDTContentCell} 相同: 拼接所有文本节点, 单元格之间使用制表符, 块级元素之间使用换行符
+     */
+    private String readSdtCellText(XMLStreamReader r) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        while (nextChild(r)) {
+            if (!isW(r, "sdtContent")) {
+                skip(r);
+                continue;
+            }
+            int tcCnt = 0;
+            int iBodyCnt = 0;
+            int depth = 1;
+            while (depth > 0) {
+                int event = r.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                    sb.append(r.getText());
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = r.getLocalName();
+                    if ("tr".equals(name)) {
+                        tcCnt = 0;
+                        iBodyCnt = 0;
+                    } else if ("tc".equals(name)) {
+                        if (tcCnt++ > 0)
+                            sb.append('\t');
+                        iBodyCnt = 0;
+                    } else if ("p".equals(name) || "tbl".equals(name) || "sdt".equals(name)) {
+                        if (iBodyCnt > 0)
+                            sb.append('\n');
+                        iBodyCnt++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private String noteText(NoteRef note) throws Exception {
+        if (note.endnote) {
+            if (endnotes == null) {
+                endnotes = Collections.emptyMap();
+                endnotes = readNotes(ENDNOTES_RELATION, "endnote");
+            }
+            return endnotes.getOrDefault(note.id, "");
+        }
+        if (footnotes == null) {
+            footnotes = Collections.emptyMap();
+            footnotes = readNotes(FOOTNOTES_RELATION, "footnote");
+        }
+        return footnotes.getOrDefault(note.id, "");
+    }
+
+    /**
+     * 解析脚注/尾注 part, 每个注释的文本为其中各个段落的文本, 使用换行符分隔
+     */
+    private Map<Integer, String> readNotes(String relationType, String element) throws Exception {
+        Map<Integer, String> notes = new HashMap<>();
+        PackageRelationshipCollection rels = documentPart.getRelationshipsByType(relationType);
+        if (rels.size() == 0)
+            return notes;
+        PackagePart part = documentPart.getRelatedPart(rels.getRelationship(0));
+        if (part == null)
+            return notes;
+        try (InputStream is = part.getInputStream()) {
+            XMLStreamReader r = factory.createXMLStreamReader(is);
+            try {
+                while (r.hasNext()) {
+                    if (r.next() != XMLStreamConstants.START_ELEMENT || !isW(r, element))
+                        continue;
+                    String id = r.getAttributeValue(W_NS, "id");
+                    StringBuilder text = new StringBuilder();
+                    boolean first = true;
+                    while (nextChild(r)) {
+                        if (isW(r, "p")) {
+                            if (!first)
+                                text.append('\n');
+                            first = false;
+                            text.append(paragraphText(readParagraph(r)));
+                        } else {
+                            skip(r);
+                        }
+                    }
+                    if (id != null)
+                        notes.putIfAbsent(Integer.parseInt(id), text.toString());
+                }
+            } finally {
+                r.close();
+            }
+        }
+        return notes;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // StAX 工具方法
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * 移动到下一个子元素的开始标签, 遇到当前元素的结束标签时返回 false
+     */
+    private static boolean nextChild(XMLStreamReader r) throws XMLStreamException {
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                return true;
+            if (event == XMLStreamConstants.END_ELEMENT)
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * 跳过当前元素, 方法返回时位于元素的结束标签
+     */
+    private static void skip(XMLStreamReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    /**
+     * 读取当前元素中的所有文本, 方法返回时位于元素的结束标签
+     */
+    private static String readText(XMLStreamReader r) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = r.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)
+                sb.append(r.getText());
+            else if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+        return sb.toString();
+    }
+
+    private static boolean isW(XMLStreamReader r, String localName) {
+        return localName.equals(r.getLocalName()) && W_NS.equals(r.getNamespaceURI());
+    }
+
+    /**
+     * 段落中的 run 和行内内容控件文本({@link String}), 按照文档顺序排列
+     */
+    private static final class Paragraph {
+        final List<Object> elements = new ArrayList<>();
+    }
+
+    private static final class Run {
+
+        /**
+         * {@code XWPFRun#text} 的结果
+         */
+        final StringBuilder text = new StringBuilder();
+
+        /**
+         * 注音文本
+         */
+        final StringBuilder phonetic = new StringBuilder();
+
+        /**
+         * w:pict 和 w:drawing 中的图片关系 id, 没有关系 id 的图片为 null
+         */
+        final List<String> pictures = new ArrayList<>(0);
+
+        final List<String> drawings = new ArrayList<>(0);
+
+        /**
+         * w:pict 和 w:drawing 中的文本, 例如文本框
+         */
+        final StringBuilder pictureText = new StringBuilder(0);
+
+        final StringBuilder drawingText = new StringBuilder(0);
+
+        final List<NoteRef> notes = new ArrayList<>(0);
+
+        /**
+         * 是否包含 w:delText, 即修订模式下被删除的内容
+         */
+        boolean deleted;
+
+        /**
+         * 与 {@code XWPFRun#toString} 相同: 文本加上括号中的注音和图片文本
+         */
+        @Override
+        public String toString() {
+            StringBuilder extra = new StringBuilder(phonetic);
+            if (pictureText.length() > 0 || drawingText.length() > 0)
+                extra.append('\n').append(pictureText).append(drawingText).append('\n');
+            return extra.length() > 0 ? text + " (" + extra + ")" : text.toString();
+        }
+    }
+
+    private static final class NoteRef {
+
+        final boolean endnote;
+
+        final int id;
+
+        NoteRef(boolean endnote, int id) {
+            this.endnote = endnote;
+            this.id = id;
+        }
+    }
+
+    private static final class NestedTable {
+
+        final List<List<Object>> cells;
+
+        NestedTable(List<List<Object>> cells) {
+            this.cells = cells;
+        }
+    }
+
+}
@@ -1,11 +1,12 @@
 package io.naivekyo.extractor.impl;
 
 import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.ContentType;
 import io.naivekyo.content.impl.ImageContent;
 import io.naivekyo.content.impl.TableContent;
 import io.naivekyo.content.impl.TextContent;
 import io.naivekyo.extractor.AbstractContentExtractor;
-import io.naivekyo.util.IOUtils;
+import io.naivekyo.support.image.MetafileConverter;
 import io.naivekyo.support.word.ImageType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -61,7 +62,7 @@ public class XWPFWordContentExtractor extends AbstractContentExtractor {
                     XWPFSDT sdt = (XWPFSDT) e;
                     String text = sdt.getContent().getText();
                     if (ContentHelper.checkValidText(text)) {
-                        this.getContents().add(new TextContent(ContentHelper.cleanExtractedText(text)));
+                        this.emit(new TextContent(ContentHelper.cleanExtractedText(text)));
                     }
                 }
             }
@@ -113,7 +114,7 @@ public class XWPFWordContentExtractor extends AbstractContentExtractor {
                     tableBuilder.addRow(tRow);
             }
         }
-        this.getContents().add(tableBuilder.build());
+        this.emit(tableBuilder.build());
     }
 
     /**
@@ -126,6 +127,9 @@ public class XWPFWordContentExtractor extends AbstractContentExtractor {
         for (XWPFRun r : runs) {
             List<XWPFPicture> embeddedPictures = r.getEmbeddedPictures();
             if (embeddedPictures != null && embeddedPictures.size() > 0) {
+                // 不需要图片时不读取 picture part
+                if (!isIncluded(ContentType.IMAGE))
+                    continue;
                 // 图片来源可能是: 插入的图片、内嵌的图片、画布
                 for (XWPFPicture picture : embeddedPictures) {
                     XWPFPictureData pictureData = picture.getPictureData();
@@ -138,13 +142,13 @@ public class XWPFWordContentExtractor extends AbstractContentExtractor {
                         LOG.error(String.format("word 类型: docx, 解析时出现未知的图片类型, org.apache.poi.xwpf.usermodel.Document.PICTURE_TYPE: %s", pictureData.getPictureType()));
                         continue;
                     } else if (ImageType.WMF.equals(imageType)) {
-                        data = IOUtils.convertWMFToPNG(data);
+                        data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.WMF);
                         imageType = ImageType.PNG;
                     } else if (ImageType.EMF.equals(imageType)) {
-                        data = IOUtils.convertEMFToPNG(data);
+                        data = getOptions().getMetafileConverter().convert(data, MetafileConverter.Format.EMF);
                         imageType = ImageType.PNG;
                     }
-                    this.getContents().add(new ImageContent(data, imageType.getMimeType(), imageType.getName()));
+                    this.emit(new ImageContent(data, imageType.getMimeType(), imageType.getName()));
                 }
             } else {
                 // 抽取文本
@@ -159,7 +163,7 @@ public class XWPFWordContentExtractor extends AbstractContentExtractor {
         if (sb != null) {
             String text = sb.toString();
             if (ContentHelper.checkValidText(text)) {
-                this.getContents().add(new TextContent(ContentHelper.cleanExtractedText(text)));
+                this.emit(new TextContent(ContentHelper.cleanExtractedText(text)));
             }
         }
     }
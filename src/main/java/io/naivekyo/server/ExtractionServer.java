@@ -0,0 +1,357 @@
+package io.naivekyo.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.naivekyo.batch.DocumentTextExporter;
+import io.naivekyo.content.DocumentParagraph;
+import io.naivekyo.exception.ContentExtractFailureException;
+import io.naivekyo.support.cache.ExtractionCache;
+import io.naivekyo.util.TikaFacadeUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>常驻的文本抽取服务, 基于 JDK 内置的 {@link HttpServer}, 只监听本机回环地址</p>
+ * <p>服务启动时完成 POI/PDFBox/Tika 的类加载和初始化, 之后每个请求只需承担抽取本身的开销: </p>
+ * <ul>
+ *     <li>{@code POST /extract}: 请求体为文档内容, 响应为抽取到的文本段落, 每行一个段落;
+ *     请求体必须带有 Content-Length, 超过 {@link #maxRequestBytes} 时返回 413</li>
+ *     <li>{@code GET|POST /extract?path=file}: 抽取服务所在机器上的本地文件, 不需要上传文件内容;
+ *     只允许访问 {@link #rootDirectory} 中的文件(相对路径基于该目录解析), 没有设置时禁用</li>
+ *     <li>{@code GET /health}: 健康检查</li>
+ * </ul>
+ * <p>同时执行的抽取任务数量受限于 {@link #concurrency}, 超过限制的请求最多等待 {@link #ADMISSION_TIMEOUT_SECONDS} 秒,
+ * 仍然无法执行时返回 503</p>
+ * <p>虽然只监听回环地址, 浏览器中的网页仍然可以通过 DNS rebinding 或者跨域表单访问服务,
+ * 因此 Host 必须是本机地址, 带有 Origin 时也必须来自本机, 否则返回 403</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class ExtractionServer {
+
+    private static final Log LOG = LogFactory.getLog(ExtractionServer.class);
+
+    public static final int DEFAULT_PORT = 8686;
+
+    /**
+     * 请求等待执行许可的最长时间
+     */
+    public static final int ADMISSION_TIMEOUT_SECONDS = 30;
+
+    /**
+     * 默认的请求体大小上限
+     */
+    public static final long DEFAULT_MAX_REQUEST_BYTES = 100L * 1024 * 1024;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * 同时执行的抽取任务数量
+     */
+    private final int concurrency;
+
+    private final Semaphore permits;
+
+    /**
+     * 抽取结果缓存, 只用于本地文件请求, null 表示不使用缓存
+     */
+    private final ExtractionCache cache;
+
+    /**
+     * 请求体大小上限, 请求体会被完整读入内存
+     */
+    private long maxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
+
+    /**
+     * path 参数允许访问的目录(真实路径), null 表示禁用 path 参数
+     */
+    private Path rootDirectory;
+
+    public ExtractionServer(int port, int concurrency) throws IOException {
+        this(port, concurrency, null);
+    }
+
+    public ExtractionServer(int port, int concurrency, ExtractionCache cache) throws IOException {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive.");
+        this.concurrency = concurrency;
+        this.cache = cache;
+        this.permits = new Semaphore(concurrency, true);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), concurrency * 4);
+        // 处理线程多于许可数量, 多出的线程用于等待许可以及快速响应健康检查和 503
+        this.executor = Executors.newFixedThreadPool(concurrency * 2, new ServerThreadFactory());
+        this.server.setExecutor(executor);
+        this.server.createContext("/extract", this::handleExtract);
+        this.server.createContext("/health", this::handleHealth);
+    }
+
+    /**
+     * 设置请求体大小上限, 需要在 {@link #start()} 之前设置
+     * @param maxRequestBytes 字节数, 默认为 {@link #DEFAULT_MAX_REQUEST_BYTES}
+     */
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        if (maxRequestBytes <= 0)
+            throw new IllegalArgumentException("max request size must be positive.");
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /**
+     * 设置 path 参数允许访问的目录, 需要在 {@link #start()} 之前设置; 目录之外的文件(包括通过符号链接指向外部的文件)返回 403
+     * @param rootDirectory 目录, null 表示禁用 path 参数
+     * @throws IOException 目录不存在或者无法解析真实路径
+     */
+    public void setRootDirectory(Path rootDirectory) throws IOException {
+        if (rootDirectory != null && !Files.isDirectory(rootDirectory))
+            throw new IOException(rootDirectory + " is not a directory.");
+        this.rootDirectory = rootDirectory == null ? null : rootDirectory.toRealPath();
+    }
+
+    /**
+     * 预热后开始监听端口, 方法立即返回
+     */
+    public void start() {
+        warmUp();
+        server.start();
+        LOG.info(String.format("extraction server is listening on %s, concurrency: %d", server.getAddress(), concurrency));
+    }
+
+    /**
+     * 停止服务, 等待正在执行的请求最多 delay 秒
+     * @param delay 等待秒数
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdownNow();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * 加载并初始化抽取过程中用到的类: Tika 单例、PDFBox 文本抽取、POI docx 解析
+     */
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        try {
+            TikaFacadeUtil.detectFileMediaType(new ByteArrayInputStream("warm up".getBytes(StandardCharsets.UTF_8)));
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+            try (PDDocument doc = new PDDocument()) {
+                doc.addPage(new PDPage());
+                doc.save(pdf);
+            }
+            DocumentTextExporter.extractParagraphs(new ByteArrayInputStream(pdf.toByteArray()));
+            ByteArrayOutputStream docx = new ByteArrayOutputStream();
+            try (XWPFDocument doc = new XWPFDocument()) {
+                doc.createParagraph().createRun().setText("warm up");
+                doc.write(docx);
+            }
+            DocumentTextExporter.extractParagraphs(new ByteArrayInputStream(docx.toByteArray()));
+            Class.forName("org.apache.poi.hwpf.HWPFDocument");
+        } catch (Exception e) {
+            LOG.warn("预热抽取器失败, 首个请求可能较慢", e);
+        }
+        LOG.info(String.format("warm up finished, cost: %d ms", System.currentTimeMillis() - start));
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, String.format("ok, available: %d/%d", permits.availablePermits(), concurrency));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleExtract(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"POST".equals(method)) {
+                respond(exchange, 405, "method not allowed: " + method);
+                return;
+            }
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))
+                    || !isLocalOrigin(exchange.getRequestHeaders().getFirst("Origin"))) {
+                respond(exchange, 403, "only local clients are allowed.");
+                return;
+            }
+            String filePath = parseQuery(exchange.getRequestURI().getRawQuery()).get("path");
+            if (filePath == null && !"POST".equals(method)) {
+                respond(exchange, 400, "missing request body or path parameter.");
+                return;
+            }
+            Path path = null;
+            if (filePath != null) {
+                if (rootDirectory == null) {
+                    respond(exchange, 403, "path parameter is disabled, start the server with a root directory.");
+                    return;
+                }
+                path = rootDirectory.resolve(filePath).normalize();
+                if (!path.startsWith(rootDirectory)) {
+                    respond(exchange, 403, filePath + " is outside of the root directory.");
+                    return;
+                }
+                if (!Files.isRegularFile(path)) {
+                    respond(exchange, 404, filePath + " is not a regular file.");
+                    return;
+                }
+                // 符号链接可能指向根目录之外
+                if (!path.toRealPath().startsWith(rootDirectory)) {
+                    respond(exchange, 403, filePath + " is outside of the root directory.");
+                    return;
+                }
+            } else {
+                String length = exchange.getRequestHeaders().getFirst("Content-Length");
+                if (length == null) {
+                    respond(exchange, 411, "Content-Length is required.");
+                    return;
+                }
+                long bytes;
+                try {
+                    bytes = Long.parseLong(length.trim());
+                } catch (NumberFormatException e) {
+                    respond(exchange, 400, "invalid Content-Length: " + length);
+                    return;
+                }
+                if (bytes > maxRequestBytes) {
+                    respond(exchange, 413, String.format("request body is too large: %d bytes, limit: %d bytes.", bytes, maxRequestBytes));
+                    return;
+                }
+            }
+            if (!permits.tryAcquire(ADMISSION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                respond(exchange, 503, "server is busy, try again later.");
+                return;
+            }
+            long start = System.currentTimeMillis();
+            List<DocumentParagraph> paragraphs;
+            try {
+                if (path != null) {
+                    paragraphs = DocumentTextExporter.extractParagraphs(path, cache);
+                } else {
+                    try (InputStream body = exchange.getRequestBody()) {
+                        paragraphs = DocumentTextExporter.extractParagraphs(body);
+                    }
+                }
+            } finally {
+                permits.release();
+            }
+            StringBuilder sb = new StringBuilder();
+            if (paragraphs != null) {
+                for (DocumentParagraph paragraph : paragraphs) {
+                    sb.append(paragraph.getContent()).append('\n');
+                }
+            }
+            exchange.getResponseHeaders().set("X-Extract-Millis", String.valueOf(System.currentTimeMillis() - start));
+            respond(exchange, 200, sb.toString());
+        } catch (ContentExtractFailureException e) {
+            respond(exchange, 415, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "server is shutting down.");
+        } catch (Exception e) {
+            // 单个请求的异常不能终止服务; OOM 等 Error 说明 JVM 已经处于异常状态, 不在这里吞掉
+            LOG.error("抽取请求处理失败", e);
+            respond(exchange, 500, String.valueOf(e));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * @param host Host 请求头, 可能带有端口
+     * @return 是否为本机地址
+     */
+    private static boolean isLocalHost(String host) {
+        if (host == null)
+            return false;
+        String name = host.trim();
+        if (name.startsWith("[")) {
+            int end = name.indexOf(']');
+            name = end < 0 ? name : name.substring(0, end + 1);
+        } else if (name.indexOf(':') >= 0) {
+            name = name.substring(0, name.indexOf(':'));
+        }
+        name = name.toLowerCase(Locale.ROOT);
+        return "localhost".equals(name) || "127.0.0.1".equals(name) || "[::1]".equals(name);
+    }
+
+    /**
+     * @param origin Origin 请求头
+     * @return 没有 Origin(非浏览器请求)或者来自本机页面
+     */
+    private static boolean isLocalOrigin(String origin) {
+        if (origin == null)
+            return true;
+        try {
+            URI uri = new URI(origin.trim());
+            return uri.getHost() != null && isLocalHost(uri.getHost());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty())
+            return params;
+        for (String pair : rawQuery.split("&")) {
+            int idx = pair.indexOf('=');
+            if (idx > 0)
+                params.put(URLDecoder.decode(pair.substring(0, idx), "UTF-8"), URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    /**
+     * 为服务线程命名, 方便排查问题
+     */
+    private static class ServerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger seq = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "extract-server-" + seq.incrementAndGet());
+        }
+    }
+
+}
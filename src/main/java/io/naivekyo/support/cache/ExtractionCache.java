@@ -0,0 +1,281 @@
+package io.naivekyo.support.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>基于内容寻址的磁盘缓存, 保存文档抽取结果</p>
+ * <ul>
+ *     <li>缓存键由文档字节的 SHA-256 摘要和抽取参数共同决定, 见 {@link #key(String, Object...)}</li>
+ *     <li>缓存值使用 java 序列化保存为单个文件, 写入时先写临时文件再原子替换</li>
+ *     <li>缓存总大小超过 {@link #maxBytes} 时按照最近最少使用(LRU)的顺序淘汰, 访问顺序通过文件修改时间在进程间保留</li>
+ * </ul>
+ * <p><b>thread-safe</b>, 但同一个缓存目录不应被多个进程同时使用</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class ExtractionCache {
+
+    private static final Log LOG = LogFactory.getLog(ExtractionCache.class);
+
+    /**
+     * 缓存文件后缀
+     */
+    private static final String ENTRY_SUFFIX = ".bin";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path dir;
+
+    private final long maxBytes;
+
+    /**
+     * 缓存键 -> 缓存文件大小, 按照访问顺序排列, 第一个元素是最久未使用的
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param dir 缓存目录, 不存在时自动创建
+     * @param maxBytes 缓存总大小上限(字节)
+     * @throws IOException 创建或者扫描缓存目录时出现的异常
+     */
+    public ExtractionCache(Path dir, long maxBytes) throws IOException {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("cache size must be positive.");
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        loadEntries();
+    }
+
+    /**
+     * 扫描已有的缓存文件, 按照修改时间恢复访问顺序
+     */
+    private void loadEntries() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + ENTRY_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Map<Path, FileTime> times = new HashMap<>();
+        for (Path file : files) {
+            times.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(times::get));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), size);
+            totalBytes += size;
+        }
+        evict();
+    }
+
+    /**
+     * 计算文件内容的摘要
+     * @param file 文件
+     * @return 十六进制的 SHA-256 摘要
+     * @throws IOException 读取文件时出现的异常
+     */
+    public static String contentHash(Path file) throws IOException {
+        try (InputStream is = Files.newInputStream(file)) {
+            return contentHash(is);
+        }
+    }
+
+    /**
+     * 计算输入流剩余内容的摘要, 方法会读取完输入流但不负责关闭
+     * @param is 输入流
+     * @return 十六进制的 SHA-256 摘要
+     * @throws IOException 读取输入流时出现的异常
+     */
+    public static String contentHash(InputStream is) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buf = new byte[64 * 1024];
+        int len;
+        while ((len = is.read(buf)) != -1) {
+            digest.update(buf, 0, len);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * 根据文档摘要和抽取参数生成缓存键, 任意参数不同都会得到不同的键
+     * @param contentHash 文档摘要, 见 {@link #contentHash(Path)}
+     * @param params 抽取参数, 例如抽取方式、sortByPosition、threshold、factor, 使用 {@link String#valueOf(Object)} 转换
+     * @return 缓存键
+     */
+    public static String key(String contentHash, Object... params) {
+        StringBuilder sb = new StringBuilder(contentHash);
+        for (Object param : params) {
+            sb.append('|').append(param);
+        }
+        return toHex(sha256().digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 获取缓存值
+     * @param key 缓存键
+     * @return 缓存值, 不存在或者无法读取时返回 null
+     * @param <T> 缓存值类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> T get(String key) {
+        Path file = entryFile(key);
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            T value = (T) ois.readObject();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return value;
+        } catch (Exception e) {
+            // 缓存文件损坏或者类结构不兼容, 视为未命中
+            LOG.warn(String.format("读取抽取结果缓存失败, 删除缓存文件: %s", file), e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存值, 写入后如果超过总大小上限则淘汰最久未使用的缓存
+     * @param key 缓存键
+     * @param value 缓存值
+     * @throws IOException 写入缓存文件时出现的异常
+     */
+    public void put(String key, Serializable value) throws IOException {
+        Path file = entryFile(key);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                oos.writeObject(value);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        long size = Files.size(file);
+        synchronized (this) {
+            Long old = entries.put(key, size);
+            totalBytes += size - (old == null ? 0 : old);
+            evict();
+        }
+    }
+
+    /**
+     * 获取缓存值, 未命中时调用 loader 计算并写入缓存
+     * @param key 缓存键
+     * @param loader 计算缓存值的逻辑, 返回 null 时不写入缓存
+     * @return 缓存值
+     * @param <T> 缓存值类型
+     * @throws Exception loader 抛出的异常
+     */
+    public <T extends Serializable> T computeIfAbsent(String key, Callable<T> loader) throws Exception {
+        T value = get(key);
+        if (value != null)
+            return value;
+        value = loader.call();
+        if (value != null) {
+            try {
+                put(key, value);
+            } catch (IOException e) {
+                LOG.warn("写入抽取结果缓存失败", e);
+            }
+        }
+        return value;
+    }
+
+    private synchronized void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null)
+            totalBytes -= size;
+        try {
+            Files.deleteIfExists(entryFile(key));
+        } catch (IOException e) {
+            LOG.warn(String.format("删除缓存文件失败: %s", key), e);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(entryFile(eldest.getKey()));
+            } catch (IOException e) {
+                LOG.warn(String.format("淘汰缓存文件失败: %s", eldest.getKey()), e);
+            }
+        }
+    }
+
+    private Path entryFile(String key) {
+        return dir.resolve(key + ENTRY_SUFFIX);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.naivekyo.support.excel;
+
+import io.naivekyo.content.ContentHelper;
+import io.naivekyo.content.impl.TableContent;
+import io.naivekyo.content.impl.TextContent;
+import io.naivekyo.extractor.ContentSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Excel 行数据收集器, 供基于事件模型的 Excel 抽取器使用</p>
+ * <p>逐个接收单元格, 每累积 {@link #batchSize} 行就输出一个 {@link TableContent} 分块,
+ * 因此内存中最多只保留一个分块的数据, 与 Excel 文件的总行数无关</p>
+ * <p><b>not thread-safe</b></p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class RowBatchCollector {
+
+    /**
+     * 默认每个表格分块包含的行数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final ContentSink downstream;
+
+    private final int batchSize;
+
+    /**
+     * 当前行的单元格文本, 行结束后复用
+     */
+    private final List<String> currentRow;
+
+    private TableContent.TableContentBuilder builder;
+
+    private int bufferedRows;
+
+    /**
+     * @param downstream 接收输出内容的回调
+     * @param batchSize 每个表格分块包含的行数
+     */
+    public RowBatchCollector(ContentSink downstream, int batchSize) {
+        if (downstream == null)
+            throw new NullPointerException("downstream cant be null.");
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batch size must be positive.");
+        this.downstream = downstream;
+        this.batchSize = batchSize;
+        this.currentRow = new ArrayList<>();
+    }
+
+    /**
+     * 开始一个新的 sheet, 先输出之前 sheet 中剩余的行, 再输出 sheet 名称
+     * @param sheetName sheet 名称
+     */
+    public void startSheet(String sheetName) {
+        flush();
+        if (ContentHelper.hasText(sheetName))
+            downstream.accept(new TextContent(sheetName));
+    }
+
+    /**
+     * 追加当前行的一个单元格, 空白单元格会被忽略
+     * @param value 单元格格式化后的文本
+     */
+    public void cell(String value) {
+        if (ContentHelper.hasText(value))
+            currentRow.add(value);
+    }
+
+    /**
+     * 结束当前行, 空行不会输出
+     */
+    public void endRow() {
+        if (currentRow.isEmpty())
+            return;
+        if (builder == null)
+            builder = new TableContent.TableContentBuilder();
+        builder.addRow(currentRow);
+        currentRow.clear();
+        if (++bufferedRows >= batchSize)
+            flush();
+    }
+
+    /**
+     * 输出已经累积的行
+     */
+    public void flush() {
+        // 未结束的行视为已经结束
+        endRowIfPending();
+        if (builder != null) {
+            downstream.accept(builder.build());
+            builder = null;
+            bufferedRows = 0;
+        }
+    }
+
+    private void endRowIfPending() {
+        if (!currentRow.isEmpty()) {
+            if (builder == null)
+                builder = new TableContent.TableContentBuilder();
+            builder.addRow(currentRow);
+            currentRow.clear();
+            bufferedRows++;
+        }
+    }
+
+}
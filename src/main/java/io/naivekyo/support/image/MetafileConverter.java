@@ -0,0 +1,391 @@
+package io.naivekyo.support.image;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.hemf.usermodel.HemfPicture;
+import org.apache.poi.hwmf.usermodel.HwmfPicture;
+import org.apache.poi.util.Units;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Dimension2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>WMF/EMF 图元文件转换服务, 将图元文件光栅化为 png 图片</p>
+ * <ul>
+ *     <li>转换结果按照图元文件内容的 SHA-256 摘要缓存, 缓存总大小超过上限时按照最近最少使用(LRU)的顺序淘汰,
+ *     同一张剪贴画出现在大量文档中时只需要转换一次</li>
+ *     <li>多个线程同时转换同一个图元文件时只会执行一次转换, 其他线程等待结果</li>
+ *     <li>转换在有界的线程池中执行, 同时进行的转换数量不会超过线程数, 队列已满时由调用线程执行</li>
+ *     <li>可以配置输出图片的最大边长以及渲染质量, 见 {@link Quality}</li>
+ * </ul>
+ * <p>缓存中的 png 字节数组会被多个调用者共享, 调用者不应修改返回的数组</p>
+ * <p><b>thread-safe</b></p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class MetafileConverter implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(MetafileConverter.class);
+
+    /**
+     * 默认的最大边长(像素), 与 {@link io.naivekyo.util.IOUtils#convertWMFToPNG(byte[])} 一致
+     */
+    public static final int DEFAULT_MAX_DIMENSION = 1500;
+
+    /**
+     * 默认的缓存大小: 64 MB
+     */
+    public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 图元文件格式
+     */
+    public enum Format {
+        WMF, EMF
+    }
+
+    /**
+     * 渲染质量
+     */
+    public enum Quality {
+
+        /**
+         * 关闭抗锯齿, 使用最近邻插值, 速度优先
+         */
+        FAST,
+
+        /**
+         * 开启抗锯齿, 使用双三次插值, 与 {@link io.naivekyo.util.IOUtils#convertWMFToPNG(byte[])} 的输出一致
+         */
+        QUALITY
+    }
+
+    private static volatile MetafileConverter defaultConverter;
+
+    private final int maxDimension;
+
+    private final Quality quality;
+
+    private final long maxCacheBytes;
+
+    /**
+     * 缓存键 -> png 字节, 按照访问顺序排列, 第一个元素是最久未使用的
+     */
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cacheBytes;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * 正在进行中的转换, 用于合并相同内容的并发请求
+     */
+    private final ConcurrentHashMap<String, Future<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private MetafileConverter(MetafileConverterBuilder builder) {
+        this.maxDimension = builder.maxDimension;
+        this.quality = builder.quality;
+        this.maxCacheBytes = builder.cacheBytes;
+        this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(builder.queueSize), new ConverterThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取全局共享的转换器: 最大边长 {@link #DEFAULT_MAX_DIMENSION}, {@link Quality#QUALITY}, 缓存 {@link #DEFAULT_CACHE_BYTES}, 线程数等于 CPU 核数
+     * @return 转换器
+     */
+    public static MetafileConverter getDefault() {
+        if (defaultConverter == null) {
+            synchronized (MetafileConverter.class) {
+                if (defaultConverter == null)
+                    defaultConverter = new MetafileConverterBuilder().build();
+            }
+        }
+        return defaultConverter;
+    }
+
+    /**
+     * 将图元文件转换为 png 图片, 优先使用缓存
+     * @param data 图元文件字节
+     * @param format 图元文件格式
+     * @return png 图片字节, 不能修改
+     * @throws IOException 解析或者编码图片时出现的异常
+     */
+    public byte[] convert(byte[] data, Format format) throws IOException {
+        String key = key(data, format);
+        synchronized (this) {
+            byte[] png = cache.get(key);
+            if (png != null) {
+                hits++;
+                return png;
+            }
+        }
+
+        FutureTask<byte[]> task = new FutureTask<>(() -> render(data, format, maxDimension, quality));
+        Future<byte[]> running = inFlight.putIfAbsent(key, task);
+        synchronized (this) {
+            // 等待其他线程正在进行的相同转换也视为命中
+            if (running == null)
+                misses++;
+            else
+                hits++;
+        }
+        if (running == null) {
+            running = task;
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 线程池已经关闭
+                task.run();
+            }
+        }
+        try {
+            byte[] png = running.get();
+            if (running == task)
+                put(key, png);
+            return png;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        } finally {
+            if (running == task)
+                inFlight.remove(key);
+        }
+    }
+
+    /**
+     * 将图元文件光栅化为 png 图片, 不使用缓存和线程池
+     * @param data 图元文件字节
+     * @param format 图元文件格式
+     * @param maxDimension 最大边长(像素), 超过时保持宽高比例缩小
+     * @param quality 渲染质量
+     * @return png 图片字节
+     * @throws IOException 解析或者编码图片时出现的异常
+     */
+    public static byte[] render(byte[] data, Format format, int maxDimension, Quality quality) throws IOException {
+        HwmfPicture wmf = null;
+        HemfPicture emf = null;
+        Dimension2D dim;
+        if (Format.WMF.equals(format)) {
+            wmf = new HwmfPicture(new ByteArrayInputStream(data));
+            dim = wmf.getSize();
+        } else {
+            emf = new HemfPicture(new ByteArrayInputStream(data));
+            dim = emf.getSize();
+        }
+        int width = Units.pointsToPixel(dim.getWidth());
+        int height = Units.pointsToPixel(dim.getHeight());
+        double max = Math.max(width, height);
+        // 保持宽高比例不变
+        if (max > maxDimension) {
+            width *= maxDimension / max;
+            height *= maxDimension / max;
+        }
+
+        BufferedImage bufImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = bufImg.createGraphics();
+        if (Quality.QUALITY.equals(quality)) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        } else {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        }
+
+        Rectangle2D bounds = new Rectangle2D.Double(0, 0, width, height);
+        if (wmf != null)
+            wmf.draw(g2, bounds);
+        else
+            emf.draw(g2, bounds);
+
+        g2.dispose();
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream(data.length);
+        ImageIO.write(bufImg, "PNG", os);
+
+        return os.toByteArray();
+    }
+
+    private synchronized void put(String key, byte[] png) {
+        if (png.length > maxCacheBytes)
+            return;
+        byte[] old = cache.put(key, png);
+        if (old != null)
+            cacheBytes -= old.length;
+        cacheBytes += png.length;
+        Iterator<Map.Entry<String, byte[]>> it = cache.entrySet().iterator();
+        while (cacheBytes > maxCacheBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            cacheBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    private static String key(byte[] data, Format format) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update((byte) format.ordinal());
+        digest.update(data);
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public Quality getQuality() {
+        return quality;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 关闭线程池, 关闭后仍然可以调用 {@link #convert(byte[], Format)}, 转换在调用线程中执行
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (LOG.isDebugEnabled())
+            LOG.debug(String.format("metafile converter closed, cache hits: %d, misses: %d", getHits(), getMisses()));
+    }
+
+    public static class MetafileConverterBuilder {
+
+        private int maxDimension = DEFAULT_MAX_DIMENSION;
+
+        private Quality quality = Quality.QUALITY;
+
+        private long cacheBytes = DEFAULT_CACHE_BYTES;
+
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        private int queueSize = 64;
+
+        public MetafileConverterBuilder() {
+        }
+
+        /**
+         * @param maxDimension 输出图片的最大边长(像素)
+         * @return builder
+         */
+        public MetafileConverterBuilder maxDimension(int maxDimension) {
+            if (maxDimension <= 0)
+                throw new IllegalArgumentException("max dimension must be positive.");
+            this.maxDimension = maxDimension;
+            return this;
+        }
+
+        public MetafileConverterBuilder quality(Quality quality) {
+            if (quality == null)
+                throw new IllegalArgumentException("quality must not be null.");
+            this.quality = quality;
+            return this;
+        }
+
+        /**
+         * @param cacheBytes 缓存总大小上限(字节), 0 表示不缓存
+         * @return builder
+         */
+        public MetafileConverterBuilder cacheBytes(long cacheBytes) {
+            if (cacheBytes < 0)
+                throw new IllegalArgumentException("cache size must not be negative.");
+            this.cacheBytes = cacheBytes;
+            return this;
+        }
+
+        /**
+         * @param threads 同时进行转换的线程数
+         * @param queueSize 等待转换的任务数量上限, 超过时由调用线程执行转换
+         * @return builder
+         */
+        public MetafileConverterBuilder pool(int threads, int queueSize) {
+            if (threads <= 0 || queueSize <= 0)
+                throw new IllegalArgumentException("threads and queue size must be positive.");
+            this.threads = threads;
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public MetafileConverter build() {
+            return new MetafileConverter(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetafileConverter{" +
+                "maxDimension=" + maxDimension +
+                ", quality=" + quality +
+                '}';
+    }
+
+    /**
+     * 转换线程设置为守护线程, 不会阻止 JVM 退出
+     */
+    private static class ConverterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger seq = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "metafile-converter-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
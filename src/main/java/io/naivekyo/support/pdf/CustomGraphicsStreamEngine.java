@@ -1,18 +1,11 @@
 package io.naivekyo.support.pdf;
 
 import io.naivekyo.content.DocContent;
-import io.naivekyo.content.impl.ImageContent;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
 import org.apache.pdfbox.cos.COSName;
-import org.apache.pdfbox.cos.COSStream;
-import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
-import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
-import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
 import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
@@ -23,18 +16,9 @@ import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
 import org.apache.pdfbox.util.Matrix;
 import org.apache.pdfbox.util.Vector;
 
-import javax.imageio.ImageIO;
 import java.awt.geom.Point2D;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * 扩展 PDFGraphicsStreamEngine 定制图片处理方案
@@ -46,19 +30,15 @@ import java.util.Set;
  */
 public class CustomGraphicsStreamEngine extends PDFGraphicsStreamEngine {
 
-    private static final Log LOG = LogFactory.getLog(CustomGraphicsStreamEngine.class);
-
     /**
-     * 临时存储一些 duplicate pdf stream object, 用于图片去重
+     * 保存页面中的图片, 第一次绘制图片时创建
      */
-    private final Set<COSStream> seen = new HashSet<>();
-
-    private static final List<String> JPEG = Arrays.asList(
-            COSName.DCT_DECODE.getName(),
-            COSName.DCT_DECODE_ABBREVIATION.getName()
-    );
+    private PDFImageCollector images;
 
-    private List<DocContent> contents;
+    /**
+     * 是否直接复制图片的原始编码数据
+     */
+    private boolean rawImagePassthrough;
     
     /**
      * Constructor.
@@ -78,12 +58,21 @@ public class CustomGraphicsStreamEngine extends PDFGraphicsStreamEngine {
         super.processPage(super.getPage());
     }
 
+    /**
+     * 设置是否直接复制图片的原始编码数据(raw passthrough), 开启后图片不会被解码和重新编码, 
+     * 抽取结果为 {@link io.naivekyo.content.impl.EncodedImageContent}
+     * @param rawImagePassthrough true 表示复制原始编码数据
+     */
+    public void setRawImagePassthrough(boolean rawImagePassthrough) {
+        this.rawImagePassthrough = rawImagePassthrough;
+    }
+
     /**
      * 获取抽取的所有内容
      * @return 抽取的内容
      */
     public List<DocContent> getContents() {
-        return this.contents;
+        return this.images == null ? null : this.images.getContents();
     }
     
     @Override
@@ -92,24 +81,15 @@ public class CustomGraphicsStreamEngine extends PDFGraphicsStreamEngine {
     
     @Override
     public void drawImage(PDImage pdImage) throws IOException {
-        if (contents == null)
-            contents = new ArrayList<>();
-        
-        // An external image object. (i.e. pdf 嵌入的外部图片)
-        if (pdImage instanceof PDImageXObject) {
-            if (pdImage.isStencil()) {
-                processColor(getGraphicsState().getNonStrokingColor());
-            }
-            PDImageXObject xObject = (PDImageXObject) pdImage;
-            if (seen.contains(xObject.getCOSObject())) {
-                // skip duplicate image
-                return;
-            }
-            seen.add(xObject.getCOSObject());
+        if (images == null) {
+            images = new PDFImageCollector();
+            images.setPassthrough(rawImagePassthrough);
         }
         
-        // save image
-        write2ImageContent(pdImage);
+        if (pdImage instanceof PDImageXObject && pdImage.isStencil()) {
+            processColor(getGraphicsState().getNonStrokingColor());
+        }
+        images.collect(pdImage);
     }
 
     /**
@@ -126,118 +106,6 @@ public class CustomGraphicsStreamEngine extends PDFGraphicsStreamEngine {
         }
     }
 
-    private void write2ImageContent(PDImage pdImage) throws IOException {
-        String suffix = pdImage.getSuffix();
-        if (suffix == null || "jb2".equals(suffix)) {
-            suffix = "png";
-        } else if ("jpx".equals(suffix)) {
-            // use jp2 suffix for file because jpx not known by windows
-            suffix = "jp2";
-        }
-        
-        if (hasMasks(pdImage)) {
-            // TIKA-3040, PDFBOX-4771: can't save ARGB as JPEG
-            suffix = "png";
-        }
-
-        // 如果可行的话, 就 write raw image, 但是这里没法获得图片透明度(alpha information)
-        BufferedImage image = pdImage.getRawImage();
-        if (image != null) {
-            int elements = image.getRaster().getNumDataElements();
-            suffix = "png";
-            if (elements > 3) {
-                // 图片的 channel 超过 3 个, 有点像 CMYK, 这里使用 tiff 文件格式
-                // 但是需要 class path 中有 TIFF codec 才能正常工作
-                suffix = "tiff";
-            }
-            doImageExtract(image, suffix);
-            return;
-        }
-        
-        if ("jpg".equals(suffix)) {
-            String colorSpaceName = pdImage.getColorSpace().getName();
-            if (PDDeviceGray.INSTANCE.getName().equals(colorSpaceName) || PDDeviceRGB.INSTANCE.getName().equals(colorSpaceName)) {
-                // RGB or Gray colorspace: get and write the unmodified JPEG stream
-                InputStream data = pdImage.createInputStream(JPEG);
-                doImageExtract(data, suffix);
-            } else {
-                // for CMYK and other "unusual" colorspaces, the JPEG will be converted
-                image = pdImage.getImage();
-                if (image != null) {
-                    doImageExtract(image, suffix);
-                }
-            }
-        } else if ("jp2".equals(suffix)) {
-            String colorSpaceName = pdImage.getColorSpace().getName();
-            if (PDDeviceGray.INSTANCE.getName().equals(colorSpaceName) || PDDeviceRGB.INSTANCE.getName().equals(colorSpaceName)) {
-                // RGB or Gray colorspace: get and write the unmodified JPEG2000 stream
-                InputStream data = pdImage.createInputStream(Collections.singletonList(COSName.JPX_DECODE.getName()));
-                doImageExtract(data, suffix);
-            } else {
-                // for CMYK and other "unusual" colorspaces, the image will be converted
-                image = pdImage.getImage();
-                if (image != null) {
-                    doImageExtract(image, "jpeg2000");
-                }
-            }
-        } else if ("tiff".equals(suffix) && pdImage.getColorSpace().equals(PDDeviceGray.INSTANCE)) {
-            image = pdImage.getImage();
-            if (image == null)
-                return;
-            // CCITT compressed images can have a different colorspace, but this one is B/W
-            // This is a bitonal image, so copy to TYPE_BYTE_BINARY
-            // so that a G4 compressed TIFF image is created by ImageIOUtil.writeImage()
-            int w = image.getWidth();
-            int h = image.getHeight();
-            BufferedImage bitonalImage = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY);
-            // copy image the old fashioned way - ColorConvertOp is slower!
-            for (int y = 0; y < h; y++) {
-                for (int x = 0; x < w; x++) {
-                    bitonalImage.setRGB(x, y, image.getRGB(x, y));
-                }
-            }
-            doImageExtract(bitonalImage, suffix);
-        } else {
-            image = pdImage.getImage();
-            if (image != null) {
-                doImageExtract(image, suffix);
-            }
-        }
-    }
-    
-    private boolean hasMasks(PDImage pdImage) throws IOException {
-        if (pdImage instanceof PDImageXObject) {
-            PDImageXObject xImg = (PDImageXObject) pdImage;
-            return xImg.getMask() != null || xImg.getSoftMask() != null;
-        }
-        return false;
-    }
-
-    /**
-     * @param image {@link java.awt.image.RenderedImage}
-     * @param suffix image type, e.g. png
-     */
-    private void doImageExtract(BufferedImage image, String suffix) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, suffix, baos);
-        this.contents.add(new ImageContent(baos.toByteArray(), suffix));
-    }
-
-    private void doImageExtract(InputStream is, String suffix) throws IOException {
-        Exception bakE = null;
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            IOUtils.copy(is, baos);
-            this.contents.add(new ImageContent(baos.toByteArray(), suffix));
-        } catch (IOException e) {
-            bakE = e;
-        } finally {
-            IOUtils.closeQuietly(is);
-        }
-        if (bakE != null)
-            throw new IOException(bakE);
-    }
-
     @Override
     public void clip(int windingRule) throws IOException {
     }
@@ -0,0 +1,183 @@
+package io.naivekyo.support.pdf;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>pdf 文档的数据来源, 负责以随机访问的方式加载 {@link PDDocument}, 避免将整个文件复制到堆内存中</p>
+ * <ul>
+ *     <li>基于文件: 使用 {@link RandomAccessReadBufferedFile} 或者 {@link RandomAccessReadMemoryMappedFile} 读取</li>
+ *     <li>基于输入流: 小于 {@link #DEFAULT_SPOOL_THRESHOLD} 的数据保存在内存中, 超过阈值时转存到临时文件, 关闭时删除临时文件</li>
+ * </ul>
+ * <p>每次调用 {@link #load()} 都会返回一个独立的文档对象, 因此可以在多个线程中分别加载同一份数据</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class PDFDocumentSource implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(PDFDocumentSource.class);
+
+    /**
+     * 输入流转存到临时文件的默认阈值: 16 MB
+     */
+    public static final int DEFAULT_SPOOL_THRESHOLD = 16 * 1024 * 1024;
+
+    /**
+     * 单个 {@link java.nio.MappedByteBuffer} 最多映射 2 GB, 超过时退化为 buffered file 读取
+     */
+    private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * 文件来源, 与 {@link #bytes} 二选一
+     */
+    private final Path file;
+
+    /**
+     * 内存来源, 与 {@link #file} 二选一
+     */
+    private final byte[] bytes;
+
+    /**
+     * 是否使用内存映射的方式读取文件
+     */
+    private final boolean memoryMapped;
+
+    /**
+     * {@link #file} 是否是由当前对象创建的临时文件, 是则在关闭时删除
+     */
+    private final boolean temporary;
+
+    private PDFDocumentSource(Path file, byte[] bytes, boolean memoryMapped, boolean temporary) {
+        this.file = file;
+        this.bytes = bytes;
+        this.memoryMapped = memoryMapped;
+        this.temporary = temporary;
+    }
+
+    /**
+     * 基于文件创建数据来源, 使用 buffered file 方式读取
+     * @param file pdf 文件
+     * @return 数据来源
+     */
+    public static PDFDocumentSource of(Path file) {
+        return of(file, false);
+    }
+
+    /**
+     * 基于文件创建数据来源
+     * @param file pdf 文件
+     * @param memoryMapped true 表示使用内存映射读取文件(不占用堆内存, 适合被多个线程反复随机读取), false 表示使用 buffered file
+     * @return 数据来源
+     */
+    public static PDFDocumentSource of(Path file, boolean memoryMapped) {
+        if (file == null)
+            throw new NullPointerException("pdf file cant be null.");
+        return new PDFDocumentSource(file, null, memoryMapped, false);
+    }
+
+    /**
+     * 基于输入流创建数据来源, 使用默认阈值 {@link #DEFAULT_SPOOL_THRESHOLD}
+     * @param is 输入流, 方法不负责关闭
+     * @return 数据来源
+     * @throws IOException 读取或者写入临时文件时出现的异常
+     */
+    public static PDFDocumentSource of(InputStream is) throws IOException {
+        return of(is, DEFAULT_SPOOL_THRESHOLD);
+    }
+
+    /**
+     * 基于输入流创建数据来源, 数据量不超过阈值时保存在内存中, 否则转存到临时文件
+     * @param is 输入流, 方法不负责关闭
+     * @param spoolThreshold 转存阈值(字节)
+     * @return 数据来源
+     * @throws IOException 读取或者写入临时文件时出现的异常
+     */
+    public static PDFDocumentSource of(InputStream is, int spoolThreshold) throws IOException {
+        if (is == null)
+            throw new NullPointerException("pdf input stream cant be null.");
+        ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(spoolThreshold, 64 * 1024));
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = is.read(buf)) != -1) {
+            head.write(buf, 0, len);
+            if (head.size() > spoolThreshold) {
+                return new PDFDocumentSource(spool(head, buf, is), null, false, true);
+            }
+        }
+        return new PDFDocumentSource(null, head.toByteArray(), false, false);
+    }
+
+    private static Path spool(ByteArrayOutputStream head, byte[] buf, InputStream rest) throws IOException {
+        Path tmp = Files.createTempFile("extractor-", ".pdf");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            head.writeTo(os);
+            head.reset();
+            int len;
+            while ((len = rest.read(buf)) != -1) {
+                os.write(buf, 0, len);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return tmp;
+    }
+
+    /**
+     * 加载一个新的文档对象, 文档内的 stream 缓存在临时文件中, 调用方负责关闭返回的文档
+     * @return pdf 文档对象
+     * @throws IOException 解析异常
+     */
+    public PDDocument load() throws IOException {
+        RandomAccessRead source = openRandomAccessRead();
+        try {
+            // 文档关闭时会一并关闭 source
+            return Loader.loadPDF(source, "", null, null, IOUtils.createTempFileOnlyStreamCache());
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(source);
+            throw e;
+        }
+    }
+
+    private RandomAccessRead openRandomAccessRead() throws IOException {
+        if (bytes != null)
+            return new RandomAccessReadBuffer(bytes);
+        if (memoryMapped && Files.size(file) <= MAX_MAPPED_SIZE)
+            return new RandomAccessReadMemoryMappedFile(file);
+        return new RandomAccessReadBufferedFile(file);
+    }
+
+    /**
+     * 数据是否完全保存在内存中
+     */
+    public boolean isInMemory() {
+        return bytes != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (temporary) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn(String.format("删除 pdf 临时文件失败: %s", file), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,489 @@
+package io.naivekyo.support.pdf;
+
+import io.naivekyo.content.DocContent;
+import io.naivekyo.content.impl.EncodedImageContent;
+import io.naivekyo.content.impl.ImageContent;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>收集页面中绘制的图片, 将其转换为 {@link ImageContent}</p>
+ * <p>由 {@link CustomGraphicsStreamEngine} 和 {@link PDFPageContentEngine} 共用, 去重规则如下:</p>
+ * <ul>
+ *     <li>同一页中重复绘制的 image XObject 只保存一次</li>
+ *     <li>在多个页面中出现的 image XObject (例如 logo、水印) 只解码和编码一次, 之后的页面复用第一次生成的 {@link ImageContent} 实例</li>
+ *     <li>可选: 按内容去重, 原始数据和图片字典都相同的不同 image XObject 也复用同一个实例</li>
+ * </ul>
+ * <p>复用实例不会改变抽取结果, 只是避免重复的解码、编码以及重复的字节数组</p>
+ * <p>开启 raw passthrough 后不再解码图片, 直接复制文档中保存的原始编码数据和 filter 参数, 生成 {@link EncodedImageContent}</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+final class PDFImageCollector {
+
+    /**
+     * 当前页面中已经保存过的 pdf stream object, 用于页内去重
+     */
+    private final Set<COSStream> seen = new HashSet<>();
+
+    /**
+     * 整个文档范围内已经转换过的 image XObject
+     */
+    private final Map<COSStream, ImageContent> resolved = new HashMap<>();
+
+    /**
+     * 按内容摘要索引的图片, 未开启按内容去重时为 null
+     */
+    private final Map<String, ImageContent> byContent;
+
+    /**
+     * 计算内容摘要时展开间接引用的最大深度
+     */
+    private static final int MAX_DIGEST_DEPTH = 16;
+
+    private static final Map<String, String> ABBREVIATIONS = new HashMap<>();
+
+    static {
+        ABBREVIATIONS.put("AHx", "ASCIIHexDecode");
+        ABBREVIATIONS.put("A85", "ASCII85Decode");
+        ABBREVIATIONS.put("LZW", "LZWDecode");
+        ABBREVIATIONS.put("Fl", "FlateDecode");
+        ABBREVIATIONS.put("RL", "RunLengthDecode");
+        ABBREVIATIONS.put("CCF", "CCITTFaxDecode");
+        ABBREVIATIONS.put("DCT", "DCTDecode");
+        ABBREVIATIONS.put("G", "DeviceGray");
+        ABBREVIATIONS.put("RGB", "DeviceRGB");
+        ABBREVIATIONS.put("CMYK", "DeviceCMYK");
+        ABBREVIATIONS.put("I", "Indexed");
+    }
+
+    private static final List<String> JPEG = Arrays.asList(
+            COSName.DCT_DECODE.getName(),
+            COSName.DCT_DECODE_ABBREVIATION.getName()
+    );
+
+    private List<DocContent> contents = new ArrayList<>();
+
+    /**
+     * true 表示直接复制图片的原始编码数据, 不经过解码和重新编码
+     */
+    private boolean passthrough;
+
+    PDFImageCollector() {
+        this(false);
+    }
+
+    /**
+     * @param deduplicateByContent true 表示除了对象引用之外, 还按照原始数据和图片字典的摘要去重
+     */
+    PDFImageCollector(boolean deduplicateByContent) {
+        this.byContent = deduplicateByContent ? new HashMap<>() : null;
+    }
+
+    /**
+     * 设置是否直接复制图片的原始编码数据. 开启后不会创建 BufferedImage, 也不会处理图片的 mask/SMask
+     * @param passthrough true 表示复制原始编码数据
+     */
+    void setPassthrough(boolean passthrough) {
+        this.passthrough = passthrough;
+    }
+
+    /**
+     * 开始处理新的页面, 清空页内去重记录和当前页面的图片, 文档范围内已转换的图片会保留
+     */
+    void startPage() {
+        this.seen.clear();
+        this.contents = new ArrayList<>();
+    }
+
+    /**
+     * 获取当前页面收集到的所有图片
+     * @return 图片内容, 按照绘制顺序排列
+     */
+    List<DocContent> getContents() {
+        return this.contents;
+    }
+
+    /**
+     * 保存图片, 已经保存过的 image XObject 会被跳过
+     * @param pdImage 图片
+     * @throws IOException 读取或者编码图片时出现的异常
+     */
+    void collect(PDImage pdImage) throws IOException {
+        // An external image object. (i.e. pdf 嵌入的外部图片)
+        if (pdImage instanceof PDImageXObject) {
+            PDImageXObject xObject = (PDImageXObject) pdImage;
+            COSStream stream = xObject.getCOSObject();
+            if (!seen.add(stream)) {
+                // skip duplicate image
+                return;
+            }
+            ImageContent image = resolved.get(stream);
+            String key = null;
+            if (image == null && byContent != null) {
+                key = contentKey(stream);
+                image = byContent.get(key);
+            }
+            if (image == null) {
+                image = passthrough ? writeEncodedContent(pdImage) : write2ImageContent(pdImage);
+                if (image == null)
+                    return;
+                if (key != null)
+                    byContent.put(key, image);
+            }
+            resolved.put(stream, image);
+            contents.add(image);
+            return;
+        }
+
+        // save image
+        ImageContent image = passthrough ? writeEncodedContent(pdImage) : write2ImageContent(pdImage);
+        if (image != null)
+            contents.add(image);
+    }
+
+    /**
+     * 计算 image XObject 的内容摘要, 包括原始(未解码的)数据以及图片字典, 字典中的间接引用会被展开, 因此内容相同的 SMask、ICC profile 也会得到相同的摘要
+     * @param stream image XObject
+     * @return 十六进制的 SHA-256 摘要
+     * @throws IOException 读取原始数据时出现的异常
+     */
+    private static String contentKey(COSStream stream) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        update(digest, stream, 0);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void update(MessageDigest digest, COSBase base, int depth) throws IOException {
+        if (depth > MAX_DIGEST_DEPTH) {
+            // 异常的循环引用, 不再展开
+            digest.update((byte) '~');
+            return;
+        }
+        if (base instanceof COSObject) {
+            update(digest, ((COSObject) base).getObject(), depth + 1);
+        } else if (base instanceof COSDictionary) {
+            COSDictionary dict = (COSDictionary) base;
+            List<COSName> keys = new ArrayList<>(dict.keySet());
+            keys.sort(Comparator.naturalOrder());
+            digest.update((byte) '<');
+            for (COSName name : keys) {
+                if (COSName.LENGTH.equals(name))
+                    continue;
+                digest.update(name.getName().getBytes(StandardCharsets.UTF_8));
+                update(digest, dict.getItem(name), depth + 1);
+            }
+            digest.update((byte) '>');
+            if (base instanceof COSStream) {
+                try (InputStream is = ((COSStream) base).createRawInputStream()) {
+                    byte[] buf = new byte[8192];
+                    int len;
+                    while ((len = is.read(buf)) != -1) {
+                        digest.update(buf, 0, len);
+                    }
+                }
+            }
+        } else if (base instanceof COSArray) {
+            digest.update((byte) '[');
+            for (COSBase item : (COSArray) base) {
+                update(digest, item, depth + 1);
+            }
+            digest.update((byte) ']');
+        } else {
+            digest.update(String.valueOf(base).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+        }
+    }
+
+    /**
+     * 复制图片的原始编码数据以及解码参数
+     * @param pdImage image XObject 或者内联图片
+     * @return 图片内容
+     * @throws IOException 读取原始数据时出现的异常
+     */
+    private ImageContent writeEncodedContent(PDImage pdImage) throws IOException {
+        COSDictionary dict;
+        byte[] data;
+        if (pdImage instanceof PDImageXObject) {
+            COSStream stream = ((PDImageXObject) pdImage).getCOSObject();
+            dict = stream;
+            try (InputStream is = stream.createRawInputStream()) {
+                data = IOUtils.toByteArray(is);
+            }
+        } else if (pdImage instanceof PDInlineImage) {
+            dict = ((PDInlineImage) pdImage).getCOSObject();
+            data = ((PDInlineImage) pdImage).getData();
+        } else {
+            return write2ImageContent(pdImage);
+        }
+
+        List<String> filters = new ArrayList<>();
+        COSBase filter = dict.getDictionaryObject(COSName.FILTER, COSName.F);
+        if (filter instanceof COSName) {
+            filters.add(expandAbbreviation(((COSName) filter).getName()));
+        } else if (filter instanceof COSArray) {
+            for (COSBase item : (COSArray) filter) {
+                if (item instanceof COSObject)
+                    item = ((COSObject) item).getObject();
+                if (item instanceof COSName)
+                    filters.add(expandAbbreviation(((COSName) item).getName()));
+            }
+        }
+        List<Map<String, String>> decodeParams = new ArrayList<>();
+        COSBase params = dict.getDictionaryObject(COSName.DECODE_PARMS, COSName.DP);
+        for (int i = 0; i < filters.size(); i++) {
+            COSBase param = params instanceof COSArray ? ((COSArray) params).getObject(i) : (i == 0 ? params : null);
+            Map<String, String> values = new LinkedHashMap<>();
+            if (param instanceof COSDictionary) {
+                for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) param).entrySet()) {
+                    values.put(entry.getKey().getName(), cosToString(entry.getValue(), 0));
+                }
+            }
+            decodeParams.add(values);
+        }
+
+        String colorSpace = null;
+        COSBase cs = dict.getDictionaryObject(COSName.COLORSPACE, COSName.CS);
+        if (cs instanceof COSArray && ((COSArray) cs).size() > 0)
+            cs = ((COSArray) cs).getObject(0);
+        if (cs instanceof COSName)
+            colorSpace = expandAbbreviation(((COSName) cs).getName());
+
+        String last = filters.isEmpty() ? null : filters.get(filters.size() - 1);
+        String fileType;
+        String mimeType = "application/octet-stream";
+        if (COSName.DCT_DECODE.getName().equals(last)) {
+            fileType = "jpg";
+            if (filters.size() == 1)
+                mimeType = "image/jpeg";
+        } else if (COSName.JPX_DECODE.getName().equals(last)) {
+            fileType = "jp2";
+            if (filters.size() == 1)
+                mimeType = "image/jp2";
+        } else if (COSName.JBIG2_DECODE.getName().equals(last)) {
+            fileType = "jb2";
+        } else if (COSName.CCITTFAX_DECODE.getName().equals(last)) {
+            fileType = "ccitt";
+        } else {
+            fileType = "raw";
+        }
+        return new EncodedImageContent.EncodedImageContentBuilder(data, mimeType, fileType)
+                .filters(filters, decodeParams)
+                .size(pdImage.getWidth(), pdImage.getHeight())
+                .bitsPerComponent(pdImage.getBitsPerComponent())
+                .colorSpace(colorSpace)
+                .build();
+    }
+
+    /**
+     * 内联图片中的 filter 和颜色空间可以使用缩写, 这里统一转换为完整的名称
+     */
+    private static String expandAbbreviation(String name) {
+        String full = ABBREVIATIONS.get(name);
+        return full == null ? name : full;
+    }
+
+    /**
+     * 将解码参数转换为字符串, stream 类型的参数(例如 JBIG2Globals)转换为解码后数据的 base64 字符串
+     */
+    private static String cosToString(COSBase base, int depth) throws IOException {
+        if (base instanceof COSObject)
+            base = ((COSObject) base).getObject();
+        if (base == null || base instanceof COSNull || depth > MAX_DIGEST_DEPTH)
+            return "null";
+        if (base instanceof COSInteger)
+            return String.valueOf(((COSInteger) base).longValue());
+        if (base instanceof COSNumber)
+            return String.valueOf(((COSNumber) base).floatValue());
+        if (base instanceof COSBoolean)
+            return String.valueOf(((COSBoolean) base).getValue());
+        if (base instanceof COSName)
+            return ((COSName) base).getName();
+        if (base instanceof COSString)
+            return ((COSString) base).getString();
+        if (base instanceof COSStream) {
+            try (InputStream is = ((COSStream) base).createInputStream()) {
+                return Base64.getEncoder().encodeToString(IOUtils.toByteArray(is));
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        if (base instanceof COSArray) {
+            sb.append('[');
+            for (COSBase item : (COSArray) base) {
+                if (sb.length() > 1)
+                    sb.append(", ");
+                sb.append(cosToString(item, depth + 1));
+            }
+            return sb.append(']').toString();
+        }
+        if (base instanceof COSDictionary) {
+            sb.append('{');
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) base).entrySet()) {
+                if (sb.length() > 1)
+                    sb.append(", ");
+                sb.append(entry.getKey().getName()).append('=').append(cosToString(entry.getValue(), depth + 1));
+            }
+            return sb.append('}').toString();
+        }
+        return String.valueOf(base);
+    }
+
+    private ImageContent write2ImageContent(PDImage pdImage) throws IOException {
+        String suffix = pdImage.getSuffix();
+        if (suffix == null || "jb2".equals(suffix)) {
+            suffix = "png";
+        } else if ("jpx".equals(suffix)) {
+            // use jp2 suffix for file because jpx not known by windows
+            suffix = "jp2";
+        }
+        
+        if (hasMasks(pdImage)) {
+            // TIKA-3040, PDFBOX-4771: can't save ARGB as JPEG
+            suffix = "png";
+        }
+
+        // 如果可行的话, 就 write raw image, 但是这里没法获得图片透明度(alpha information)
+        BufferedImage image = pdImage.getRawImage();
+        if (image != null) {
+            int elements = image.getRaster().getNumDataElements();
+            suffix = "png";
+            if (elements > 3) {
+                // 图片的 channel 超过 3 个, 有点像 CMYK, 这里使用 tiff 文件格式
+                // 但是需要 class path 中有 TIFF codec 才能正常工作
+                suffix = "tiff";
+            }
+            return doImageExtract(image, suffix);
+        }
+        
+        if ("jpg".equals(suffix)) {
+            String colorSpaceName = pdImage.getColorSpace().getName();
+            if (PDDeviceGray.INSTANCE.getName().equals(colorSpaceName) || PDDeviceRGB.INSTANCE.getName().equals(colorSpaceName)) {
+                // RGB or Gray colorspace: get and write the unmodified JPEG stream
+                InputStream data = pdImage.createInputStream(JPEG);
+                return doImageExtract(data, suffix);
+            } else {
+                // for CMYK and other "unusual" colorspaces, the JPEG will be converted
+                image = pdImage.getImage();
+                if (image != null) {
+                    return doImageExtract(image, suffix);
+                }
+            }
+        } else if ("jp2".equals(suffix)) {
+            String colorSpaceName = pdImage.getColorSpace().getName();
+            if (PDDeviceGray.INSTANCE.getName().equals(colorSpaceName) || PDDeviceRGB.INSTANCE.getName().equals(colorSpaceName)) {
+                // RGB or Gray colorspace: get and write the unmodified JPEG2000 stream
+                InputStream data = pdImage.createInputStream(Collections.singletonList(COSName.JPX_DECODE.getName()));
+                return doImageExtract(data, suffix);
+            } else {
+                // for CMYK and other "unusual" colorspaces, the image will be converted
+                image = pdImage.getImage();
+                if (image != null) {
+                    return doImageExtract(image, "jpeg2000");
+                }
+            }
+        } else if ("tiff".equals(suffix) && pdImage.getColorSpace().equals(PDDeviceGray.INSTANCE)) {
+            image = pdImage.getImage();
+            if (image == null)
+                return null;
+            // CCITT compressed images can have a different colorspace, but this one is B/W
+            // This is a bitonal image, so copy to TYPE_BYTE_BINARY
+            // so that a G4 compressed TIFF image is created by ImageIOUtil.writeImage()
+            int w = image.getWidth();
+            int h = image.getHeight();
+            BufferedImage bitonalImage = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY);
+            // copy image the old fashioned way - ColorConvertOp is slower!
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    bitonalImage.setRGB(x, y, image.getRGB(x, y));
+                }
+            }
+            return doImageExtract(bitonalImage, suffix);
+        } else {
+            image = pdImage.getImage();
+            if (image != null) {
+                return doImageExtract(image, suffix);
+            }
+        }
+        return null;
+    }
+    
+    private boolean hasMasks(PDImage pdImage) throws IOException {
+        if (pdImage instanceof PDImageXObject) {
+            PDImageXObject xImg = (PDImageXObject) pdImage;
+            return xImg.getMask() != null || xImg.getSoftMask() != null;
+        }
+        return false;
+    }
+
+    /**
+     * @param image {@link java.awt.image.RenderedImage}
+     * @param suffix image type, e.g. png
+     */
+    private ImageContent doImageExtract(BufferedImage image, String suffix) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, suffix, baos);
+        return new ImageContent(baos.toByteArray(), suffix);
+    }
+
+    private ImageContent doImageExtract(InputStream is, String suffix) throws IOException {
+        Exception bakE = null;
+        ImageContent content = null;
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            IOUtils.copy(is, baos);
+            content = new ImageContent(baos.toByteArray(), suffix);
+        } catch (IOException e) {
+            bakE = e;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        if (bakE != null)
+            throw new IOException(bakE);
+        return content;
+    }
+
+}
@@ -0,0 +1,278 @@
+package io.naivekyo.support.pdf;
+
+import io.naivekyo.content.DocContent;
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.MissingOperandException;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingColor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingColorN;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingColorSpace;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingDeviceCMYKColor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingDeviceGrayColor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingDeviceRGBColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingColorN;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingColorSpace;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingDeviceCMYKColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingDeviceGrayColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingDeviceRGBColor;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * <p>在一次遍历页面 content stream 的过程中同时收集文本和图片</p>
+ * <p>文本部分的行为与 {@link PDFTextStripper} 一致(按位置排序), 图片部分的行为与 {@link CustomGraphicsStreamEngine} 一致:
+ * 同一页中重复绘制的 image XObject 只保存一次, tiling pattern 中的图片也会被保存, 但 pattern 中的文本不会计入页面文本</p>
+ * <p>这样处理图文混排的 pdf 时每一页只需要解析一次 content stream</p>
+ * <p>一个实例只用于处理一个文档, 多个页面共用的图片只会转换一次, 见 {@link PDFImageCollector}</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class PDFPageContentEngine extends StoppablePDFTextStripper {
+
+    /**
+     * 文档中的图片
+     */
+    private final PDFImageCollector images;
+
+    /**
+     * 当前正在处理的 tiling pattern 的嵌套层数
+     */
+    private int patternDepth;
+
+    public PDFPageContentEngine() {
+        this(false);
+    }
+
+    /**
+     * @param deduplicateImagesByContent true 表示按内容对图片去重, 内容相同但是对象不同的图片只转换一次
+     */
+    public PDFPageContentEngine(boolean deduplicateImagesByContent) {
+        super();
+        setSortByPosition(true);
+        this.images = new PDFImageCollector(deduplicateImagesByContent);
+        
+        // 文本抽取默认不关心颜色, 这里需要跟踪颜色才能找到 tiling pattern
+        addOperator(new SetStrokingColorSpace(this));
+        addOperator(new SetNonStrokingColorSpace(this));
+        addOperator(new SetStrokingColor(this));
+        addOperator(new SetNonStrokingColor(this));
+        addOperator(new SetStrokingColorN(this));
+        addOperator(new SetNonStrokingColorN(this));
+        addOperator(new SetStrokingDeviceGrayColor(this));
+        addOperator(new SetNonStrokingDeviceGrayColor(this));
+        addOperator(new SetStrokingDeviceRGBColor(this));
+        addOperator(new SetNonStrokingDeviceRGBColor(this));
+        addOperator(new SetStrokingDeviceCMYKColor(this));
+        addOperator(new SetNonStrokingDeviceCMYKColor(this));
+        
+        addOperator(new DrawObject(this));
+        addOperator(new BeginInlineImage(this));
+        
+        addOperator(new PaintPath(this, OperatorName.STROKE_PATH, true));
+        addOperator(new PaintPath(this, OperatorName.CLOSE_AND_STROKE, true));
+        addOperator(new PaintPath(this, OperatorName.FILL_NON_ZERO, false));
+        addOperator(new PaintPath(this, OperatorName.LEGACY_FILL_NON_ZERO, false));
+        addOperator(new PaintPath(this, OperatorName.FILL_EVEN_ODD, false));
+        addOperator(new PaintPath(this, OperatorName.FILL_NON_ZERO_AND_STROKE, false));
+        addOperator(new PaintPath(this, OperatorName.FILL_EVEN_ODD_AND_STROKE, false));
+        addOperator(new PaintPath(this, OperatorName.CLOSE_FILL_NON_ZERO_AND_STROKE, false));
+        addOperator(new PaintPath(this, OperatorName.CLOSE_FILL_EVEN_ODD_AND_STROKE, false));
+    }
+
+    /**
+     * 处理指定页面, 返回页面中的文本, 页面中的图片通过 {@link #getImages()} 获取
+     * @param doc pdf 文档对象
+     * @param pageNum 页码, 从 1 开始
+     * @return 页面中包含的所有文本信息
+     * @throws IOException IO 异常
+     */
+    public String extractPage(PDDocument doc, int pageNum) throws IOException {
+        this.images.startPage();
+        this.patternDepth = 0;
+        setStartPage(pageNum);
+        setEndPage(pageNum);
+        return getText(doc);
+    }
+
+    /**
+     * 设置是否直接复制图片的原始编码数据(raw passthrough), 开启后图片不会被解码和重新编码, 
+     * 抽取结果为 {@link io.naivekyo.content.impl.EncodedImageContent}, 需要在处理第一个页面之前设置
+     * @param rawImagePassthrough true 表示复制原始编码数据
+     */
+    public void setRawImagePassthrough(boolean rawImagePassthrough) {
+        this.images.setPassthrough(rawImagePassthrough);
+    }
+
+    /**
+     * 获取最近一次 {@link #extractPage(PDDocument, int)} 收集到的图片
+     * @return 图片内容, 按照绘制顺序排列
+     */
+    public List<DocContent> getImages() {
+        return this.images.getContents();
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        // tiling pattern 中的文字只是填充图案, 不属于页面文本
+        if (patternDepth > 0)
+            return;
+        super.processTextPosition(text);
+    }
+
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) throws IOException {
+        super.showGlyph(textRenderingMatrix, font, code, displacement);
+        PDGraphicsState graphicsState = getGraphicsState();
+        RenderingMode renderingMode = graphicsState.getTextState().getRenderingMode();
+        if (renderingMode.isFill()) {
+            processColor(graphicsState.getNonStrokingColor());
+        }
+        if (renderingMode.isStroke()) {
+            processColor(graphicsState.getStrokingColor());
+        }
+    }
+
+    private void drawImage(PDImage pdImage) throws IOException {
+        if (pdImage instanceof PDImageXObject && pdImage.isStencil()) {
+            processColor(getGraphicsState().getNonStrokingColor());
+        }
+        images.collect(pdImage);
+    }
+
+    /**
+     * find out if it is a tiling pattern, then process that one
+     * @param color A color value
+     */
+    private void processColor(PDColor color) throws IOException {
+        if (color.getColorSpace() instanceof PDPattern) {
+            PDPattern pattern = (PDPattern) color.getColorSpace();
+            PDAbstractPattern abstractPattern = pattern.getPattern(color);
+            if (abstractPattern instanceof PDTilingPattern) {
+                patternDepth++;
+                try {
+                    processTilingPattern(((PDTilingPattern) abstractPattern), null, null);
+                } finally {
+                    patternDepth--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Do: 保存 image XObject, form XObject 仍然交给文本抽取的默认实现处理
+     */
+    private static final class DrawObject extends OperatorProcessor {
+
+        private final OperatorProcessor textDrawObject;
+
+        DrawObject(PDFPageContentEngine context) {
+            super(context);
+            this.textDrawObject = new org.apache.pdfbox.contentstream.operator.DrawObject(context);
+        }
+
+        @Override
+        public void process(Operator operator, List<COSBase> operands) throws IOException {
+            if (operands.isEmpty()) {
+                throw new MissingOperandException(operator, operands);
+            }
+            COSBase base0 = operands.get(0);
+            if (!(base0 instanceof COSName)) {
+                return;
+            }
+            PDResources resources = getContext().getResources();
+            if (resources != null && resources.isImageXObject((COSName) base0)) {
+                PDXObject xobject = resources.getXObject((COSName) base0);
+                if (xobject instanceof PDImageXObject) {
+                    ((PDFPageContentEngine) getContext()).drawImage((PDImageXObject) xobject);
+                }
+                return;
+            }
+            textDrawObject.process(operator, operands);
+        }
+
+        @Override
+        public String getName() {
+            return OperatorName.DRAW_OBJECT;
+        }
+    }
+
+    /**
+     * BI: 保存内联图片
+     */
+    private static final class BeginInlineImage extends OperatorProcessor {
+
+        BeginInlineImage(PDFPageContentEngine context) {
+            super(context);
+        }
+
+        @Override
+        public void process(Operator operator, List<COSBase> operands) throws IOException {
+            if (operator.getImageData() == null || operator.getImageData().length == 0) {
+                return;
+            }
+            PDFStreamEngine context = getContext();
+            PDImage image = new PDInlineImage(operator.getImageParameters(), operator.getImageData(), context.getResources());
+            ((PDFPageContentEngine) context).drawImage(image);
+        }
+
+        @Override
+        public String getName() {
+            return OperatorName.BEGIN_INLINE_IMAGE;
+        }
+    }
+
+    /**
+     * 描边/填充路径: 不需要绘制路径, 只需要处理当前颜色中的 tiling pattern
+     */
+    private static final class PaintPath extends OperatorProcessor {
+
+        private final String name;
+
+        /**
+         * true 表示只描边, 使用 stroking color, 其他情况与 {@link CustomGraphicsStreamEngine} 一致, 使用 non-stroking color
+         */
+        private final boolean stroke;
+
+        PaintPath(PDFPageContentEngine context, String name, boolean stroke) {
+            super(context);
+            this.name = name;
+            this.stroke = stroke;
+        }
+
+        @Override
+        public void process(Operator operator, List<COSBase> operands) throws IOException {
+            PDFPageContentEngine context = (PDFPageContentEngine) getContext();
+            PDGraphicsState graphicsState = context.getGraphicsState();
+            context.processColor(stroke ? graphicsState.getStrokingColor() : graphicsState.getNonStrokingColor());
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package io.naivekyo.support.pdf;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>可以在页面处理过程中停止的 {@link PDFTextStripper}</p>
+ * <p>畸形的 content stream 可能让单个页面的 {@link #getText(org.apache.pdfbox.pdmodel.PDDocument)} 运行很长时间,
+ * 只在页面之间检查是不够的. 这里每处理 {@link #CHECK_INTERVAL} 个操作符检查一次停止条件,
+ * 条件成立时抛出 {@link StoppedException} 放弃当前页面</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public class StoppablePDFTextStripper extends PDFTextStripper {
+
+    /**
+     * 检查停止条件的操作符间隔, 避免每个操作符都读取时钟
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    private BooleanSupplier stopCondition;
+
+    private int operatorCount;
+
+    private boolean stopped;
+
+    public StoppablePDFTextStripper() {
+        super();
+    }
+
+    /**
+     * 设置停止条件, 需要在处理页面之前设置
+     * @param stopCondition 返回 true 时停止, null 表示不检查
+     */
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        // 一旦停止, 每个操作符都抛出异常: form XObject 中的异常会被 PDFStreamEngine 记录后忽略
+        if (stopped || (stopCondition != null && ++operatorCount % CHECK_INTERVAL == 0 && stopCondition.getAsBoolean())) {
+            stopped = true;
+            throw new StoppedException();
+        }
+        super.processOperator(operator, operands);
+    }
+
+    /**
+     * 页面处理被停止
+     */
+    public static final class StoppedException extends IOException {
+
+        private static final long serialVersionUID = -3861437398812364416L;
+
+        public StoppedException() {
+            super("pdf text extraction is stopped.");
+        }
+    }
+
+}
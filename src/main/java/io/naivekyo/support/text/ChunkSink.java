@@ -0,0 +1,22 @@
+package io.naivekyo.support.text;
+
+import java.io.IOException;
+
+/**
+ * 文本块接收器, 配合 {@link DocumentTextSplitter#split(java.io.Reader, ChunkSink)} 使用, 按照文本块在全文中的顺序依次调用
+ * @author NaiveKyo
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface ChunkSink {
+
+    /**
+     * 接收一个文本块, 文本块是全文中连续的一段字符 [start, end)
+     * @param start 文本块在全文中的起始下标(包含), 0-base
+     * @param end 文本块在全文中的结束下标(不包含)
+     * @param chunk 文本块内容的视图, 只在本次调用期间有效, 需要保留时调用 {@link CharSequence#toString()}
+     * @throws IOException 处理文本块时出现的异常, 会中止分割并抛给调用方
+     */
+    void accept(long start, long end, CharSequence chunk) throws IOException;
+
+}
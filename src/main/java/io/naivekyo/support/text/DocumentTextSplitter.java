@@ -7,11 +7,14 @@ import io.naivekyo.constant.LanguageEnum;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -36,6 +39,18 @@ public class DocumentTextSplitter {
      */
     private final String lang;
 
+    /**
+     * 由 separators 编译得到的匹配器
+     */
+    private final SeparatorMatcher matcher;
+
+    /**
+     * 含有正则元字符的分割符对应的正则表达式, 其余为 null <br/>
+     * 与之前的实现保持一致: 分割符经过 {@link Matcher#quoteReplacement(String)} 处理后作为正则表达式使用,
+     * 例如 "\\." 匹配的是反斜杠加任意一个字符; 是否选用该分割符仍然取决于文本中是否原样出现过该分割符
+     */
+    private final Pattern[] patterns;
+
     /**
      * sentence 长度
      */
@@ -50,6 +65,11 @@ public class DocumentTextSplitter {
     
     private static final int DEFAULT_OVERLAP_LENGTH = 50;
 
+    /**
+     * 经过 {@link Matcher#quoteReplacement(String)} 处理后仍然不能按字面匹配的字符
+     */
+    private static final String REGEX_META_CHARS = "\\.[]{}()*+?^|";
+
     /**
      * 使用默认分割字符串, sentence chunk 长度 = 500, chunk overlap 长度 = 50
      */
@@ -81,7 +101,7 @@ public class DocumentTextSplitter {
      * @param chunkOverlap sentence 重叠部分的长度
      */
     public DocumentTextSplitter(LanguageEnum language, int chunkLen, int chunkOverlap) {
-        this(language.getLang(), LanguageEndpoints.getLanguageSet(language), chunkLen, chunkOverlap);
+        this(language.getLang(), LanguageEndpoints.getLanguageSet(language), LanguageEndpoints.getMatcher(language), chunkLen, chunkOverlap);
     }
 
     /**
@@ -91,6 +111,10 @@ public class DocumentTextSplitter {
      * @param chunkOverlap sentence 重叠部分的长度
      */
     public DocumentTextSplitter(String language, String[] separators, int chunkLen, int chunkOverlap) {
+        this(language, separators, null, chunkLen, chunkOverlap);
+    }
+
+    private DocumentTextSplitter(String language, String[] separators, SeparatorMatcher matcher, int chunkLen, int chunkOverlap) {
         if (language == null || "".equals(language))
             throw new IllegalArgumentException("language identify cant be null.");
         if (separators == null)
@@ -103,24 +127,44 @@ public class DocumentTextSplitter {
             throw new IllegalArgumentException("chunk overlap length cant equal or greater than chunk length.");
         this.lang = language;
         this.separators = separators;
+        this.matcher = matcher != null ? matcher : SeparatorMatcher.compile(separators);
+        this.patterns = compilePatterns(separators);
         this.chunkLen = chunkLen;
         this.chunkOverlap = chunkOverlap;
     }
 
+    private static Pattern[] compilePatterns(String[] separators) {
+        Pattern[] patterns = new Pattern[separators.length];
+        for (int i = 0; i < separators.length; i++) {
+            String separator = separators[i];
+            for (int j = 0; j < separator.length(); j++) {
+                if (REGEX_META_CHARS.indexOf(separator.charAt(j)) != -1) {
+                    patterns[i] = Pattern.compile("(" + Matcher.quoteReplacement(separator) + ")");
+                    break;
+                }
+            }
+        }
+        return patterns;
+    }
+
     /**
-     * 分割片段类
+     * 分割片段类, 片段是全文中的一段区间 [start, end), 需要时才复制为字符串
      */
     static class Segment {
         private final String delimiter;
-        private final String segment;
+        private final String text;
+        private final int start;
+        private final int end;
 
-        public Segment(String delimiter, String segment) {
+        public Segment(String delimiter, String text, int start, int end) {
             this.delimiter = delimiter;
-            this.segment = segment;
+            this.text = text;
+            this.start = start;
+            this.end = end;
         }
         
         public static Segment of(String delimiter, String segment) {
-            return new Segment(delimiter, segment);
+            return new Segment(delimiter, segment, 0, segment.length());
         }
 
         public String getDelimiter() {
@@ -128,7 +172,11 @@ public class DocumentTextSplitter {
         }
 
         public String getSegment() {
-            return segment;
+            return text.substring(start, end);
+        }
+
+        public int length() {
+            return end - start;
         }
     }
 
@@ -148,58 +196,51 @@ public class DocumentTextSplitter {
      * @return 切分后的 chunk 集合
      */
     public List<String> split(String text) {
+        // 扫描一遍全文找到所有分割符的位置, 递归处理子串时直接复用
+        SeparatorHits hits = new SeparatorHits(matcher);
+        matcher.findAll(text, hits);
         List<String> chunks = new ArrayList<>();
-        String sep = null;
-        for (String separator : separators) {
-            // 选取适合的分割符对目标字符串进行分割
-            if (text.contains(separator)) {
-                sep = separator;
+        split(text, 0, text.length(), hits, chunks);
+        return chunks;
+    }
+
+    /**
+     * 切分全文中的区间 [from, to), 结果与单独切分 text.substring(from, to) 一致
+     */
+    private void split(String text, int from, int to, SeparatorHits hits, List<String> chunks) {
+        // 选取适合的分割符: 区间中出现过的优先级最高的分割符, 空字符串总是视为出现过
+        int level = matcher.emptyLevel();
+        int candidates = level == -1 ? separators.length : level;
+        for (int l = 0; l < candidates; l++) {
+            if (hits.contains(l, from, to)) {
+                level = l;
                 break;
             }
         }
-        if (sep == null) {
+
+        List<Segment> segments;
+        if (level == -1) {
             // 没有找到适合的分割符, 就按照字符进行分割, 最后按字数合并
             log.warn("language: {}, there is no suitable separator. Use the default strategy, split by word count", this.lang);
-            sep = "";
-        }
-        
-        // 使用 separator 对目标字符串进行分割
-        List<Segment> segments = new ArrayList<>();
-        if (!"".equals(sep)) {
-            Pattern pat = Pattern.compile("(" + Matcher.quoteReplacement(sep) + ")");
-            String[] splits = pat.split(text);
-            Matcher mat = pat.matcher(text);
-            boolean canFind = false;
-            int cursor = 0;
-            while (mat.find()) {
-                canFind = true;
-                if (splits.length != 0) {
-                    if (cursor < splits.length) {
-                        String tmp = splits[cursor++].trim();
-                        if (tmp.length() != 0)
-                            segments.add(new Segment(mat.group(1), tmp));
-                    }
-                }
-            }
-            if (!canFind) {
+            segments = normalTruncation(text, from, to);
+        } else if ("".equals(separators[level])) {
+            segments = normalTruncation(text, from, to);
+        } else if (patterns[level] != null) {
+            segments = regexSplit(text, from, to, patterns[level]);
+            if (segments == null) {
                 // 没法使用正则表达式进行分割, 则按字数截断
-                segments = normalTruncation(text);
-            } else {
-                while (cursor < splits.length) {
-                    // 处理可能遗漏的数据
-                    segments.add(new Segment("", splits[cursor++]));
-                }
+                segments = normalTruncation(text, from, to);
             }
         } else {
-            segments = normalTruncation(text);
+            // 使用 separator 对目标区间进行分割
+            segments = hits.split(text, from, to, level);
         }
 
         // 收集长度小于 chunkLen 的字符串集合
         List<Segment> tmpSegments = new ArrayList<>();
         // 遍历所有串, 将长度小于 chunkLen 的子串收集起来, 长度大于 chunkLen 的子串进行递归拆分处理
         for (Segment segment : segments) {
-            String s = segment.segment;
-            if (s.length() < chunkLen)
+            if (segment.length() < chunkLen)
                 tmpSegments.add(segment);
             else {
                 if (!tmpSegments.isEmpty()) {
@@ -209,13 +250,12 @@ public class DocumentTextSplitter {
                     tmpSegments.clear();
                 }
                 // 使用其他合适的分割符递归处理较长的子串
-                List<String> recursive = split(s);
+                int size = chunks.size();
+                split(segment.text, segment.start, segment.end, hits, chunks);
                 // fix: 注意这里会丢失当前处理串的隔离符
-                if (!recursive.isEmpty()) {
-                    int size = recursive.size();
-                    recursive.set(size - 1, recursive.get(size - 1) + segment.delimiter);
+                if (chunks.size() > size) {
+                    chunks.set(chunks.size() - 1, chunks.get(chunks.size() - 1) + segment.delimiter);
                 }
-                chunks.addAll(recursive);
             }
         }
         
@@ -223,23 +263,96 @@ public class DocumentTextSplitter {
             List<String> merge = merge(tmpSegments);
             chunks.addAll(merge);
         }
-        
-        return chunks;
     }
 
-    private List<Segment> normalTruncation(String text) {
-        int len = text.length();
+    /**
+     * 流式切分: 从 reader 中逐步读取文本并切分为 chunk, 内存占用只与 chunkLen 有关, 适合几百 MB 的文本 <br/>
+     * 每个 chunk 是全文中连续的一段字符, 以下标区间的形式交给 sink:
+     * <ul>
+     *     <li>chunk 的长度不超过 chunkLen, 优先在分割符集合中靠前的分割符处截断, 分割符保留在 chunk 的末尾,
+     *     窗口内没有任何分割符时按字数截断</li>
+     *     <li>相邻 chunk 的重叠部分不超过 chunkOverlap, 重叠部分从分割符之后开始</li>
+     *     <li>跳过 chunk 开头的空白字符以及全文末尾的空白字符</li>
+     * </ul>
+     * 与 {@link #split(String)} 不同, 分割符的选择只依赖当前 chunk 附近的文本, 因此两者的结果不完全相同
+     * @param reader 全文, 由调用方关闭
+     * @param sink chunk 接收器
+     * @throws IOException 读取文本或者 sink 处理时出现的异常
+     */
+    public void split(Reader reader, ChunkSink sink) throws IOException {
+        new StreamingChunker(reader, matcher, chunkLen, chunkOverlap).run(sink);
+    }
+
+    /**
+     * 流式切分字符序列, 规则见 {@link #split(Reader, ChunkSink)}, 字符序列按需读取, 不会被整体复制
+     * @param text 全文
+     * @param sink chunk 接收器, 可以通过下标区间从 text 中获取 chunk
+     * @throws IOException sink 处理时出现的异常
+     */
+    public void split(CharSequence text, ChunkSink sink) throws IOException {
+        split(new StreamingChunker.CharSequenceReader(text), sink);
+    }
+
+    /**
+     * 使用正则表达式分割区间 [from, to), 与 {@code Pattern#split} 的结果一致, 第 i 个片段使用第 i 次匹配的内容作为分割符:
+     * 前面的片段去掉首尾空白后非空时保留, 多出来的片段原样保留
+     * @return 区间中没有任何匹配时返回 null
+     */
+    private static List<Segment> regexSplit(String text, int from, int to, Pattern pattern) {
+        Matcher mat = pattern.matcher(text).region(from, to);
+        List<String> delimiters = new ArrayList<>();
+        List<int[]> pieces = new ArrayList<>();
+        int index = from;
+        while (mat.find()) {
+            delimiters.add(mat.group(1));
+            // 区间开头的零宽匹配不产生空片段
+            if (index == from && mat.start() == from && mat.end() == from)
+                continue;
+            pieces.add(new int[] { index, mat.start() });
+            index = mat.end();
+        }
+        if (delimiters.isEmpty())
+            return null;
+        if (pieces.isEmpty()) {
+            pieces.add(new int[] { from, to });
+        } else {
+            pieces.add(new int[] { index, to });
+            // 去掉末尾的空片段
+            while (!pieces.isEmpty() && pieces.get(pieces.size() - 1)[0] == pieces.get(pieces.size() - 1)[1])
+                pieces.remove(pieces.size() - 1);
+        }
+        List<Segment> segments = new ArrayList<>();
+        int cursor = 0;
+        for (String delimiter : delimiters) {
+            if (cursor == pieces.size())
+                break;
+            int[] piece = pieces.get(cursor++);
+            int a = piece[0];
+            int b = piece[1];
+            while (a < b && text.charAt(a) <= ' ')
+                a++;
+            while (a < b && text.charAt(b - 1) <= ' ')
+                b--;
+            if (a < b)
+                segments.add(new Segment(delimiter, text, a, b));
+        }
+        while (cursor < pieces.size()) {
+            // 处理可能遗漏的数据
+            int[] piece = pieces.get(cursor++);
+            segments.add(new Segment("", text, piece[0], piece[1]));
+        }
+        return segments;
+    }
+
+    private List<Segment> normalTruncation(String text, int from, int to) {
+        int len = to - from;
         // 考虑到后续可能存在的重叠, 此处分割片段长度尽量短一些
         int interval = chunkLen / 2;
         int fragment = len % interval == 0 ? (len / interval) : (len / interval + 1);
         List<Segment> segmentList = new ArrayList<>(fragment + fragment >> 1);
         for (int i = 0; i < fragment; i++) {
-            String tmp;
-            if (i == fragment - 1)
-                tmp = text.substring(interval * i);
-            else
-                tmp = text.substring(interval * i, interval * (i + 1));
-            segmentList.add(Segment.of("", tmp));
+            int end = i == fragment - 1 ? to : from + interval * (i + 1);
+            segmentList.add(new Segment("", text, from + interval * i, end));
         }
         return segmentList;
     }
@@ -253,7 +366,7 @@ public class DocumentTextSplitter {
         int total = 0;
         for (Segment segment : segments) {
             // 当前 segment + separator 后的长度
-            int len = segment.getSegment().length() + segment.getDelimiter().length();
+            int len = segment.length() + segment.getDelimiter().length();
             if (total + len > chunkLen) {
                 if (!segmentCollector.isEmpty()) {
                     // join: segmentCollector 中所有字符合并为一个完整的 sentence
@@ -268,7 +381,7 @@ public class DocumentTextSplitter {
                     } else {
                         while (total > chunkOverlap && segmentCollector.size() > 1) {
                             Segment head = segmentCollector.get(0);
-                            total -= head.getSegment().length() + head.getDelimiter().length();
+                            total -= head.length() + head.getDelimiter().length();
                             segmentCollector.pop();
                         }
                     }
@@ -290,11 +403,95 @@ public class DocumentTextSplitter {
             return null;
         StringBuilder sb = new StringBuilder();
         for (Segment segment : segments) {
-            sb.append(segment.getSegment()).append(segment.getDelimiter());
+            sb.append(segment.text, segment.start, segment.end).append(segment.getDelimiter());
         }
         return sb.toString();
     }
 
+    /**
+     * 全文中每个分割符的所有出现位置, 按照优先级分组, 组内按照起始下标升序排列
+     */
+    private static class SeparatorHits implements SeparatorMatcher.HitHandler {
+
+        private final SeparatorMatcher matcher;
+
+        private final int[][] starts;
+
+        private final int[] counts;
+
+        SeparatorHits(SeparatorMatcher matcher) {
+            this.matcher = matcher;
+            this.starts = new int[matcher.levels()][];
+            this.counts = new int[matcher.levels()];
+        }
+
+        @Override
+        public void hit(int start, int level) {
+            int[] array = starts[level];
+            if (array == null)
+                array = starts[level] = new int[16];
+            else if (counts[level] == array.length)
+                array = starts[level] = Arrays.copyOf(array, array.length << 1);
+            array[counts[level]++] = start;
+        }
+
+        /**
+         * 区间 [from, to) 中是否完整地包含该优先级的分割符
+         */
+        boolean contains(int level, int from, int to) {
+            int i = lowerBound(level, from);
+            return i < counts[level] && starts[level][i] + matcher.separator(level).length() <= to;
+        }
+
+        /**
+         * 使用该优先级的分割符从左到右分割区间 [from, to), 与 {@code Pattern#split} 的结果一致: 分割符之前的片段去掉首尾空白后非空时保留,
+         * 最后一个分割符之后的片段非空时原样保留
+         */
+        List<Segment> split(String text, int from, int to, int level) {
+            String separator = matcher.separator(level);
+            int sepLen = separator.length();
+            List<Segment> segments = new ArrayList<>();
+            int pieceStart = from;
+            for (int i = lowerBound(level, from); i < counts[level]; i++) {
+                int start = starts[level][i];
+                if (start + sepLen > to)
+                    break;
+                // 与前一个分割符重叠
+                if (start < pieceStart)
+                    continue;
+                int a = pieceStart;
+                int b = start;
+                while (a < b && text.charAt(a) <= ' ')
+                    a++;
+                while (a < b && text.charAt(b - 1) <= ' ')
+                    b--;
+                if (a < b)
+                    segments.add(new Segment(separator, text, a, b));
+                pieceStart = start + sepLen;
+            }
+            if (pieceStart < to) {
+                // 处理可能遗漏的数据
+                segments.add(new Segment("", text, pieceStart, to));
+            }
+            return segments;
+        }
+
+        private int lowerBound(int level, int from) {
+            int[] array = starts[level];
+            int low = 0;
+            int high = counts[level];
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (array[mid] < from)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+    }
+
     /**
      * Unit Tests 
      */
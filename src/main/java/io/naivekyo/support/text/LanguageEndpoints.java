@@ -11,11 +11,19 @@ import java.util.Map;
 public class LanguageEndpoints {
     
     private static final Map<String, String[]> ENDPOINT_MAP = new HashMap<>();
+
+    /**
+     * 每种语言的分割符在加载时编译好的匹配器
+     */
+    private static final Map<String, SeparatorMatcher> MATCHER_MAP = new HashMap<>();
     
     static {
         loadDefaultEndpoint();
         loadCNEndpoint();
         loadENEndpoint();
+        for (Map.Entry<String, String[]> entry : ENDPOINT_MAP.entrySet()) {
+            MATCHER_MAP.put(entry.getKey(), SeparatorMatcher.compile(entry.getValue()));
+        }
     }
 
     private static void loadDefaultEndpoint() {
@@ -50,5 +58,13 @@ public class LanguageEndpoints {
     public static String[] getLanguageSet(LanguageEnum language) {
         return ENDPOINT_MAP.get(language.getLang());
     }
+
+    /**
+     * 获取特定语种的分割符匹配器, 未匹配则返回 null
+     * @param language 语言类型 {@link LanguageEnum}
+     */
+    public static SeparatorMatcher getMatcher(LanguageEnum language) {
+        return MATCHER_MAP.get(language.getLang());
+    }
     
 }
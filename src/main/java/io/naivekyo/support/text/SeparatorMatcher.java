@@ -0,0 +1,229 @@
+package io.naivekyo.support.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>多分割符匹配器: 将一组分割符编译为 Aho–Corasick 自动机, 扫描一遍文本即可找到所有分割符的所有出现位置(包括相互重叠的出现),
+ * 扫描的耗时与分割符的数量无关</p>
+ * <p>分割符按照字面量匹配, 在数组中的下标即为优先级(level), 下标越小优先级越高;
+ * 内容相同的分割符只保留优先级最高的一个, 空字符串不参与匹配</p>
+ * <p>自动机的转移表按照分割符中出现过的字符压缩, 其他字符统一映射为同一个字符类</p>
+ * <p><b>thread-safe</b>, 编译后不可变</p>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+public final class SeparatorMatcher {
+
+    /**
+     * 分割符命中回调
+     */
+    @FunctionalInterface
+    public interface HitHandler {
+
+        /**
+         * 找到一个分割符, 按照分割符结束位置的先后顺序回调, 结束位置相同时优先级高的先回调
+         * @param start 分割符在文本中的起始下标
+         * @param level 分割符的优先级, 即在分割符数组中的下标
+         */
+        void hit(int start, int level);
+
+    }
+
+    private final String[] separators;
+
+    /**
+     * 字符类查找表, 按照字符的高 8 位分块, 没有分割符字符的块为 null, 字符类 0 表示不属于任何分割符
+     */
+    private final byte[][] charClasses;
+
+    private final int classCount;
+
+    /**
+     * 状态转移表: transitions[state * classCount + charClass]
+     */
+    private final int[] transitions;
+
+    /**
+     * 每个状态匹配成功的分割符 level, 升序排列, 没有时为 null
+     */
+    private final int[][] outputs;
+
+    private SeparatorMatcher(String[] separators) {
+        this.separators = separators.clone();
+
+        // 字符类
+        Map<Character, Integer> classOf = new HashMap<>();
+        for (String separator : separators) {
+            for (int i = 0; i < separator.length(); i++) {
+                classOf.putIfAbsent(separator.charAt(i), classOf.size() + 1);
+            }
+        }
+        if (classOf.size() > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("too many distinct separator characters: " + classOf.size());
+        this.classCount = classOf.size() + 1;
+        this.charClasses = new byte[256][];
+        for (Map.Entry<Character, Integer> entry : classOf.entrySet()) {
+            char c = entry.getKey();
+            if (charClasses[c >>> 8] == null)
+                charClasses[c >>> 8] = new byte[256];
+            charClasses[c >>> 8][c & 0xFF] = entry.getValue().byteValue();
+        }
+
+        // trie
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> terminal = new ArrayList<>();
+        trie.add(newRow());
+        terminal.add(null);
+        Map<String, Integer> seen = new HashMap<>();
+        for (int level = 0; level < separators.length; level++) {
+            String separator = separators[level];
+            if (separator.isEmpty() || seen.putIfAbsent(separator, level) != null)
+                continue;
+            int state = 0;
+            for (int i = 0; i < separator.length(); i++) {
+                int cls = classOf(separator.charAt(i));
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(newRow());
+                    terminal.add(null);
+                }
+                state = trie.get(state)[cls];
+            }
+            terminal.set(state, new int[]{ level });
+        }
+
+        // 通过广度优先遍历计算失败指针, 并补全为确定性自动机
+        int stateCount = trie.size();
+        int[] transitions = new int[stateCount * classCount];
+        int[][] outputs = new int[stateCount][];
+        int[] fail = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputs[0] = terminal.get(0);
+        for (int cls = 0; cls < classCount; cls++) {
+            int next = trie.get(0)[cls];
+            transitions[cls] = next;
+            if (next != 0) {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = merge(terminal.get(state), outputs[fail[state]]);
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = trie.get(state)[cls];
+                if (next != 0) {
+                    fail[next] = transitions[fail[state] * classCount + cls];
+                    transitions[state * classCount + cls] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * classCount + cls] = transitions[fail[state] * classCount + cls];
+                }
+            }
+        }
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * 编译分割符集合
+     * @param separators 分割符, 下标即优先级
+     * @return 匹配器
+     */
+    public static SeparatorMatcher compile(String[] separators) {
+        if (separators == null)
+            throw new IllegalArgumentException("character split set cant be null.");
+        return new SeparatorMatcher(separators);
+    }
+
+    /**
+     * 扫描文本, 回调所有分割符的出现位置
+     * @param text 文本
+     * @param handler 回调
+     */
+    public void findAll(CharSequence text, HitHandler handler) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            int[] levels = outputs[state];
+            if (levels != null) {
+                for (int level : levels) {
+                    handler.hit(i + 1 - separators[level].length(), level);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 分割符数量, 即优先级的数量
+     */
+    public int levels() {
+        return separators.length;
+    }
+
+    /**
+     * @param level 优先级
+     * @return 该优先级对应的分割符
+     */
+    public String separator(int level) {
+        return separators[level];
+    }
+
+    /**
+     * @return 优先级最高的空字符串分割符, 没有时返回 -1
+     */
+    int emptyLevel() {
+        for (int level = 0; level < separators.length; level++) {
+            if (separators[level].isEmpty())
+                return level;
+        }
+        return -1;
+    }
+
+    /**
+     * 自动机的初始状态为 0, 读入一个字符后转移到下一个状态, 用于逐段输入的文本
+     */
+    int step(int state, char c) {
+        int cls = classOf(c);
+        // 不属于任何分割符的字符总是回到初始状态, 无需查表, 这也是绝大多数字符的情况
+        return cls == 0 ? 0 : transitions[state * classCount + cls];
+    }
+
+    /**
+     * @return 到达该状态时匹配成功的分割符 level, 升序排列, 没有时返回 null
+     */
+    int[] outputs(int state) {
+        return outputs[state];
+    }
+
+    private int classOf(char c) {
+        byte[] block = charClasses[c >>> 8];
+        return block == null ? 0 : block[c & 0xFF];
+    }
+
+    private int[] newRow() {
+        return new int[classCount];
+    }
+
+    private static int[] merge(int[] own, int[] inherited) {
+        if (own == null)
+            return inherited;
+        if (inherited == null)
+            return own;
+        int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return "SeparatorMatcher" + Arrays.toString(separators);
+    }
+
+}
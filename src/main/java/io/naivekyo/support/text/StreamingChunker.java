@@ -0,0 +1,286 @@
+package io.naivekyo.support.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 流式分割的单次执行状态, 见 {@link DocumentTextSplitter#split(Reader, ChunkSink)} <br/>
+ * 只在内存中保留当前文本块附近的一个窗口, 窗口大小与 chunkLen 成正比, 与全文长度无关 <br/>
+ * 读入的字符依次输入 {@link SeparatorMatcher} 的自动机, 每个字符只扫描一次, 窗口中的分割符位置保存在队列中 <br/>
+ * <b>not thread-safe</b>
+ * @author NaiveKyo
+ * @since 1.0
+ */
+class StreamingChunker {
+
+    private static final int MIN_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+
+    private final SeparatorMatcher matcher;
+
+    private final int chunkLen;
+
+    private final int chunkOverlap;
+
+    /**
+     * 文本窗口, buf[0] 对应全文下标 base
+     */
+    private char[] buf;
+
+    private long base;
+
+    private int len;
+
+    private boolean eof;
+
+    /**
+     * 当前文本块的起始下标, 窗口中该下标之前的字符可以丢弃
+     */
+    private long start;
+
+    /**
+     * 上一个文本块的结束下标, 下一个文本块必须越过该位置, 保证重叠的文本块不会重复出现
+     */
+    private long prevEnd;
+
+    private final Slice slice = new Slice();
+
+    /**
+     * 自动机当前状态
+     */
+    private int state;
+
+    /**
+     * 已经读入的分割符: 结束下标和优先级, 按照结束下标排列, [hitHead, hitTail) 有效
+     */
+    private long[] hitEnds = new long[64];
+
+    private int[] hitLevels = new int[64];
+
+    private int hitHead;
+
+    private int hitTail;
+
+    StreamingChunker(Reader reader, SeparatorMatcher matcher, int chunkLen, int chunkOverlap) {
+        this.reader = reader;
+        this.matcher = matcher;
+        this.chunkLen = chunkLen;
+        this.chunkOverlap = chunkOverlap;
+        this.buf = new char[Math.max(MIN_BUFFER_SIZE, (chunkLen + 1) * 2)];
+    }
+
+    void run(ChunkSink sink) throws IOException {
+        while (true) {
+            // 与 String#trim 一致, 跳过文本块开头的空白字符
+            while (ensure(start + 1) && charAt(start) <= ' ') {
+                start++;
+            }
+            if (!ensure(start + 1))
+                return;
+
+            long limit = start + chunkLen;
+            if (!ensure(limit + 1)) {
+                // 剩下的文本不超过 chunkLen, 作为最后一个文本块
+                long end = base + len;
+                while (charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                // 剩下的文本已经全部包含在上一个文本块中
+                if (end > prevEnd)
+                    emit(sink, start, end);
+                return;
+            }
+
+            // 在 (start, limit] 范围内寻找优先级最高的分割符的最后一次出现, 分割符保留在当前文本块的末尾,
+            // 要求分割符之前至少有一个字符并且结束位置越过上一个文本块
+            while (hitHead < hitTail && hitEnds[hitHead] <= start) {
+                hitHead++;
+            }
+            long cut = -1;
+            int level = Integer.MAX_VALUE;
+            for (int i = hitHead; i < hitTail && hitEnds[i] <= limit; i++) {
+                long end = hitEnds[i];
+                int l = hitLevels[i];
+                if (l <= level && end > prevEnd && hitStart(i) > start) {
+                    level = l;
+                    cut = end;
+                }
+            }
+            if (cut == -1) {
+                // 没有可用的分割符, 按字数截断, 重叠部分同样按字数计算, 不拆开代理对
+                if (Character.isHighSurrogate(charAt(limit - 1)) && limit - 1 > Math.max(start, prevEnd))
+                    limit--;
+                emit(sink, start, limit);
+                start = Math.max(limit - chunkOverlap, start + 1);
+            } else {
+                emit(sink, start, cut);
+                start = overlapStart(start, cut, level);
+            }
+        }
+    }
+
+    /**
+     * 下一个文本块的起始位置: 当前文本块末尾不超过 chunkOverlap 的部分中, 最靠前的分割符(与截断处同级或者更低优先级)之后的位置,
+     * 没有时不重叠
+     */
+    private long overlapStart(long chunkStart, long cut, int level) {
+        if (chunkOverlap == 0)
+            return cut;
+        long from = Math.max(chunkStart + 1, cut - chunkOverlap);
+        for (int i = hitHead; i < hitTail && hitEnds[i] < cut; i++) {
+            if (hitEnds[i] >= from && hitLevels[i] >= level && hitStart(i) >= chunkStart)
+                return hitEnds[i];
+        }
+        return cut;
+    }
+
+    private long hitStart(int i) {
+        return hitEnds[i] - matcher.separator(hitLevels[i]).length();
+    }
+
+    /**
+     * 将新读入的字符 buf[from, to) 输入自动机, 记录匹配到的分割符
+     */
+    private void scan(int from, int to) {
+        for (int i = from; i < to; i++) {
+            state = matcher.step(state, buf[i]);
+            int[] levels = matcher.outputs(state);
+            if (levels != null) {
+                for (int level : levels) {
+                    addHit(base + i + 1, level);
+                }
+            }
+        }
+    }
+
+    private void addHit(long end, int level) {
+        if (hitTail == hitEnds.length) {
+            if (hitHead > 0) {
+                System.arraycopy(hitEnds, hitHead, hitEnds, 0, hitTail - hitHead);
+                System.arraycopy(hitLevels, hitHead, hitLevels, 0, hitTail - hitHead);
+                hitTail -= hitHead;
+                hitHead = 0;
+            } else {
+                hitEnds = Arrays.copyOf(hitEnds, hitEnds.length << 1);
+                hitLevels = Arrays.copyOf(hitLevels, hitLevels.length << 1);
+            }
+        }
+        hitEnds[hitTail] = end;
+        hitLevels[hitTail] = level;
+        hitTail++;
+    }
+
+    private void emit(ChunkSink sink, long chunkStart, long chunkEnd) throws IOException {
+        prevEnd = chunkEnd;
+        slice.offset = (int) (chunkStart - base);
+        slice.length = (int) (chunkEnd - chunkStart);
+        sink.accept(chunkStart, chunkEnd, slice);
+    }
+
+    private char charAt(long pos) {
+        return buf[(int) (pos - base)];
+    }
+
+    /**
+     * 尽量读取字符直到窗口包含下标 upTo 之前的所有字符
+     * @return 窗口是否包含下标 upTo 之前的所有字符, false 表示全文已经读完
+     */
+    private boolean ensure(long upTo) throws IOException {
+        while (base + len < upTo && !eof) {
+            if (len == buf.length) {
+                // 丢弃当前文本块之前的字符
+                int shift = (int) (start - base);
+                if (shift == 0) {
+                    char[] grown = new char[buf.length << 1];
+                    System.arraycopy(buf, 0, grown, 0, len);
+                    buf = grown;
+                } else {
+                    System.arraycopy(buf, shift, buf, 0, len - shift);
+                    len -= shift;
+                    base = start;
+                }
+            }
+            int n = reader.read(buf, len, buf.length - len);
+            if (n < 0) {
+                eof = true;
+            } else {
+                scan(len, len + n);
+                len += n;
+            }
+        }
+        return base + len >= upTo;
+    }
+
+    /**
+     * 窗口中一段字符的视图, 窗口移动后失效
+     */
+    private class Slice implements CharSequence {
+
+        private int offset;
+
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+            return buf[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end)
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+            return new String(buf, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buf, offset, length);
+        }
+
+    }
+
+    /**
+     * 按需读取 {@link CharSequence} 的 {@link Reader}, 不复制整个字符序列
+     */
+    static class CharSequenceReader extends Reader {
+
+        private final CharSequence text;
+
+        private int pos;
+
+        CharSequenceReader(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos >= text.length())
+                return -1;
+            int n = Math.min(len, text.length() - pos);
+            if (text instanceof String) {
+                ((String) text).getChars(pos, pos + n, cbuf, off);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    cbuf[off + i] = text.charAt(pos + i);
+                }
+            }
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -1,14 +1,8 @@
 package io.naivekyo.util;
 
-import org.apache.poi.hemf.usermodel.HemfPicture;
-import org.apache.poi.hwmf.usermodel.HwmfPicture;
-import org.apache.poi.util.Units;
+import io.naivekyo.support.image.MetafileConverter;
 
 import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.geom.Dimension2D;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
@@ -194,32 +188,7 @@ public class IOUtils {
      * @throws IOException IOException
      */
     public static byte[] convertWMFToPNG(byte[] data) throws IOException {
-        HwmfPicture wmf = new HwmfPicture(wrapToInputStream(data));
-        Dimension2D dim = wmf.getSize();
-        int width = Units.pointsToPixel(dim.getWidth());
-        int height = Units.pointsToPixel(dim.getHeight());
-        double max = Math.max(width, height);
-        // 保持宽高比例不变
-        if (max > 1500) {
-            width *= 1500 / max;
-            height *= 1500 / max;
-        }
-
-        BufferedImage bufImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = bufImg.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-
-        wmf.draw(g2, new Rectangle2D.Double(0, 0, width, height));
-
-        g2.dispose();
-
-        ByteArrayOutputStream os = new ByteArrayOutputStream(data.length);
-        ImageIO.write(bufImg, "PNG", os);
-
-        return os.toByteArray();
+        return MetafileConverter.render(data, MetafileConverter.Format.WMF, MetafileConverter.DEFAULT_MAX_DIMENSION, MetafileConverter.Quality.QUALITY);
     }
 
     /**
@@ -230,33 +199,7 @@ public class IOUtils {
      * @throws IOException IOException
      */
     public static byte[] convertEMFToPNG(byte[] data) throws IOException {
-        HemfPicture emf = new HemfPicture(wrapToInputStream(data));
-        Dimension2D dim = emf.getSize();
-
-        int width = Units.pointsToPixel(dim.getWidth());
-        int height = Units.pointsToPixel(dim.getHeight());
-        double max = Math.max(width, height);
-        // 保持宽高比例不变
-        if (max > 1500) {
-            width *= 1500 / max;
-            height *= 1500 / max;
-        }
-
-        BufferedImage bufImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = bufImg.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-
-        emf.draw(g2, new Rectangle2D.Double(0, 0, width, height));
-
-        g2.dispose();
-
-        ByteArrayOutputStream os = new ByteArrayOutputStream(data.length);
-        ImageIO.write(bufImg, "PNG", os);
-
-        return os.toByteArray();
+        return MetafileConverter.render(data, MetafileConverter.Format.EMF, MetafileConverter.DEFAULT_MAX_DIMENSION, MetafileConverter.Quality.QUALITY);
     }
 
     public static byte[] readDataFromNetworkSource(String url, String referer) {
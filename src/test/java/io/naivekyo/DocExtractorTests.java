@@ -2,6 +2,7 @@ package io.naivekyo;
 
 import io.naivekyo.content.DocContent;
 import io.naivekyo.extractor.ContentExtractor;
+import io.naivekyo.extractor.ExtractionOptions;
 import io.naivekyo.extractor.ExtractorFactory;
 import io.naivekyo.util.IOUtils;
 import org.junit.jupiter.api.AfterAll;
@@ -67,6 +68,14 @@ public class DocExtractorTests {
         IOUtils.writeToTxtFile(new File(""), collect);
     }
     
+    @Test
+    public void testDOCXFileStreamingExtract() {
+        ContentExtractor extractor = ExtractorFactory.createXWPFStreamingWordExtractor(is);
+        List<DocContent> contents = extractor.extract();
+        List<String> collect = contents.stream().map(DocContent::getHTMLWrapContent).collect(Collectors.toList());
+        IOUtils.writeToTxtFile(new File(""), collect);
+    }
+
     @Test
     public void testPDFFileExtract() {
         // -Dsun.java2d.cmm=sun.java2d.cmm.kcms.KcmsServiceProvider
@@ -101,4 +110,25 @@ public class DocExtractorTests {
         List<String> collect = contents.stream().map(DocContent::getHTMLWrapContent).collect(Collectors.toList());
         IOUtils.writeToTxtFile(new File(""), collect);
     }
+
+    @Test
+    public void testXSSFExcelStreamingExtract() {
+        ContentExtractor extractor = ExtractorFactory.createXSSFExcelExtractor(is);
+        int[] counter = new int[2];
+        // 每个内容处理完即可被回收, 不会在抽取器中累积
+        extractor.extract(content -> {
+            counter[0]++;
+            counter[1] += content.getContent().length();
+        });
+        System.out.printf("contents: %d, chars: %d%n", counter[0], counter[1]);
+    }
+
+    @Test
+    public void testTextOnlyExtract() {
+        // 只抽取文本时不会读取图片数据
+        ContentExtractor extractor = ExtractorFactory.createXWPFWordExtractor(is, ExtractionOptions.TEXT_ONLY);
+        List<DocContent> contents = extractor.extract();
+        List<String> collect = contents.stream().map(DocContent::getHTMLWrapContent).collect(Collectors.toList());
+        IOUtils.writeToTxtFile(new File(""), collect);
+    }
 }
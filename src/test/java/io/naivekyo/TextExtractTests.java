@@ -1,23 +1,50 @@
 package io.naivekyo;
 
+import io.naivekyo.constant.LanguageEnum;
+import io.naivekyo.content.ContentType;
+import io.naivekyo.content.DocContent;
 import io.naivekyo.content.DocumentParagraph;
+import io.naivekyo.extractor.AbstractContentExtractor;
+import io.naivekyo.extractor.CancellationToken;
 import io.naivekyo.extractor.ExtractHelper;
+import io.naivekyo.extractor.ExtractionOptions;
+import io.naivekyo.extractor.ExtractionStatus;
+import io.naivekyo.extractor.ExtractorFactory;
+import io.naivekyo.support.text.DocumentTextSplitter;
 import io.naivekyo.util.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFFootnote;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.DocumentDocument;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -39,6 +66,194 @@ public class TextExtractTests {
         export2TxtFile(ExtractHelper.pdfTextExtract2Paragraphs(is), "");
     }
 
+    @Test
+    public void pdfParallelTextExtract2Paragraphs() throws Exception {
+        byte[] pdf = createMultiPagePdf(60);
+        List<DocumentParagraph> sequential = ExtractHelper.pdfTextExtract2Paragraphs(new ByteArrayInputStream(pdf), false, 400, 3.0f, 1);
+        List<DocumentParagraph> parallel = ExtractHelper.pdfTextExtract2Paragraphs(new ByteArrayInputStream(pdf), false, 400, 3.0f, 4);
+        Assertions.assertEquals(sequential, parallel);
+        Assertions.assertEquals(ExtractHelper.pdfTextExtract(new ByteArrayInputStream(pdf), true, 1), 
+                ExtractHelper.pdfTextExtract(new ByteArrayInputStream(pdf), true, 4));
+    }
+
+    @Test
+    public void streamingTextSplit() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(18);
+        String[] pieces = { "文档内容抽取。", "段落合并需要考虑标点符号", "结果是否符合预期？", "some words ", "\n", "\n\n" };
+        for (int i = 0; i < 20000; i++)
+            sb.append(pieces[random.nextInt(pieces.length)]);
+        String text = sb.toString();
+
+        DocumentTextSplitter splitter = new DocumentTextSplitter(LanguageEnum.ZH_CN, 200, 30);
+        List<String> fromText = new ArrayList<>();
+        long[] prev = { -1, -1 };
+        splitter.split(text, (start, end, chunk) -> {
+            Assertions.assertEquals(text.substring((int) start, (int) end), chunk.toString());
+            Assertions.assertTrue(end - start <= 200);
+            Assertions.assertTrue(start > prev[0] && end > prev[1] && prev[1] - start <= 30);
+            prev[0] = start;
+            prev[1] = end;
+            fromText.add(start + ":" + chunk);
+        });
+        Assertions.assertEquals(text.trim().length(), prev[1]);
+
+        List<String> fromReader = new ArrayList<>();
+        splitter.split(new StringReader(text), (start, end, chunk) -> fromReader.add(start + ":" + chunk));
+        Assertions.assertEquals(fromText, fromReader);
+    }
+
+    @Test
+    public void backslashSeparatorTextSplit() {
+        // "\\." 按照正则表达式处理, 匹配反斜杠加任意一个字符, 文本中原样出现过 "\\." 时才会被选用
+        String text = "alpha beta gamma\\. delta epsilon\\x, zeta eta theta iota";
+        Assertions.assertEquals(Arrays.asList("alpha beta gamma\\.", "delta epsilon\\x", ", zeta eta theta ", "iota"),
+                new DocumentTextSplitter(LanguageEnum.EN, 20, 0).split(text));
+        Assertions.assertEquals(Arrays.asList("alpha beta gamma ", "delta epsilon\\x, ", "zeta"),
+                new DocumentTextSplitter("en", new String[] { "\\.", " " }, 20, 0).split("alpha beta gamma delta epsilon\\x, zeta"));
+    }
+
+    @Test
+    public void pdfExtractCancellation() throws Exception {
+        byte[] pdf = createMultiPagePdf(60);
+        AbstractContentExtractor full = (AbstractContentExtractor) ExtractorFactory.createPDFFileExtractor(new ByteArrayInputStream(pdf), ExtractionOptions.TEXT_ONLY);
+        int total = full.extract().size();
+        Assertions.assertEquals(ExtractionStatus.COMPLETED, full.getStatus());
+
+        // 第 3 页开始后取消, 保留已经抽取的内容
+        CancellationToken token = CancellationToken.create();
+        AbstractContentExtractor cancelled = (AbstractContentExtractor) ExtractorFactory.createPDFFileExtractor(new ByteArrayInputStream(pdf), ExtractionOptions.TEXT_ONLY);
+        cancelled.setCancellationToken(token);
+        List<String> pages = new ArrayList<>();
+        cancelled.extract(content -> {
+            if (content.getContent().startsWith("第 ")) {
+                pages.add(content.getContent());
+                if (pages.size() == 3)
+                    token.cancel();
+            }
+        });
+        Assertions.assertEquals(ExtractionStatus.CANCELLED, cancelled.getStatus());
+        Assertions.assertEquals(3, pages.size());
+
+        AbstractContentExtractor expired = (AbstractContentExtractor) ExtractorFactory.createPDFFileExtractor(new ByteArrayInputStream(pdf), ExtractionOptions.TEXT_ONLY);
+        expired.setCancellationToken(CancellationToken.withTimeout(0, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(expired.extract().size() < total);
+        Assertions.assertEquals(ExtractionStatus.TIMED_OUT, expired.getStatus());
+    }
+
+    @Test
+    public void docxStreamingExtract() throws Exception {
+        byte[] docx = createComplexDocx();
+        List<DocContent> expected = ExtractorFactory.createXWPFWordExtractor(new ByteArrayInputStream(docx)).extract();
+        List<DocContent> actual = ExtractorFactory.createXWPFStreamingWordExtractor(new ByteArrayInputStream(docx)).extract();
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getType(), actual.get(i).getType(), "content " + i);
+            Assertions.assertEquals(expected.get(i), actual.get(i), "content " + i);
+        }
+        // 确认生成的文档确实覆盖了图片、嵌套表格、脚注和修订
+        Assertions.assertTrue(actual.stream().anyMatch(c -> c.getType() == ContentType.IMAGE));
+        String tables = actual.stream().filter(c -> c.getType() == ContentType.TABLE).map(DocContent::getContent).collect(Collectors.joining());
+        Assertions.assertTrue(tables.contains("n1") && tables.contains("footnote body") && tables.contains("sdtcell"));
+        String texts = actual.stream().filter(c -> c.getType() == ContentType.TEXT).map(DocContent::getContent).collect(Collectors.joining());
+        Assertions.assertTrue(texts.contains("inserted") && texts.contains("block sdt p1"));
+
+        Path file = Files.createTempFile("streaming", ".docx");
+        try {
+            Files.write(file, docx);
+            Assertions.assertEquals(expected, ExtractorFactory.createXWPFStreamingWordExtractor(file).extract());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 生成包含图片、脚注、修订、内容控件(w:sdt)以及嵌套表格的 docx 文档
+     */
+    public static byte[] createComplexDocx() throws Exception {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        try (XWPFDocument doc = new XWPFDocument()) {
+            String picture = doc.addPictureData(png.toByteArray(), Document.PICTURE_TYPE_PNG);
+            XWPFFootnote footnote = doc.createFootnote();
+            footnote.createParagraph().createRun().setText("footnote body");
+            String note = "<w:r><w:footnoteReference w:id=\"" + footnote.getId() + "\"/></w:r>";
+            String drawing = "<w:drawing><wp:inline><wp:extent cx=\"100\" cy=\"100\"/><wp:docPr id=\"1\" name=\"p\"/>" +
+                    "<a:graphic><a:graphicData uri=\"http://schemas.openxmlformats.org/drawingml/2006/picture\"><pic:pic>" +
+                    "<pic:nvPicPr><pic:cNvPr id=\"0\" name=\"x\"/><pic:cNvPicPr/></pic:nvPicPr>" +
+                    "<pic:blipFill><a:blip r:embed=\"" + picture + "\"/></pic:blipFill><pic:spPr/></pic:pic></a:graphicData></a:graphic>" +
+                    "</wp:inline></w:drawing>";
+            String body = "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"" +
+                    " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"" +
+                    " xmlns:wp=\"http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing\"" +
+                    " xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\"" +
+                    " xmlns:pic=\"http://schemas.openxmlformats.org/drawingml/2006/picture\"><w:body>" +
+                    "<w:p><w:r><w:t xml:space=\"preserve\">Hello </w:t><w:tab/><w:t>world</w:t><w:br/><w:t>&amp; more</w:t></w:r>" +
+                    "<w:fldSimple w:instr=\"PAGE\"><w:r><w:t>7</w:t></w:r></w:fldSimple></w:p>" +
+                    "<w:p><w:ins w:id=\"1\" w:author=\"a\"><w:r><w:t>inserted</w:t></w:r></w:ins>" +
+                    "<w:del w:id=\"2\" w:author=\"a\"><w:r><w:delText>deleted</w:delText></w:r></w:del>" +
+                    "<w:smartTag w:uri=\"u\" w:element=\"e\"><w:r><w:t>smart</w:t></w:r></w:smartTag></w:p>" +
+                    "<w:p><w:r><w:t>before picture</w:t></w:r><w:r>" + drawing + "</w:r><w:r><w:t>after picture</w:t></w:r>" +
+                    "<w:sdt><w:sdtContent><w:r><w:t>inline sdt</w:t></w:r></w:sdtContent></w:sdt></w:p>" +
+                    "<w:p><w:r><w:t>note</w:t></w:r>" + note + "</w:p>" +
+                    "<w:sdt><w:sdtPr/><w:sdtContent><w:p><w:r><w:t>block sdt p1</w:t></w:r></w:p>" +
+                    "<w:tbl><w:tr><w:tc><w:p><w:r><w:t>s1</w:t></w:r></w:p></w:tc><w:tc><w:p><w:r><w:t>s2</w:t></w:r></w:p></w:tc></w:tr></w:tbl>" +
+                    "<w:p><w:r><w:t>block sdt p2</w:t></w:r></w:p></w:sdtContent></w:sdt>" +
+                    "<w:tbl><w:tblPr/><w:tr>" +
+                    "<w:tc><w:p><w:r><w:t>c11</w:t></w:r></w:p><w:p><w:r><w:t>c11b</w:t></w:r>" + note + "</w:p></w:tc>" +
+                    "<w:tc><w:p><w:r><w:t>c12</w:t></w:r></w:p>" +
+                    "<w:tbl><w:tr><w:tc><w:p><w:r><w:t>n1</w:t></w:r></w:p></w:tc>" +
+                    "<w:tc><w:tbl><w:tr><w:tc><w:p><w:r><w:t>deep</w:t></w:r></w:p></w:tc></w:tr></w:tbl><w:p><w:r><w:t>n2</w:t></w:r></w:p></w:tc></w:tr></w:tbl>" +
+                    "<w:p><w:r><w:t>tail</w:t></w:r></w:p></w:tc>" +
+                    "<w:sdt><w:sdtContent><w:tc><w:p><w:r><w:t>sdtcell</w:t></w:r></w:p></w:tc></w:sdtContent></w:sdt></w:tr>" +
+                    "<w:tr><w:tc><w:p/></w:tc><w:tc><w:p><w:r><w:delText>gone</w:delText></w:r></w:p></w:tc><w:tc><w:p/></w:tc></w:tr>" +
+                    "<w:tr><w:tc><w:p><w:r>" + drawing + "</w:r><w:r><w:t>cell picture</w:t></w:r></w:p></w:tc>" +
+                    "<w:tc><w:p><w:ins w:id=\"3\" w:author=\"a\"><w:r><w:t>ins</w:t></w:r></w:ins>" +
+                    "<w:del w:id=\"4\" w:author=\"a\"><w:r><w:delText>del</w:delText></w:r></w:del>" +
+                    "<w:sdt><w:sdtContent><w:r><w:t>isdt</w:t></w:r></w:sdtContent></w:sdt></w:p></w:tc><w:tc><w:p/></w:tc></w:tr></w:tbl>" +
+                    "<w:p><w:r><w:t>last</w:t></w:r></w:p><w:sectPr/></w:body></w:document>";
+            doc.getDocument().setBody(DocumentDocument.Factory.parse(body).getDocument().getBody());
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            doc.write(baos);
+            return baos.toByteArray();
+        }
+    }
+
+    /**
+     * 生成多页的 pdf 文档, 每页若干行文本, 部分行以语句结束符结尾
+     */
+    public static byte[] createMultiPagePdf(int pages) throws IOException {
+        Random random = new Random(pages);
+        String[] words = { "alpha", "beta", "gamma", "delta", "report", "section", "value", "policy" };
+        try (PDDocument doc = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 10);
+                    cs.setLeading(12);
+                    cs.newLineAtOffset(40, 750);
+                    for (int l = 0; l < 50; l++) {
+                        StringBuilder sb = new StringBuilder();
+                        for (int w = 0; w < 10; w++)
+                            sb.append(words[random.nextInt(words.length)]).append(' ');
+                        if (random.nextInt(4) == 0)
+                            sb.append('?');
+                        cs.showText(sb.toString());
+                        cs.newLine();
+                    }
+                    cs.endText();
+                }
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            doc.save(baos);
+            return baos.toByteArray();
+        }
+    }
+
     public static InputStream readFile(String path) {
         try {
             return Files.newInputStream(Paths.get(path));